@@ -5,29 +5,215 @@
 package ataxx;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static ataxx.GameException.error;
 import static ataxx.PieceColor.*;
 
 /** A Player that computes its own moves.
+ *
+ *  The search runs on a separate searcher thread behind a
+ *  CompletableFuture, deepening one ply at a time up to MAX_DEPTH, so that
+ *  the game thread (and any display) is free while it thinks.  The search
+ *  reports its depth, node count and current best move to the game's
+ *  Reporter as it goes, and
+ *  moveNow makes it stop and play the best move of the deepest completed
+ *  iteration.
+ *
+ *  The search is selective, as set by a Tuning.  Below the root, moves are
+ *  tried in order of their gain in material (see gain).  Late moves that
+ *  capture little are searched to a reduced depth first, and searched
+ *  fully only if that makes them look better than the best so far.  Two
+ *  plies above the leaves, a move is skipped when even its gain plus a
+ *  margin cannot reach the best score found, since the reply can only
+ *  lose material.  At a set depth, ProbCut predicts the value of a node
+ *  from a shallow search, and prunes the node if the prediction lies far
+ *  enough outside the window (see ProbCutCalibrator).
  *  @author Ezra Apple
  */
 class AI extends Player {
 
     /** Maximum minimax search depth before going to static evaluation. */
     private static final int MAX_DEPTH = 4;
+    /** Maximum search depth when playing under a time control, which
+     *  ordinarily stops the search first. */
+    private static final int TIMED_MAX_DEPTH = 64;
     /** A position magnitude indicating a win (for red if positive, blue
      *  if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
+    /** Progress is checked for once every PROGRESS_NODES nodes (a power
+     *  of 2). */
+    private static final int PROGRESS_NODES = 1 << 12;
+    /** Minimum time between progress reports, in milliseconds. */
+    private static final long PROGRESS_INTERVAL = 100;
+
+    /** Runs all AIs' searches, as many at a time as there are
+     *  processors. */
+    private static final ExecutorService SEARCHER =
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), (r) -> {
+                Thread t = new Thread(r, "ai-search");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /** Parameters of the selective search.  A move's captures are the
+     *  opponent's pieces next to its destination.
+     *      lmr-depth: Least remaining depth at which moves are reduced.
+     *      lmr-moves: Number of moves at a node searched before any are
+     *          reduced.
+     *      lmr-captures: Most captures a move may make and be reduced.
+     *      lmr-reduction: Plies by which a move is reduced, or 0 for no
+     *          reductions.
+     *      futility-margin: Amount added to a move's gain before comparing
+     *          it with the best score found, or -1 for no futility
+     *          pruning.
+     *      probcut-depth: Remaining depth at which ProbCut is tried, or 0
+     *          for none.
+     *      probcut-shallow: Depth of ProbCut's shallow search.
+     *      probcut-slope, probcut-offset, probcut-sigma: Parameters of the
+     *          fit of deep values to shallow ones: the deep value is
+     *          predicted to be slope * shallow + offset, with standard
+     *          error sigma (see ProbCutCalibrator).
+     *      probcut-threshold: Number of sigmas by which the prediction
+     *          must lie outside the window for ProbCut to prune.
+     *  All but the last four are integers. */
+    static class Tuning {
+
+        /** Tuning with the parameters VALUES, in the order named in the
+         *  class comment. */
+        Tuning(double... values) {
+            if (values.length != NAMES.size()) {
+                throw new IllegalArgumentException("wrong number of values");
+            }
+            _values = values.clone();
+            _lmrDepth = (int) values[0];
+            _lmrMoves = (int) values[1];
+            _lmrCaptures = (int) values[2];
+            _lmrReduction = (int) values[3];
+            _futilityMargin = (int) values[4];
+            _probcutDepth = (int) values[5];
+            _probcutShallow = (int) values[6];
+            _probcutSlope = values[7];
+            _probcutOffset = values[8];
+            _probcutSigma = values[9];
+            _probcutThreshold = values[10];
+        }
+
+        /** Return the tuning given by SPEC, a comma-separated list of
+         *  NAME=VALUE, where NAME is one of the parameter names in the
+         *  class comment.  Parameters not named are as in
+         *  DEFAULT_TUNING. */
+        static Tuning parse(String spec) {
+            return DEFAULT_TUNING.with(spec);
+        }
+
+        /** Return this tuning with the parameters given by SPEC, as for
+         *  parse, changed. */
+        Tuning with(String spec) {
+            double[] values = _values.clone();
+            for (String item : spec.split(",")) {
+                String[] parts = item.split("=");
+                int k = parts.length == 2 ? NAMES.indexOf(parts[0]) : -1;
+                if (k < 0) {
+                    throw error("bad tuning parameter: %s", item);
+                }
+                try {
+                    values[k] = k < NUM_INTEGERS ? Integer.parseInt(parts[1])
+                        : Double.parseDouble(parts[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad tuning value: %s", item);
+                }
+            }
+            if (values[7] <= 0 || values[9] < 0
+                || values[5] > 0 && (values[6] < 0 || values[6] >= values[5])) {
+                throw error("bad ProbCut parameters: %s", spec);
+            }
+            return new Tuning(values);
+        }
+
+        /** Return true iff moves are ordered and pruned at all. */
+        boolean selective() {
+            return _lmrReduction > 0 || _futilityMargin >= 0
+                || _probcutDepth > 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            for (int k = 0; k < _values.length; k += 1) {
+                if (k > 0) {
+                    result.append(",");
+                }
+                result.append(NAMES.get(k)).append("=");
+                if (k < NUM_INTEGERS) {
+                    result.append((int) _values[k]);
+                } else {
+                    result.append(_values[k]);
+                }
+            }
+            return result.toString();
+        }
+
+        /** The parameter names, in order. */
+        private static final List<String> NAMES =
+            List.of("lmr-depth", "lmr-moves", "lmr-captures",
+                    "lmr-reduction", "futility-margin", "probcut-depth",
+                    "probcut-shallow", "probcut-slope", "probcut-offset",
+                    "probcut-sigma", "probcut-threshold");
+        /** The number of leading NAMES whose values are integers. */
+        private static final int NUM_INTEGERS = 7;
+
+        /** Parameter values, in the order of NAMES. */
+        private final double[] _values;
+        /** Integer parameters. */
+        private final int _lmrDepth, _lmrMoves, _lmrCaptures, _lmrReduction,
+            _futilityMargin, _probcutDepth, _probcutShallow;
+        /** ProbCut's fit and threshold. */
+        private final double _probcutSlope, _probcutOffset, _probcutSigma,
+            _probcutThreshold;
+    }
+
+    /** The usual selective search.  The ProbCut fit is ProbCutCalibrator's
+     *  for 400 positions.  Given a second, it completes about 6.2 plies
+     *  in mid-game positions, where FULL_WIDTH completes 4.9. */
+    static final Tuning DEFAULT_TUNING =
+        new Tuning(3, 3, 1, 1, 1, 3, 1, 0.918, -0.028, 1.320, 1.5);
+    /** Search without selectivity: every move is searched to full depth, in
+     *  the order of possibleMoves. */
+    static final Tuning FULL_WIDTH =
+        new Tuning(0, 0, 0, 0, -1, 0, 1, 1.0, 0.0, 1.0, 1.5);
 
     /** A new AI for GAME that will play MYCOLOR. SEED is used to initialize
      *  a random-number generator for use in move computations.  Identical
-     *  seeds produce identical behaviour. */
+     *  seeds produce identical behaviour.  The search is tuned by
+     *  Main.tuning(). */
     AI(Game game, PieceColor myColor, long seed) {
+        this(game, myColor, seed, Main.tuning());
+    }
+
+    /** A new AI for GAME that will play MYCOLOR, using SEED as above, whose
+     *  search is tuned by TUNING. */
+    AI(Game game, PieceColor myColor, long seed, Tuning tuning) {
         super(game, myColor);
         _random = new Random(seed);
+        _tuning = tuning;
+        _recorder = Main.recorder() == null ? null
+            : Main.recorder().fork();
+    }
+
+    /** Record my searches with RECORDER, or stop recording them if it is
+     *  null. */
+    void record(SearchRecorder recorder) {
+        _recorder = recorder;
     }
 
     @Override
@@ -38,54 +224,352 @@ class AI extends Player {
     @Override
     String getMove() {
         if (!getBoard().canMove(myColor())) {
-            game().reportMove(Move.pass(), myColor());
-            return "-";
+            return pass();
         }
+        SearchEvent event = startSearch();
+        return finish(think().join(), event);
+    }
+
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        if (!getBoard().canMove(myColor())) {
+            return CompletableFuture.completedFuture(pass());
+        }
+        SearchEvent event = startSearch();
+        return think().thenApplyAsync((move) -> finish(move, event),
+                                      executor);
+    }
+
+    /** Report and return my pass. */
+    private String pass() {
+        game().reportMove(Move.pass(), myColor());
+        return "-";
+    }
+
+    /** Start timing a search, and return its event, begun. */
+    private SearchEvent startSearch() {
+        SearchEvent event = new SearchEvent();
+        event.begin();
         Main.startTiming();
-        Move move = findMove();
+        return event;
+    }
+
+    /** Finish timing the search described by EVENT, which found MOVE,
+     *  commit EVENT, and report MOVE.  Return MOVE's denotation. */
+    private String finish(Move move, SearchEvent event) {
         Main.endTiming();
+        if (event.shouldCommit()) {
+            event.side = myColor().toString();
+            event.move = move.toString();
+            event.depth = _lastDepth;
+            event.nodes = _nodes;
+            event.score = _lastScore;
+            event.commit();
+        }
         game().reportMove(move, myColor());
         return move.toString();
     }
 
-    /** Return a move for me from the current position, assuming there
-     *  is a move. */
-    private Move findMove() {
+    /** Start a search for a move for me from the current position,
+     *  assuming there is a move, and return the future result.  The
+     *  current position must not change until the result is available.
+     *  Under a time control, the search's length is set by a
+     *  TimeManager, and a forced move is returned at once, as is a move
+     *  from the tablebase given to Main, if it covers the position and
+     *  its value holds under the jump limit (see
+     *  Tablebase.playableMove), or a
+     *  result from Main's position store that is proven or (when
+     *  untimed) at least as deep as this search would go. */
+    CompletableFuture<Move> think() {
         Board b = new Board(getBoard());
-        _lastFoundMove = null;
-        if (myColor() == RED) {
-            minMax(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
+        ArrayList<Move> moves = possibleMoves(b);
+        Clock clock = game().clock();
+        Tablebase tablebase = Main.tablebase();
+        Move solved = tablebase == null ? null : tablebase.playableMove(b);
+        _stop = false;
+        PositionStore store = Main.store();
+        PositionStore.Entry stored =
+            store == null ? null : store.probe(b, kind());
+        if (stored != null && stored.depth() < PositionStore.EXACT_DEPTH
+            && (clock != null || stored.depth() < MAX_DEPTH)) {
+            stored = null;
+        }
+        if (solved != null) {
+            _lastDepth = 0;
+            _nodes = 0;
+            return CompletableFuture.completedFuture(solved);
+        } else if (stored != null) {
+            _lastDepth = stored.depth();
+            _lastScore = stored.score();
+            _nodes = 0;
+            return CompletableFuture.completedFuture(stored.move());
+        } else if (clock == null) {
+            _timer = null;
+            _maxDepth = MAX_DEPTH;
+        } else if (moves.size() == 1) {
+            _lastDepth = 0;
+            _nodes = 0;
+            return CompletableFuture.completedFuture(moves.get(0));
         } else {
-            minMax(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+            _timer = new TimeManager(clock, b, myColor());
+            _maxDepth = TIMED_MAX_DEPTH;
+        }
+        return CompletableFuture.supplyAsync(() -> findMove(b), SEARCHER);
+    }
+
+    @Override
+    void moveNow() {
+        _stop = true;
+    }
+
+    /** Return a move for me from position B, assuming there is a move,
+     *  searching as by deepen, and record the result in Main's position
+     *  store, if any.  B is used as scratch space. */
+    private Move findMove(Board b) {
+        deepen(b);
+        PositionStore store = Main.store();
+        if (store != null && _lastDepth > 0 && _bestSoFar != null) {
+            store.store(b, kind(), Math.abs(_lastScore) >= WINNING_VALUE
+                        ? PositionStore.EXACT_DEPTH : _lastDepth,
+                        _lastScore, _bestSoFar);
+        }
+        return _bestSoFar;
+    }
+
+    /** Return the kind of my searches, as a position store knows them:
+     *  the text of my tuning, on which their results depend. */
+    private String kind() {
+        return _tuning.toString();
+    }
+
+    /** Return a move for me from position BOARD, assuming that it is my
+     *  move and there is a move, found by searching to DEPTH plies as
+     *  think() does without a time control, but without consulting a
+     *  tablebase or position store.  Leaves BOARD unchanged and needs no
+     *  game.  The search is deterministic, so nodes() afterwards is a
+     *  signature of the search's behavior. */
+    Move search(Board board, int depth) {
+        _timer = null;
+        _stop = false;
+        _maxDepth = depth;
+        return deepen(new Board(board));
+    }
+
+    /** Return the score of the last search by search or think(). */
+    int lastScore() {
+        return _lastScore;
+    }
+
+    /** Return a move for me from position B, assuming there is a move,
+     *  searching successively deeper until _maxDepth, until told to
+     *  stop, or until _timer (if any) says to.  Reports progress to my
+     *  game, if any.  B is used as scratch space. */
+    private Move deepen(Board b) {
+        _bestSoFar = null;
+        _nodes = 0;
+        _reductions = _researches = _futilityPrunes = 0;
+        _probCutTries = _probCuts = 0;
+        _lastDepth = 0;
+        _nextProgress = System.currentTimeMillis() + PROGRESS_INTERVAL;
+        for (int depth = 1; depth <= _maxDepth; depth += 1) {
+            _lastFoundMove = null;
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            if (_recorder != null) {
+                _recorder.search(b, depth);
+            }
+            int score;
+            if (myColor() == RED) {
+                score = minMax(b, depth, true, 1, -INFTY, INFTY);
+            } else {
+                score = minMax(b, depth, true, -1, -INFTY, INFTY);
+            }
+            if (_stop && _bestSoFar != null) {
+                break;
+            }
+            boolean changed = _lastFoundMove != _bestSoFar;
+            _bestSoFar = _lastFoundMove;
+            _lastScore = score;
+            _lastDepth = depth;
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.nodes = _nodes;
+                event.bestMove = String.valueOf(_bestSoFar);
+                event.score = score;
+                event.reductions = _reductions;
+                event.researches = _researches;
+                event.futilityPrunes = _futilityPrunes;
+                event.probCutTries = _probCutTries;
+                event.probCuts = _probCuts;
+                event.commit();
+            }
+            if (game() != null) {
+                game().reportProgress(myColor(), depth, _nodes, _bestSoFar);
+            }
+            if (_stop
+                || _timer != null && !_timer.anotherIteration(changed)) {
+                break;
+            }
+        }
+        if (_recorder != null) {
+            _recorder.flush();
+        }
+        return _bestSoFar;
+    }
+
+    /** Return the value of BOARD searched to DEPTH plies with a full
+     *  window, as a node below the root of a search would be (positive
+     *  favors red).  Does not change BOARD or report progress, and so
+     *  needs no game. */
+    int value(Board board, int depth) {
+        _timer = null;
+        _stop = false;
+        _nodes = 0;
+        _reductions = _researches = _futilityPrunes = 0;
+        _probCutTries = _probCuts = 0;
+        _nextProgress = Long.MAX_VALUE;
+        if (_recorder != null) {
+            _recorder.search(board, depth);
+        }
+        int value = minMax(new Board(board), depth, false,
+                           board.whoseMove() == RED ? 1 : -1, -INFTY, INFTY);
+        if (_recorder != null) {
+            _recorder.flush();
+        }
+        return value;
+    }
+
+    /** Return the number of positions visited by the last call to
+     *  value or search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of nodes pruned by ProbCut during the last call
+     *  to value. */
+    long probCuts() {
+        return _probCuts;
+    }
+
+    /** Stop the current search if its time is up, and report its
+     *  progress if PROGRESS_INTERVAL has passed since the last report. */
+    private void checkProgress() {
+        long now = System.currentTimeMillis();
+        if (_timer != null && now >= _timer.hardDeadline()) {
+            _stop = true;
+        }
+        if (now >= _nextProgress && game() != null) {
+            _nextProgress = now + PROGRESS_INTERVAL;
+            game().reportProgress(myColor(), _lastDepth + 1, _nodes,
+                                  _bestSoFar);
         }
-        return _lastFoundMove;
     }
 
-    /** The move found by the last call to the findMove method
-     *  above. */
+    /** The best move found so far by the current iteration of
+     *  findMove. */
     private Move _lastFoundMove;
 
+    /** The move found by the deepest completed iteration of the current
+     *  or last call to findMove. */
+    private Move _bestSoFar;
+
+    /** The value returned by the root search in the last call to
+     *  findMove. */
+    private int _lastScore;
+
+    /** Number of positions visited by the last call to findMove. */
+    private long _nodes;
+
+    /** Numbers of moves searched to reduced depth, of those searched
+     *  again to full depth, of moves skipped as futile, of ProbCut
+     *  trials, and of nodes ProbCut pruned during the last call to findMove
+     *  or value. */
+    private long _reductions, _researches, _futilityPrunes, _probCutTries,
+        _probCuts;
+
+    /** Depth of the deepest iteration completed by the last call to
+     *  findMove. */
+    private int _lastDepth;
+
+    /** Time after which the next progress report is due. */
+    private long _nextProgress;
+
+    /** Depth limit of the current search. */
+    private int _maxDepth;
+
+    /** Time manager for the current search, or null if untimed. */
+    private TimeManager _timer;
+
+    /** True iff the current search should stop as soon as possible. */
+    private volatile boolean _stop;
+
+
+    /** Return the number of pieces of the opponent of the player to move
+     *  on BOARD that MOVE would capture. */
+    private static int captures(Board board, Move move) {
+        if (move.isPass()) {
+            return 0;
+        }
+        PieceColor other = board.whoseMove().opposite();
+        int[] neighbors = board.geometry().neighbors();
+        int n = 0;
+        for (int k = move.toIndex() * Move.NUM_NEIGHBORS,
+                 end = k + Move.NUM_NEIGHBORS; k < end; k += 1) {
+            if (board.get(neighbors[k]) == other) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return the amount by which MOVE, which would make CAPTURES captures
+     *  on some board, would increase the mover's lead in pieces. */
+    private static int gain(Move move, int captures) {
+        return 2 * captures + (move.isExtend() ? 1 : 0);
+    }
+
+    /** Return true iff the game on BOARD cannot end in the next two
+     *  plies, as far as can cheaply be told: the player not to move has
+     *  too many pieces to lose them all, the jump limit is more than two
+     *  jumps off, and more than two squares are empty. */
+    private static boolean quiet(Board board) {
+        if (board.numPieces(board.whoseMove().opposite())
+                <= Move.NUM_NEIGHBORS
+            || board.numJumps() + 2 >= Board.JUMP_LIMIT) {
+            return false;
+        }
+        int empty = 0;
+        for (int sq : board.geometry().squares()) {
+            if (board.get(sq) == EMPTY) {
+                empty += 1;
+                if (empty > 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
     /** Return ARR an ArrayList of the possible moves for a player on BOARD
      *  on their turn for purpose of minimax alg.*/
-    private ArrayList<Move> possibleMoves(Board board) {
+    static ArrayList<Move> possibleMoves(Board board) {
         ArrayList<Move> arr = new ArrayList<>();
-        for (char col = 'a'; col <= 'g'; col++) {
-            for (char row = '1'; row <= '7'; row++) {
-                for (char checkC = (char) (col - 2);
-                     checkC <= col + 2; checkC++) {
-                    for (char checkR = (char) (row - 2);
-                         checkR <= row + 2; checkR++) {
-                        Move move = Move.move(col, row, checkC, checkR);
-                        if (board.legalMove(move)) {
-                            arr.add(move);
-                        }
-                    }
+        PieceColor who = board.whoseMove();
+        Geometry geometry = board.geometry();
+        int[] firstIds = geometry.firstIds(), targets = geometry.targets();
+        for (int sq : geometry.squares()) {
+            if (board.get(sq) != who) {
+                continue;
+            }
+            int first = firstIds[sq];
+            for (int k = 0; k < Move.NUM_TARGETS; k++) {
+                if (board.get(targets[sq * Move.NUM_TARGETS + k]) == EMPTY) {
+                    arr.add(geometry.move(first + k));
                 }
             }
         }
         if (arr.isEmpty()) {
-            arr.add(Move.pass());
+            arr.add(geometry.pass());
         }
         return arr;
     }
@@ -95,48 +579,216 @@ class AI extends Player {
      *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
      *  DEPTH levels.  Searching at level 0 simply returns a static estimate
      *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
+     *  on BOARD, does not set _foundMove.  Records the node in _recorder,
+     *  if any. */
     private int minMax(Board board, int depth, boolean saveMove, int sense,
                        int alpha, int beta) {
+        if (_recorder == null) {
+            return searchNode(board, depth, saveMove, sense, alpha, beta);
+        }
+        _recorder.enter(board, depth, alpha, beta, sense == 1, _nodes + 1);
+        int score = searchNode(board, depth, saveMove, sense, alpha, beta);
+        _recorder.exit(score, _nodes);
+        return score;
+    }
+
+    /** Search BOARD as described for minMax, which records the search
+     *  in _recorder, if any, around the call. */
+    private int searchNode(Board board, int depth, boolean saveMove,
+                           int sense, int alpha, int beta) {
         /* We use WINNING_VALUE + depth as the winning value so as to favor
          * wins that happen sooner rather than later (depth is larger the
          * fewer moves have been made. */
+        _nodes += 1;
+        if ((_nodes & (PROGRESS_NODES - 1)) == 0) {
+            checkProgress();
+        }
+        if (_stop && !saveMove) {
+            if (_recorder != null) {
+                _recorder.flag(SearchRecorder.STOPPED);
+            }
+            return 0;
+        }
         if (depth == 0 || board.getWinner() != null) {
             return staticScore(board, WINNING_VALUE + depth);
         }
+        if (depth == _tuning._probcutDepth && !saveMove) {
+            int cut = probCut(board, sense, alpha, beta);
+            if (cut != INFTY) {
+                if (_recorder != null) {
+                    _recorder.flag(SearchRecorder.PROBCUT);
+                }
+                return cut;
+            }
+        }
         int bestScore = -sense * INFTY;
         ArrayList<Move> moves = possibleMoves(board);
+        int[] leafScores = null;
+        if (depth == 1 && board.side() == Board.SIDE) {
+            _leaves.clear();
+            _leaves.addChildren(board, moves);
+            leafScores = _leaves.score(WINNING_VALUE);
+        }
+        int[] captures = null;
+        boolean futile = false;
+        if (depth >= 2 && !saveMove && _tuning.selective()) {
+            captures = order(board, moves);
+            futile = depth == 2 && _tuning._futilityMargin >= 0
+                && quiet(board);
+        }
+        if (_recorder != null) {
+            _recorder.moves(moves.size());
+        }
 
         for (int i = 0; i < moves.size(); i++) {
             Move m = moves.get(i);
-            Board boardCopy = new Board(board);
-            boardCopy.makeMove(m);
+            int score;
+            if (futile) {
+                int bound = board.redPieces() - board.bluePieces()
+                    + sense * (gain(m, captures[i])
+                               + _tuning._futilityMargin);
+                if (sense == 1 ? bound <= alpha : bound >= beta) {
+                    _futilityPrunes += 1;
+                    if (_recorder != null) {
+                        _recorder.flag(SearchRecorder.FUTILE);
+                    }
+                    bestScore = sense == 1 ? Math.max(bestScore, bound)
+                        : Math.min(bestScore, bound);
+                    break;
+                }
+            }
+            if (leafScores != null) {
+                _nodes += 1;
+                if ((_nodes & (PROGRESS_NODES - 1)) == 0) {
+                    checkProgress();
+                }
+                score = leafScores[i];
+            } else {
+                Board boardCopy = new Board(board);
+                boardCopy.makeMove(m);
+                if (captures != null && reducible(depth, i, captures[i])) {
+                    _reductions += 1;
+                    child(m, SearchRecorder.REDUCED);
+                    score = minMax(boardCopy,
+                                   depth - 1 - _tuning._lmrReduction,
+                                   false, sense * -1, alpha, beta);
+                    if (sense == 1 ? score > alpha : score < beta) {
+                        _researches += 1;
+                        child(m, SearchRecorder.RESEARCH);
+                        score = minMax(boardCopy, depth - 1,
+                                       false, sense * -1, alpha, beta);
+                    }
+                } else {
+                    child(m, 0);
+                    score = minMax(boardCopy, depth - 1,
+                                   false, sense * -1, alpha, beta);
+                }
+            }
             if (sense == 1) {
-                bestScore = minMax(boardCopy, depth - 1,
-                        false, sense * -1, alpha, beta);
-                if (bestScore > alpha) {
-                    alpha = bestScore;
+                bestScore = Math.max(bestScore, score);
+                if (score > alpha) {
+                    alpha = score;
                     if (saveMove) {
                         _lastFoundMove = m;
                     }
                 }
             } else {
-                bestScore = minMax(boardCopy, depth - 1,
-                        false, sense * -1, alpha, beta);
-                if (bestScore < beta) {
-                    beta = bestScore;
+                bestScore = Math.min(bestScore, score);
+                if (score < beta) {
+                    beta = score;
                     if (saveMove) {
                         _lastFoundMove = m;
                     }
                 }
             }
             if (alpha >= beta) {
+                if (_recorder != null) {
+                    _recorder.cutoff(i);
+                }
                 break;
             }
         }
         return bestScore;
     }
 
+    /** Tell _recorder, if any, that the next node searched is reached by
+     *  MOVE (null for none) and has the flags FLAGS. */
+    private void child(Move move, int flags) {
+        if (_recorder != null) {
+            _recorder.child(move, flags);
+        }
+    }
+
+    /** Try ProbCut at BOARD, which is being searched to
+     *  _tuning._probcutDepth with SENSE, ALPHA, and BETA as for minMax.
+     *  Return BETA if a search to _tuning._probcutShallow predicts
+     *  (with the confidence given by _tuning) that the full search would
+     *  come out at least BETA, ALPHA if it predicts at most ALPHA, and
+     *  INFTY otherwise.  The shallow searches use null windows around
+     *  the values that the fit maps onto BETA and ALPHA, less or plus
+     *  the threshold. */
+    private int probCut(Board board, int sense, int alpha, int beta) {
+        Tuning t = _tuning;
+        double margin = t._probcutThreshold * t._probcutSigma;
+        _probCutTries += 1;
+        if (beta < WINNING_VALUE) {
+            double bound =
+                Math.ceil((beta + margin - t._probcutOffset) / t._probcutSlope);
+            child(null, SearchRecorder.PROBE);
+            if (bound < WINNING_VALUE
+                && minMax(board, t._probcutShallow, false, sense,
+                          (int) bound - 1, (int) bound) >= bound) {
+                _probCuts += 1;
+                return beta;
+            }
+        }
+        if (alpha > -WINNING_VALUE) {
+            double bound =
+                Math.floor((alpha - margin - t._probcutOffset)
+                           / t._probcutSlope);
+            child(null, SearchRecorder.PROBE);
+            if (bound > -WINNING_VALUE
+                && minMax(board, t._probcutShallow, false, sense,
+                          (int) bound, (int) bound + 1) <= bound) {
+                _probCuts += 1;
+                return alpha;
+            }
+        }
+        return INFTY;
+    }
+
+    /** Sort MOVES, the moves from BOARD, in decreasing order of gain,
+     *  keeping the order of moves with equal gains.  Return the numbers
+     *  of captures of the sorted moves. */
+    private static int[] order(Board board, ArrayList<Move> moves) {
+        int n = moves.size();
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i += 1) {
+            Move m = moves.get(i);
+            int c = captures(board, m);
+            keys[i] = ((long) -gain(m, c) << 40) | ((long) i << 8) | c;
+        }
+        Arrays.sort(keys);
+        ArrayList<Move> sorted = new ArrayList<>(n);
+        int[] captures = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            sorted.add(moves.get((int) (keys[i] >> 8) & 0xffff));
+            captures[i] = (int) keys[i] & 0xff;
+        }
+        moves.clear();
+        moves.addAll(sorted);
+        return captures;
+    }
+
+    /** Return true iff the move numbered I in order at a node with DEPTH
+     *  plies to go, which makes CAPTURES captures, should first be searched
+     *  to a reduced depth. */
+    private boolean reducible(int depth, int i, int captures) {
+        return _tuning._lmrReduction > 0 && depth >= _tuning._lmrDepth
+            && i >= _tuning._lmrMoves && captures <= _tuning._lmrCaptures
+            && depth - 1 - _tuning._lmrReduction >= 0;
+    }
+
     /** Return a heuristic value for BOARD.  This value is +- WINNINGVALUE in
      *  won positions, and 0 for ties. */
     private int staticScore(Board board, int winningValue) {
@@ -151,6 +803,17 @@ class AI extends Player {
         return board.redPieces() - board.bluePieces();
     }
 
+    /** Scratch batch in which the children of a node one ply above the
+     *  leaves are scored together, on the standard board.  On other
+     *  sizes, leaves are scored one at a time. */
+    private final LeafBatch _leaves = new LeafBatch(Move.NUM_MOVES + 1);
+
     /** Pseudo-random number generator for move computation. */
     private Random _random = new Random();
+
+    /** Parameters of my search. */
+    private final Tuning _tuning;
+
+    /** Recorder of my searches (a fork of Main.recorder()), or null. */
+    private SearchRecorder _recorder;
 }
@@ -0,0 +1,120 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Test the AI's search and its tuning.
+ *  @author Ezra Apple
+ */
+public class AITest {
+
+    @Test
+    public void testTuning() {
+        assertEquals(AI.DEFAULT_TUNING.toString(),
+                     AI.Tuning.parse("lmr-depth=3").toString());
+        AI.Tuning t = AI.Tuning.parse("lmr-reduction=2,futility-margin=-1");
+        assertTrue(t.toString().startsWith(
+            "lmr-depth=3,lmr-moves=3,lmr-captures=1,lmr-reduction=2,"
+            + "futility-margin=-1,probcut-depth=3,"));
+        assertTrue(t.selective());
+        assertFalse(AI.FULL_WIDTH.selective());
+        assertFalse(AI.Tuning.parse("lmr-reduction=0,futility-margin=-1,"
+                                    + "probcut-depth=0").selective());
+        t = t.with("probcut-depth=4,probcut-shallow=2,probcut-slope=0.5");
+        assertTrue(t.toString().contains("probcut-depth=4,probcut-shallow=2,"
+                                         + "probcut-slope=0.5,"));
+        assertEquals(t.toString(), AI.Tuning.parse(t.toString()).toString());
+        for (String bad : new String[] { "lmr-depth", "lmr=1",
+                                         "lmr-moves=x", "", "lmr-depth=1.5",
+                                         "probcut-slope=0",
+                                         "probcut-depth=2,probcut-shallow=2"
+                                       }) {
+            try {
+                AI.Tuning.parse(bad);
+                fail("accepted bad tuning " + bad);
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    @Test
+    public void testProbCutFit() {
+        List<int[]> pairs = new ArrayList<>();
+        for (int x = -5; x <= 5; x += 1) {
+            pairs.add(new int[] { x, 2 * x + 1 + (x % 2 == 0 ? 1 : -1) });
+        }
+        ProbCutCalibrator.Fit fit = ProbCutCalibrator.fit(pairs);
+        assertEquals(2.0, fit.slope(), 0.05);
+        assertEquals(1.0, fit.offset(), 0.2);
+        assertEquals(1.0, fit.sigma(), 0.15);
+
+        String spec = "probcut-depth=3,probcut-shallow=1,probcut-slope=0.9,"
+            + "probcut-sigma=1.3";
+        AI plain = new AI(null, RED, 0, AI.Tuning.parse("probcut-depth=0"));
+        AI never = new AI(null, RED, 0,
+                          AI.Tuning.parse(spec + ",probcut-threshold=1e10"));
+        AI cut = new AI(null, RED, 0, AI.Tuning.parse(spec));
+        Random rand = new Random(3);
+        long cuts = 0;
+        for (int i = 0; i < 10; i += 1) {
+            Board b = ProbCutCalibrator.samplePosition(rand);
+            if (b != null) {
+                String before = b.toString();
+                assertEquals(plain.value(b, 4), never.value(b, 4));
+                assertEquals(0, never.probCuts());
+                cut.value(b, 4);
+                cuts += cut.probCuts();
+                assertEquals("value changed board", before, b.toString());
+            }
+        }
+        assertTrue("ProbCut never pruned", cuts > 0);
+    }
+
+    /** Return the minimax value of BOARD searched DEPTH plies deep with
+     *  no pruning, scored as the AI scores it. */
+    private static int minimax(Board board, int depth) {
+        PieceColor winner = board.getWinner();
+        if (winner != null || depth == 0) {
+            int win = AI.WINNING_VALUE + depth;
+            return winner == RED ? win : winner == BLUE ? -win
+                : winner == EMPTY ? 0
+                : board.redPieces() - board.bluePieces();
+        }
+        int best = board.whoseMove() == RED ? -Integer.MAX_VALUE
+            : Integer.MAX_VALUE;
+        for (Move move : AI.possibleMoves(board)) {
+            Board child = new Board(board);
+            child.makeMove(move);
+            int value = minimax(child, depth - 1);
+            best = board.whoseMove() == RED ? Math.max(best, value)
+                : Math.min(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    public void testSearchValue() {
+        Random rand = new Random(11);
+        AI full = new AI(null, RED, 0, AI.FULL_WIDTH);
+        for (int i = 0; i < 12; i += 1) {
+            Board b = i < 4
+                ? BoardTest.randomPlay(new Board(), rand, 2 + 6 * i)
+                : BoardTest.randomPlay(new Board(4), rand, 2 * i);
+            for (int depth = 1; depth <= 3; depth += 1) {
+                assertEquals("value of " + b.position() + " to depth "
+                             + depth, minimax(b, depth), full.value(b, depth));
+            }
+        }
+    }
+}
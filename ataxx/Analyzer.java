@@ -0,0 +1,306 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** Multi-PV analysis: finds the best few moves from a position, each with
+ *  its exact minimax score and principal variation, rather than just the
+ *  one move the AI would play.
+ *
+ *  The search deepens one ply at a time.  In each iteration the root
+ *  moves are tried best first (by the previous iteration), each with a
+ *  window whose lower edge is the score of the K-th best line found so
+ *  far.  A move that cannot beat that fails low quickly and is not
+ *  reported; one that does gets an exact score.  All root moves and all
+ *  iterations share one TranspositionTable, which both cuts off
+ *  positions already searched deeply enough and supplies the move to try
+ *  first, so that the K lines cost much less than K separate searches.
+ *  The principal variations are read back from the table.
+ *
+ *  Scores are from the point of view of the side to move at the root:
+ *  the difference in piece counts at the end of the line, or, for a
+ *  line that ends the game, +/-(WIN - the number of plies to the end).
+ *  @author Ezra Apple
+ */
+class Analyzer {
+
+    /** Default number of lines reported. */
+    static final int DEFAULT_LINES = 3;
+    /** Default search depth, in plies. */
+    static final int DEFAULT_DEPTH = 4;
+    /** Score of a game won at the root. */
+    static final int WIN = 1000000;
+    /** Scores with at least this magnitude are wins or losses. */
+    static final int WIN_THRESHOLD = WIN / 2;
+    /** Log2 of the number of slots in the transposition table. */
+    static final int TABLE_BITS = 18;
+
+    /** A line of analysis: a root move, its score, and its principal
+     *  variation, which starts with the move. */
+    static class Line {
+
+        /** A line starting with MOVE, with score SCORE and principal
+         *  variation PV. */
+        Line(Move move, int score, List<Move> pv) {
+            _move = move;
+            _score = score;
+            _pv = pv;
+        }
+
+        /** Return my root move. */
+        Move move() {
+            return _move;
+        }
+
+        /** Return my score. */
+        int score() {
+            return _score;
+        }
+
+        /** Return my principal variation. */
+        List<Move> pv() {
+            return _pv;
+        }
+
+        /** Return my score as text: a signed piece difference, or "W" or
+         *  "L" and the number of plies to a won or lost end of game. */
+        String scoreString() {
+            if (_score >= WIN_THRESHOLD) {
+                return "W" + (WIN - _score);
+            } else if (_score <= -WIN_THRESHOLD) {
+                return "L" + (WIN + _score);
+            } else {
+                return String.format("%+d", _score);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(scoreString());
+            for (Move m : _pv) {
+                out.append(' ').append(m);
+            }
+            return out.toString();
+        }
+
+        /** The root move. */
+        private final Move _move;
+        /** The score. */
+        private final int _score;
+        /** The principal variation. */
+        private final List<Move> _pv;
+    }
+
+    /** A new Analyzer with an empty transposition table. */
+    Analyzer() {
+        _table = new TranspositionTable(TABLE_BITS);
+    }
+
+    /** Return the best K lines from the position on BOARD, searched to
+     *  DEPTH plies, best first, or all lines if there are fewer than K
+     *  moves.  Returns an empty list if the game is over.  Results of
+     *  earlier analyses are kept and reused as long as the board's size
+     *  and blocks stay the same; the table's keys leave out the blocks,
+     *  so it is cleared when they change. */
+    List<Line> analyze(Board board, int k, int depth) {
+        _nodes = 0;
+        String layout = layout(board);
+        if (!layout.equals(_layout)) {
+            _table.clear();
+            _layout = layout;
+        }
+        if (board.getWinner() != null) {
+            return Collections.emptyList();
+        }
+        List<Move> order = AI.possibleMoves(board);
+        k = Math.min(k, order.size());
+        List<Line> lines = new ArrayList<>();
+        for (int d = 1; d <= depth; d += 1) {
+            lines = new ArrayList<>();
+            List<Move> failed = new ArrayList<>();
+            int bound = -INFTY;
+            for (Move move : order) {
+                Board child = new Board(board);
+                child.makeMove(move);
+                int score = -search(child, d - 1, -INFTY, -bound, 1);
+                if (score > bound) {
+                    lines.add(new Line(move, score,
+                                       principalVariation(child, move, d)));
+                    if (lines.size() >= k) {
+                        lines.sort((x, y) -> y._score - x._score);
+                        bound = lines.get(k - 1)._score;
+                    }
+                } else {
+                    failed.add(move);
+                }
+            }
+            lines.sort((x, y) -> y._score - x._score);
+            order = new ArrayList<>();
+            for (Line line : lines) {
+                order.add(line._move);
+            }
+            order.addAll(failed);
+        }
+        return lines.subList(0, k);
+    }
+
+    /** Return the number of positions visited by the last analysis. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return a description of the size and blocked squares of BOARD. */
+    private static String layout(Board board) {
+        StringBuilder out = new StringBuilder();
+        out.append(board.side()).append(':');
+        for (int sq : board.geometry().squares()) {
+            out.append(board.get(sq) == BLOCKED ? 'x' : '.');
+        }
+        return out.toString();
+    }
+
+    /** Return the static value of BOARD for the side to move. */
+    static int evaluate(Board board) {
+        int diff = board.redPieces() - board.bluePieces();
+        return board.whoseMove() == RED ? diff : -diff;
+    }
+
+    /** Return the value of BOARD for the side to move, PLY plies from
+     *  the root, searched to DEPTH plies, assuming it lies between ALPHA
+     *  and BETA.  If it is at most ALPHA, returns a value that is at
+     *  least the true value and at most ALPHA, and if it is at least
+     *  BETA, a value that is at most the true value and at least BETA. */
+    private int search(Board board, int depth, int alpha, int beta,
+                       int ply) {
+        _nodes += 1;
+        PieceColor winner = board.getWinner();
+        if (winner != null) {
+            if (winner == EMPTY) {
+                return 0;
+            }
+            return winner == board.whoseMove() ? WIN - ply : ply - WIN;
+        } else if (depth == 0) {
+            return evaluate(board);
+        }
+
+        int alpha0 = alpha;
+        int hashMove = TranspositionTable.NO_MOVE;
+        _table.setKey(board);
+        int slot = _table.probe();
+        if (slot >= 0) {
+            hashMove = _table.move(slot);
+            if (_table.depth(slot) >= depth) {
+                int score = fromTable(_table.score(slot), ply);
+                switch (_table.bound(slot)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = Math.max(alpha, score);
+                    break;
+                default:
+                    beta = Math.min(beta, score);
+                    break;
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        List<Move> moves = AI.possibleMoves(board);
+        if (hashMove != TranspositionTable.NO_MOVE) {
+            Move first = board.geometry().move(hashMove);
+            if (moves.remove(first)) {
+                moves.add(0, first);
+            }
+        }
+        int best = -INFTY;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (Move move : moves) {
+            Board child = new Board(board);
+            child.makeMove(move);
+            int score = -search(child, depth - 1, -beta, -alpha, ply + 1);
+            if (score > best) {
+                best = score;
+                bestMove = move.id();
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= alpha0 ? TranspositionTable.UPPER
+            : best >= beta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        _table.setKey(board);
+        _table.store(depth, toTable(best, ply), bound, bestMove);
+        return best;
+    }
+
+    /** Return the principal variation of a line of DEPTH plies that starts
+     *  with MOVE, leading to the position on CHILD, as recorded in the
+     *  table.  Modifies CHILD. */
+    private List<Move> principalVariation(Board child, Move move,
+                                          int depth) {
+        List<Move> pv = new ArrayList<>();
+        pv.add(move);
+        while (pv.size() < depth && child.getWinner() == null) {
+            _table.setKey(child);
+            int slot = _table.probe();
+            if (slot < 0 || _table.move(slot) == TranspositionTable.NO_MOVE) {
+                break;
+            }
+            Move next = child.geometry().move(_table.move(slot));
+            if (!child.legalMove(next)) {
+                break;
+            }
+            pv.add(next);
+            child.makeMove(next);
+        }
+        return pv;
+    }
+
+    /** Return SCORE, found PLY plies from the root, as stored in the
+     *  table, where wins and losses are counted from the position
+     *  rather than from the root. */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return the score stored in the table as SCORE for a position PLY
+     *  plies from the root. */
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** A magnitude greater than any score. */
+    private static final int INFTY = Integer.MAX_VALUE - 1;
+
+    /** Results of searches, shared by all lines and iterations. */
+    private final TranspositionTable _table;
+    /** Layout (see layout) of the boards whose results are in _table, or
+     *  null if none. */
+    private String _layout;
+    /** Number of positions visited by the current analysis. */
+    private long _nodes;
+}
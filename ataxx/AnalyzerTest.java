@@ -0,0 +1,95 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Test the Analyzer's lines of play.
+ *  @author Ezra Apple
+ */
+public class AnalyzerTest {
+
+    @Test
+    public void testAnalyzer() {
+        Random rand = new Random(40);
+        Analyzer analyzer = new Analyzer();
+        Board b = new Board();
+        b.setBlock('c', '3');
+        for (int ply = 0; ply < 12 && b.getWinner() == null; ply++) {
+            checkLines(b, analyzer.analyze(b, 3, 3));
+            b.makeMove(BoardTest.randomMove(b, rand));
+        }
+    }
+
+    @Test
+    public void testAnalyzerAcrossLayouts() {
+        Analyzer reused = new Analyzer();
+        assertEquals(3, reused.analyze(new Board(), 3, 4).size());
+        Board blocked = new Board();
+        blocked.setBlock('b', '2');
+        blocked.setBlock('c', '3');
+        List<Analyzer.Line> lines = reused.analyze(blocked, 3, 3);
+        checkLines(blocked, lines);
+        assertEquals(new Analyzer().analyze(blocked, 3, 3).toString(),
+                     lines.toString());
+    }
+
+    /** Check that LINES are the best three lines from B at depth 3, as
+     *  found by full-width minimax, with legal principal variations. */
+    private static void checkLines(Board b, List<Analyzer.Line> lines) {
+        List<Move> moves = AI.possibleMoves(b);
+        assertEquals(Math.min(3, moves.size()), lines.size());
+        int[] scores = new int[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            Board child = new Board(b);
+            child.makeMove(moves.get(i));
+            scores[i] = -negamax(child, 2, 1);
+        }
+        Arrays.sort(scores);
+        for (int i = 0; i < lines.size(); i++) {
+            Analyzer.Line line = lines.get(i);
+            assertEquals("wrong rank " + i + " score",
+                         scores[scores.length - 1 - i], line.score());
+            Board child = new Board(b);
+            child.makeMove(line.move());
+            assertEquals("wrong score for " + line.move(),
+                         -negamax(child, 2, 1), line.score());
+            assertEquals(line.move(), line.pv().get(0));
+            Board pv = new Board(b);
+            for (Move m : line.pv()) {
+                assertTrue("illegal PV move " + m, pv.legalMove(m));
+                pv.makeMove(m);
+            }
+        }
+    }
+
+    /** Return the full-width minimax value of B for the side to move,
+     *  searched to DEPTH plies, PLY plies from the root, as scored by
+     *  Analyzer. */
+    private static int negamax(Board b, int depth, int ply) {
+        PieceColor winner = b.getWinner();
+        if (winner != null) {
+            return winner == EMPTY ? 0
+                : winner == b.whoseMove() ? Analyzer.WIN - ply
+                : ply - Analyzer.WIN;
+        } else if (depth == 0) {
+            return Analyzer.evaluate(b);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (Move m : AI.possibleMoves(b)) {
+            Board child = new Board(b);
+            child.makeMove(m);
+            best = Math.max(best, -negamax(child, depth - 1, ply + 1));
+        }
+        return best;
+    }
+}
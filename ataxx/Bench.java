@@ -0,0 +1,69 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** The search benchmark run by java ataxx.Main --bench.
+ *
+ *  The AI, with its current tuning (Main.tuning()), searches each of a
+ *  fixed set of positions to DEPTH plies, one after the other on a single
+ *  thread, with no tablebase or position store, and the total number of
+ *  nodes, the time taken, and the nodes per second are printed.  The
+ *  search is deterministic, so the total number of nodes is a signature
+ *  of its behavior: a change that leaves it alone changes only the speed,
+ *  and one that changes it changes what the AI does.  The time and the
+ *  nodes per second measure the machine and the speed of the code.
+ *  @author Ezra Apple
+ */
+class Bench {
+
+    /** Depth of each search. */
+    static final int DEPTH = 5;
+
+    /** The positions searched, in position notation: openings,
+     *  middlegames, and endgames, on each size of board, some with
+     *  blocks. */
+    static final String[] POSITIONS = {
+        "r5b/7/7/7/7/7/b5r r 0",
+        "rrr2bb/5bb/7/7/7/7/b4rr r 0",
+        "3b3/7/1rbb3/6r/6r/1b1r3/bb5 r 1",
+        "6b/7/7/bb2r2/1b1r2r/b4rr/bb5 r 3",
+        "1r1bb1b/2b2b1/r4b1/3bb2/rrb4/rrrr3/r5b r 1",
+        "1bb2b1/bbbbb2/7/2bb3/rrb4/rr5/1r2b1b r 3",
+        "r2b2r/r1b1rrr/2b1r2/bbbbr2/bb3rr/bb1brrr/1bbb1r1 b 0",
+        "bbb4/brrr1b1/b1rrbb1/rrrrb1b/rr1rbbb/rrrr1b1/2rrbbb r 0",
+        "5b1/2rx1b1/r1x1xbb/1r5/2x1xbr/1bbx2r/bb2r1r b 3",
+        "4b/3r1/rbb2/1bb1r/bbb1r r 0",
+        "b4b/b3bb/3rr1/2b1rr/4rr/b5 r 0",
+        "4r3/3xxr2/rrx2x1b/r3b2b/3b2b1/2xb1x2/3xx3/b7 r 0",
+        "r7r/1r5r1/7rr/7r1/5b1b1/9/1b7/2b2b3/2b4r1 r 1",
+    };
+
+    /** Run the benchmark, printing the result of each search (its score
+     *  positive if it favors red) and the totals.  Return 0. */
+    static int run() {
+        long nodes = 0, nanos = 0;
+        Board board = new Board();
+        System.out.printf("%2s %-6s %-6s %7s %10s%n", "#", "size", "move",
+                          "score", "nodes");
+        for (int i = 0; i < POSITIONS.length; i += 1) {
+            board.setPosition(POSITIONS[i]);
+            AI ai = new AI(null, board.whoseMove(), 0, Main.tuning());
+            long start = System.nanoTime();
+            Move move = ai.search(board, DEPTH);
+            long elapsed = System.nanoTime() - start;
+            nodes += ai.nodes();
+            nanos += elapsed;
+            System.out.printf("%2d %-6s %-6s %7d %10d%n", i + 1,
+                              Geometry.of(board.side()), move,
+                              ai.lastScore(), ai.nodes());
+        }
+        System.out.printf("Total time (ms) : %d%n", nanos / 1000000);
+        System.out.printf("Nodes searched  : %d%n", nodes);
+        System.out.printf("Nodes/second    : %d%n",
+                          nanos == 0 ? 0 : nodes * 1000000000L / nanos);
+        return 0;
+    }
+
+}
@@ -0,0 +1,31 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test the benchmark positions and searches.
+ *  @author Ezra Apple
+ */
+public class BenchTest {
+
+    @Test
+    public void testBenchPositions() {
+        Board b = new Board();
+        for (String pos : Bench.POSITIONS) {
+            b.setPosition(pos);
+            assertEquals(pos, b.position());
+            assertNull(pos, b.getWinner());
+            AI ai = new AI(null, b.whoseMove(), 0, AI.DEFAULT_TUNING);
+            Move move = ai.search(b, 2);
+            long nodes = ai.nodes();
+            assertTrue(pos + ": " + move, b.legalMove(move));
+            assertEquals(pos, b.position());
+            assertEquals(move, ai.search(b, 2));
+            assertEquals("search not deterministic", nodes, ai.nodes());
+        }
+    }
+}
@@ -7,10 +7,7 @@ package ataxx;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Stack;
-import java.util.Formatter;
-
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
 
 import static ataxx.PieceColor.*;
 import static ataxx.GameException.error;
@@ -34,11 +31,18 @@ import static ataxx.GameException.error;
  *  number of the square in row-major order (counting from 0).
  *
  *  Moves on this board are denoted by Moves.
+ *
+ *  Boards of other sizes, from Geometry.MIN_SIDE to Geometry.MAX_SIDE
+ *  squares on a side, are laid out in the same way, with the letters
+ *  and digits running as far as the size requires.  The static methods
+ *  and constants here (index, SIDE, and so on) are for the standard 7x7
+ *  board; a Board of any size works through the tables of its
+ *  geometry().
  *  @author Ezra Apple
  */
 class Board {
 
-    /** Number of squares on a side of the board. */
+    /** Number of squares on a side of the standard board. */
     static final int SIDE = Move.SIDE;
 
     /** Length of a side + an artificial 2-deep border region.
@@ -53,81 +57,115 @@ class Board {
 
     /** A new, cleared board in the initial configuration. */
     Board() {
-        _board = new PieceColor[SIZE];
-        setNotifier(NOP);
+        this(SIDE);
+    }
+
+    /** A new, cleared board of SIDE squares on a side in the initial
+     *  configuration. */
+    Board(int side) {
+        _mobility = new int[NUM_COLORS];
+        setGeometry(Geometry.of(side));
         clear();
     }
 
     /** A board whose initial contents are copied from BOARD0, but whose
-     *  undo history is clear, and whose notifier does nothing. */
+     *  undo history is clear, and which has no listeners. */
     Board(Board board0) {
+        _geometry = board0._geometry;
+        _side = board0._side;
+        _neighbors = board0._neighbors;
+        _targets = board0._targets;
+        _squares = board0._squares;
         _board = board0._board.clone();
+        _reach = board0._reach.clone();
+        _mobility = board0._mobility.clone();
         _numPieces = board0._numPieces.clone();
         _whoseMove = board0._whoseMove;
+        _numJumps = board0._numJumps;
         _allMoves = new ArrayList<Move>();
-        _undoSquares = new Stack<>();
-        _undoSquares.add(null);
-        _undoPieces = new Stack<>();
-        _undoPieces.add(null);
-        setNotifier(NOP);
+        clearHistory();
     }
 
 
-    /** Return the linearized index of square COL ROW. */
+    /** Return the linearized index of square COL ROW on the standard
+     *  board. */
     static int index(char col, char row) {
         return (row - '1' + 2) * EXTENDED_SIDE + (col - 'a' + 2);
     }
 
-    /** Return the character for row from linearized INDEX. */
+    /** Return the character for row from linearized INDEX on the
+     *  standard board. */
     static char numToRow(int index) {
         return (char) ((index - (EXTENDED_SIDE * 2 + 2)) / EXTENDED_SIDE + '1');
     }
 
-    /** Return the character for col from linearized INDEX. */
+    /** Return the character for col from linearized INDEX on the
+     *  standard board. */
     static char numToCol(int index) {
         return (char) ((index - (EXTENDED_SIDE * 2 + 2)) % EXTENDED_SIDE + 'a');
     }
 
     /** Return the linearized index of the square that is DC columns and DR
-     *  rows away from the square with index SQ. */
+     *  rows away from the square with index SQ on the standard board. */
     static int neighbor(int sq, int dc, int dr) {
         return sq + dc + dr * EXTENDED_SIDE;
     }
 
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return my layout and its tables. */
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    /** Make me SIDE squares on a side, cleared to the starting state, if
+     *  I am not that size already, and otherwise do nothing. */
+    void setSize(int side) {
+        if (side != _side) {
+            setGeometry(Geometry.of(side));
+            clear();
+        }
+    }
+
+    /** Set my layout to GEOMETRY, allocating my squares to suit it. */
+    private void setGeometry(Geometry geometry) {
+        _geometry = geometry;
+        _side = geometry.side();
+        _neighbors = geometry.neighbors();
+        _targets = geometry.targets();
+        _squares = geometry.squares();
+        _board = new PieceColor[geometry.size()];
+        _reach = new int[NUM_COLORS * geometry.size()];
+    }
+
     /** Clear me to my starting state, with pieces in their initial
      *  positions and no blocks. */
     void clear() {
         _numJumps = 0;
-        _undoSquares = new Stack<>();
-        _undoSquares.add(null);
-        _undoPieces = new Stack<>();
-        _undoPieces.add(null);
+        clearHistory();
         _whoseMove = RED;
         _winner = null;
         _allMoves = new ArrayList<>();
-        for (char c = 'a'; c <= 'g'; c++) {
-            for (char r = '1'; r <= '7'; r++) {
-                if (get(c, r) != null) {
-                    incrPieces(get(c, r), -1);
-                }
-                unrecordedSet(c, r, EMPTY);
-                incrPieces(EMPTY, 1);
-            }
-        }
-        for (int i = 0; i < _board.length; i++) {
-            if (_board[i] != EMPTY) {
-                _board[i] = BLOCKED;
-            }
+        Arrays.fill(_board, BLOCKED);
+        Arrays.fill(_reach, 0);
+        Arrays.fill(_mobility, 0);
+        Arrays.fill(_numPieces, 0);
+        for (int sq : _squares) {
+            _board[sq] = EMPTY;
         }
-        startUndo();
-        set('a', '7', RED);
-        set('g', '1', RED);
-        set('a', '1', BLUE);
-        set('g', '7', BLUE);
+        incrPieces(EMPTY, _side * _side - 4);
+        char lastCol = _geometry.lastCol(), lastRow = _geometry.lastRow();
+        unrecordedSet(_geometry.index('a', lastRow), RED);
+        unrecordedSet(_geometry.index(lastCol, '1'), RED);
+        unrecordedSet(_geometry.index('a', '1'), BLUE);
+        unrecordedSet(_geometry.index(lastCol, lastRow), BLUE);
         incrPieces(RED, 2);
         incrPieces(BLUE, 2);
 
-        announce();
+        announceReset();
     }
 
     /** Return the winner, if there is one yet, and otherwise null.  Returns
@@ -160,10 +198,11 @@ class Board {
     }
 
     /** The current contents of square CR, where 'a'-2 <= C <= 'g'+2, and
-     *  '1'-2 <= R <= '7'+2.  Squares outside the range a1-g7 are all
-     *  BLOCKED.  Returns the same value as get(index(C, R)). */
+     *  '1'-2 <= R <= '7'+2 (on the standard board).  Squares outside the
+     *  range a1-g7 are all BLOCKED.  Returns the same value as
+     *  get(geometry().index(C, R)). */
     PieceColor get(char c, char r) {
-        return _board[index(c, r)];
+        return _board[_geometry.index(c, r)];
     }
 
     /** Return the current contents of square with linearized index SQ. */
@@ -171,29 +210,69 @@ class Board {
         return _board[sq];
     }
 
-    /** Set get(C, R) to V, where 'a' <= C <= 'g', and
-     *  '1' <= R <= '7'. This operation is undoable. */
-    private void set(char c, char r, PieceColor v) {
-        set(index(c, r), v);
-    }
-
     /** Set square with linearized index SQ to V.  This operation is
      *  undoable. */
     private void set(int sq, PieceColor v) {
         addUndo(sq);
-        _board[sq] = v;
-    }
-
-    /** Set square at C R to V (not undoable). This is used for changing
-     * contents of the board without updating the undo stacks. */
-    private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(sq, v);
     }
 
     /** Set square at linearized index SQ to V (not undoable). This is used
-     * for changing contents of the board without updating the undo stacks. */
+     * for changing contents of the board without updating the undo stacks.
+     * All changes to squares go through here, so that mobility is kept
+     * up to date. */
     private void unrecordedSet(int sq, PieceColor v) {
+        PieceColor old = _board[sq];
+        if (old == v) {
+            return;
+        }
+        if (old.isPiece()) {
+            removeReach(old, sq);
+        } else if (old == EMPTY) {
+            for (int c = RED.ordinal(); c < NUM_COLORS; c++) {
+                if (_reach[c * _board.length + sq] > 0) {
+                    _mobility[c]--;
+                }
+            }
+        }
         _board[sq] = v;
+        if (v.isPiece()) {
+            addReach(v, sq);
+        } else if (v == EMPTY) {
+            for (int c = RED.ordinal(); c < NUM_COLORS; c++) {
+                if (_reach[c * _board.length + sq] > 0) {
+                    _mobility[c]++;
+                }
+            }
+        }
+    }
+
+    /** Record that a piece of color WHO now occupies SQ, for the purpose
+     *  of computing mobility. */
+    private void addReach(PieceColor who, int sq) {
+        int c = who.ordinal(), offset = c * _board.length;
+        int base = sq * Move.NUM_TARGETS;
+        for (int k = 0; k < Move.NUM_TARGETS; k++) {
+            int t = _targets[base + k];
+            _reach[offset + t]++;
+            if (_reach[offset + t] == 1 && _board[t] == EMPTY) {
+                _mobility[c]++;
+            }
+        }
+    }
+
+    /** Record that a piece of color WHO no longer occupies SQ, for the
+     *  purpose of computing mobility. */
+    private void removeReach(PieceColor who, int sq) {
+        int c = who.ordinal(), offset = c * _board.length;
+        int base = sq * Move.NUM_TARGETS;
+        for (int k = 0; k < Move.NUM_TARGETS; k++) {
+            int t = _targets[base + k];
+            _reach[offset + t]--;
+            if (_reach[offset + t] == 0 && _board[t] == EMPTY) {
+                _mobility[c]--;
+            }
+        }
     }
 
     /** Return true iff MOVE is legal on the current board. */
@@ -203,36 +282,29 @@ class Board {
         } else if (move.isPass()) {
             boolean value = !canMove(_whoseMove);
             return value;
-        } else if (_whoseMove != get(move.col0(), move.row0())) {
+        } else if (move.geometry() != _geometry
+                   || _whoseMove != get(move.fromIndex())) {
             return false;
         }
-        return get(move.col1(), move.row1()) == EMPTY;
+        return get(move.toIndex()) == EMPTY;
     }
 
     /** Return true iff C0 R0 - C1 R1 is legal on the current board. */
     boolean legalMove(char c0, char r0, char c1, char r1) {
-        return legalMove(Move.move(c0, r0, c1, r1));
+        return legalMove(_geometry.move(c0, r0, c1, r1));
     }
 
     /** Return true iff player WHO can move, ignoring whether it is
      *  that player's move and whether the game is over. */
     boolean canMove(PieceColor who) {
-        for (char col = 'a'; col <= 'g'; col++) {
-            for (char row = '1'; row <= '7'; row++) {
-                if (who == get(col, row)) {
-                    for (char checkC = (char) (col - 2);
-                         checkC <= col + 2; checkC++) {
-                        for (char checkR = (char) (row - 2);
-                             checkR <= row + 2; checkR++) {
-                            if (get(checkC, checkR) == EMPTY) {
-                                return true;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return mobility(who) > 0;
+    }
+
+    /** Return the number of empty squares that pieces of color WHO can
+     *  reach (that is, that lie within two rows and columns of one of
+     *  WHO's pieces).  WHO must be RED or BLUE. */
+    int mobility(PieceColor who) {
+        return _mobility[who.ordinal()];
     }
 
     /** Return the color of the player who has the next move.  The
@@ -258,10 +330,10 @@ class Board {
      *  move ("-" means "pass"). */
     void makeMove(String move) {
         if (move.equals("-")) {
-            makeMove(Move.pass());
+            makeMove(_geometry.pass());
         } else {
-            makeMove(Move.move(move.charAt(0), move.charAt(1), move.charAt(3),
-                               move.charAt(4)));
+            makeMove(_geometry.move(move.charAt(0), move.charAt(1),
+                                    move.charAt(3), move.charAt(4)));
         }
     }
 
@@ -269,9 +341,9 @@ class Board {
      *  other than pass, assumes that legalMove(C0, R0, C1, R1). */
     void makeMove(char c0, char r0, char c1, char r1) {
         if (c0 == '-') {
-            makeMove(Move.pass());
+            makeMove(_geometry.pass());
         } else {
-            makeMove(Move.move(c0, r0, c1, r1));
+            makeMove(_geometry.move(c0, r0, c1, r1));
         }
     }
 
@@ -287,37 +359,36 @@ class Board {
             checkWinner();
             return;
         }
-        startUndo();
-        _allMoves.add(move);
+        recordMove(move);
+        MOVES_MADE.increment();
         PieceColor opponent = _whoseMove.opposite();
 
-        char r1 = move.row1();
-        char c1 = move.col1();
+        int to = move.toIndex();
 
         if (move.isJump()) {
-            set(move.col0(), move.row0(), EMPTY);
+            set(move.fromIndex(), EMPTY);
             incrPieces(_whoseMove, -1);
             _numJumps++;
         } else if (move.isExtend()) {
             _numJumps = 0;
         }
-        set(c1, r1, _whoseMove);
+        set(to, _whoseMove);
         incrPieces(_whoseMove, 1);
 
-        for (int col = -1; col <= 1; col++) {
-            for (int row = -1; row <= 1; row++) {
-                int neighbor = neighbor(index(c1, r1), col, row);
-                if (get(neighbor) == opponent) {
-                    set(neighbor, _whoseMove);
-                    incrPieces(_whoseMove, 1);
-                    incrPieces(opponent, -1);
-                }
+        int base = to * Move.NUM_NEIGHBORS;
+        for (int k = 0; k < Move.NUM_NEIGHBORS; k++) {
+            int neighbor = _neighbors[base + k];
+            if (_board[neighbor] == opponent) {
+                set(neighbor, _whoseMove);
+                incrPieces(_whoseMove, 1);
+                incrPieces(opponent, -1);
             }
         }
 
         checkWinner();
         _whoseMove = opponent;
-        announce();
+        announce(BoardChange.Kind.MOVE, move,
+                 _undoStarts[_undoMoves - 1], _undoTop);
     }
 
     void checkWinner() {
@@ -338,58 +409,257 @@ class Board {
      *  is legal to do so. Passing is undoable. */
     void pass() {
         assert !canMove(_whoseMove);
-        _allMoves.add(Move.pass());
-        startUndo();
+        recordMove(_geometry.pass());
         _whoseMove = _whoseMove.opposite();
-        announce();
+        announce(BoardChange.Kind.MOVE, _geometry.pass(), _undoTop,
+                 _undoTop);
     }
 
-    /** Undo the last move. */
+    /** Undo the last move.  The move remains in the current line, so
+     *  that it may be redone with goTo. */
     void undo() {
-        if (_undoSquares.peek() == null
-                || _undoSquares.peek().equals(Move.pass())) {
-            _undoSquares.pop();
-            _undoPieces.pop();
-        }
-        while (_undoSquares.peek() != null) {
-            int sq = _undoSquares.pop();
-            PieceColor p = _undoPieces.pop();
+        if (_undoMoves == 0) {
+            goTo(numMoves() - 1);
+            return;
+        }
+        _undoMoves--;
+        int start = _undoStarts[_undoMoves];
+        int top = _undoTop;
+        while (_undoTop > start) {
+            _undoTop--;
+            int sq = _undoSquares[_undoTop];
+            PieceColor p = COLORS[_undoPieces[_undoTop]];
             PieceColor prev = get(sq);
 
             unrecordedSet(sq, p);
             incrPieces(p, 1);
             incrPieces(prev, -1);
         }
-        if (_allMoves.get(_allMoves.size() - 1).isJump()) {
-            _numJumps--;
-        }
+        _numJumps = _undoJumps[_undoMoves];
         _whoseMove = _whoseMove.opposite();
-        _allMoves.remove(_allMoves.size() - 1);
+        Move undone = _allMoves.remove(_allMoves.size() - 1);
         _winner = null;
-        announce();
+        announce(BoardChange.Kind.UNDO, undone, start, top);
+    }
+
+    /** Return the number of moves in the current line: the moves made
+     *  since the last clear, followed by any that have been undone (or
+     *  skipped over by goTo) and not since replaced by a different
+     *  move. */
+    int lineLength() {
+        return _lineLength;
+    }
+
+    /** Set the board to its position after the first PLY moves of the
+     *  current line, where 0 <= PLY <= lineLength().  Depending on which is
+     *  cheapest, this undoes moves, replays moves of the line, or restores
+     *  the nearest snapshot at or before PLY and replays from there.
+     *  Announces the change once, at the end. */
+    void goTo(int ply) {
+        if (ply < 0 || ply > _lineLength) {
+            throw error("no such move number: %d", ply);
+        }
+        int cur = numMoves();
+        if (ply == cur) {
+            return;
+        }
+        takeSnapshots();
+        int snap = Math.min(ply / _snapInterval, _numSnapshots - 1);
+        int snapPly = snap * _snapInterval;
+        _quiet = true;
+        try {
+            if (ply < cur && cur - ply <= _undoMoves
+                && cur - ply <= 2 * (ply - snapPly)) {
+                while (numMoves() > ply) {
+                    undo();
+                }
+            } else if (ply < cur || snapPly > cur) {
+                restore(_snapshots[snap], snapPly);
+            }
+            while (numMoves() < ply) {
+                makeMove(_geometry.move(_line[numMoves()]));
+            }
+        } finally {
+            _quiet = false;
+        }
+        announceReset();
+    }
+
+    /** Record the start of MOVE, which is about to be made, in the undo
+     *  records and the current line, first taking any snapshots that are
+     *  due if the oldest undo records are about to be dropped. */
+    private void recordMove(Move move) {
+        if (_undoMoves == MAX_UNDO_MOVES) {
+            takeSnapshots();
+        }
+        int ply = numMoves();
+        if (ply >= _lineLength || _line[ply] != move.id()) {
+            _lineLength = ply;
+            _numSnapshots = Math.min(_numSnapshots,
+                                     ply / _snapInterval + 1);
+        }
+        if (ply == _lineLength) {
+            if (_lineLength == _line.length) {
+                _line = Arrays.copyOf(_line, grown(_line.length));
+            }
+            _line[ply] = (short) move.id();
+            _lineLength++;
+        }
+        _allMoves.add(move);
+        startUndo();
     }
 
-    /** Indicate beginning of a move in the undo stack. See the
-     * _undoSquares and _undoPieces instance variable comments for
-     * details on how the beginning of moves are marked. */
+    /** Take the snapshots that are due at or before the current move and
+     *  have not been taken yet.  Those positions are all still reachable
+     *  through the undo records, which are read backwards from the
+     *  current position without changing it.  Snapshots are taken only
+     *  here, when one is about to be needed or the undo records that
+     *  could recreate it are about to be dropped, so that a Board that
+     *  only makes and undoes moves, as in a search, takes none. */
+    private void takeSnapshots() {
+        int ply = numMoves();
+        if (_snapshots == null) {
+            _snapshots = new byte[MAX_SNAPSHOTS][];
+        }
+        while (ply / _snapInterval >= MAX_SNAPSHOTS) {
+            int kept = (_numSnapshots + 1) / 2;
+            for (int i = 0; i < MAX_SNAPSHOTS; i++) {
+                _snapshots[i] = i < kept ? _snapshots[2 * i] : null;
+            }
+            _numSnapshots = kept;
+            _snapInterval *= 2;
+        }
+        int first = _numSnapshots * _snapInterval;
+        if (first > ply) {
+            return;
+        }
+        int base = ply - _undoMoves;
+        assert first >= base;
+        byte[] contents = new byte[_board.length];
+        for (int sq : _squares) {
+            contents[sq] = (byte) _board[sq].ordinal();
+        }
+        PieceColor whoseMove = _whoseMove;
+        int numJumps = _numJumps;
+        for (int p = ply; p >= first; p--) {
+            if (p < ply) {
+                int k = p - base;
+                int end = k + 1 < _undoMoves ? _undoStarts[k + 1] : _undoTop;
+                for (int u = end - 1; u >= _undoStarts[k]; u--) {
+                    contents[_undoSquares[u]] = _undoPieces[u];
+                }
+                whoseMove = whoseMove.opposite();
+                numJumps = _undoJumps[k];
+            }
+            if (p % _snapInterval == 0) {
+                _snapshots[p / _snapInterval] =
+                    snapshot(contents, whoseMove, numJumps);
+            }
+        }
+        _numSnapshots = ply / _snapInterval + 1;
+    }
+
+    /** Return a compact copy of the position with CONTENTS (piece
+     *  ordinals indexed by linearized index), WHOSEMOVE to move, and
+     *  NUMJUMPS consecutive jumps: the contents of the squares of the
+     *  real board, followed by whose move it is and the jump count. */
+    private byte[] snapshot(byte[] contents, PieceColor whoseMove,
+                            int numJumps) {
+        int n = _squares.length;
+        byte[] snap = new byte[n + 2];
+        for (int i = 0; i < n; i++) {
+            snap[i] = contents[_squares[i]];
+        }
+        snap[n] = (byte) whoseMove.ordinal();
+        snap[n + 1] = (byte) numJumps;
+        return snap;
+    }
+
+    /** Set the position to SNAP, as returned by snapshot(), which was
+     *  taken after the first PLY moves of the current line.  Discards
+     *  the undo records. */
+    private void restore(byte[] snap, int ply) {
+        int n = _squares.length;
+        for (int i = 0; i < n; i++) {
+            unrecordedSet(_squares[i], COLORS[snap[i]]);
+        }
+        Arrays.fill(_numPieces, 0);
+        for (int sq : _squares) {
+            incrPieces(_board[sq], 1);
+        }
+        _whoseMove = COLORS[snap[n]];
+        _numJumps = snap[n + 1];
+        while (_allMoves.size() > ply) {
+            _allMoves.remove(_allMoves.size() - 1);
+        }
+        while (_allMoves.size() < ply) {
+            _allMoves.add(_geometry.move(_line[_allMoves.size()]));
+        }
+        _undoMoves = _undoTop = 0;
+        _winner = null;
+    }
+
+    /** Discard the undo records, current line, and snapshots. */
+    private void clearHistory() {
+        _undoMoves = _undoTop = 0;
+        _lineLength = 0;
+        _numSnapshots = 0;
+        _snapInterval = SNAPSHOT_INTERVAL;
+    }
+
+    /** Indicate beginning of a move in the undo records, dropping the
+     *  records of the oldest half of the moves if there are too many.
+     *  See the _undoSquares and _undoStarts instance variable comments
+     *  for details. */
     private void startUndo() {
-        _undoSquares.push(null);
-        _undoPieces.push(null);
+        if (_undoMoves == MAX_UNDO_MOVES) {
+            int half = MAX_UNDO_MOVES / 2;
+            int offset = _undoStarts[half];
+            System.arraycopy(_undoSquares, offset, _undoSquares, 0,
+                             _undoTop - offset);
+            System.arraycopy(_undoPieces, offset, _undoPieces, 0,
+                             _undoTop - offset);
+            for (int i = half; i < MAX_UNDO_MOVES; i++) {
+                _undoStarts[i - half] = _undoStarts[i] - offset;
+                _undoJumps[i - half] = _undoJumps[i];
+            }
+            _undoTop -= offset;
+            _undoMoves -= half;
+        }
+        if (_undoMoves == _undoStarts.length) {
+            _undoStarts = Arrays.copyOf(_undoStarts, grown(_undoMoves));
+            _undoJumps = Arrays.copyOf(_undoJumps, grown(_undoMoves));
+        }
+        _undoStarts[_undoMoves] = _undoTop;
+        _undoJumps[_undoMoves] = _numJumps;
+        _undoMoves++;
     }
 
     /** Add an undo action for changing SQ on current board. */
     private void addUndo(int sq) {
-        _undoSquares.push(sq);
-        _undoPieces.push(get(sq));
+        if (_undoTop == _undoSquares.length) {
+            _undoSquares = Arrays.copyOf(_undoSquares, grown(_undoTop));
+            _undoPieces = Arrays.copyOf(_undoPieces, grown(_undoTop));
+        }
+        _undoSquares[_undoTop] = sq;
+        _undoPieces[_undoTop] = (byte) get(sq).ordinal();
+        _undoTop++;
+    }
+
+    /** Return the new length for a history array of LENGTH entries that
+     *  is full.  The arrays start empty, so that copies made for
+     *  searching allocate only as much as their searches use. */
+    private static int grown(int length) {
+        return Math.max(16, 2 * length);
     }
 
     /** Return true iff it is legal to place a block at C R. */
     boolean legalBlock(char c, char r) {
-        if (_allMoves.size() > 0) {
+        if (_allMoves.size() > 0 || !_geometry.onBoard(c, r)) {
             return false;
         }
-        char cOff = (char) ('g' - c + 'a');
-        char rOff = (char) ('7' - r + '1');
+        char cOff = (char) (_geometry.lastCol() - c + 'a');
+        char rOff = (char) (_geometry.lastRow() - r + '1');
 
         return get(c, r) == EMPTY
                 && get(cOff, r) == EMPTY
@@ -411,16 +681,17 @@ class Board {
         if (!legalBlock(c, r)) {
             throw error("illegal block placement");
         }
-        char cOff = (char) ('g' - c + 'a');
-        char rOff = (char) ('7' - r + '1');
-        set(c, r, BLOCKED);
-        set(cOff, r, BLOCKED);
-        set(c, rOff, BLOCKED);
-        set(cOff, rOff, BLOCKED);
+        char cOff = (char) (_geometry.lastCol() - c + 'a');
+        char rOff = (char) (_geometry.lastRow() - r + '1');
+        unrecordedSet(_geometry.index(c, r), BLOCKED);
+        unrecordedSet(_geometry.index(cOff, r), BLOCKED);
+        unrecordedSet(_geometry.index(c, rOff), BLOCKED);
+        unrecordedSet(_geometry.index(cOff, rOff), BLOCKED);
+        clearHistory();
         if (!canMove(RED) && !canMove(BLUE)) {
             _winner = EMPTY;
         }
-        announce();
+        announceReset();
     }
 
     /** Place a block at CR. */
@@ -467,54 +738,285 @@ class Board {
     /** Return a text depiction of the board.  If LEGEND, supply row and
      *  column numbers around the edges. */
     String toString(boolean legend) {
-        Formatter out = new Formatter();
-        for (char r = '7'; r >= '1'; r -= 1) {
+        StringBuilder out =
+            new StringBuilder((2 * _side + 3) * (_side + 1));
+        for (char r = _geometry.lastRow(); r >= '1'; r -= 1) {
             if (legend) {
-                out.format("%c", r);
+                out.append(r);
             }
-            out.format(" ");
-            for (char c = 'a'; c <= 'g'; c += 1) {
+            out.append(' ');
+            for (char c = 'a'; c <= _geometry.lastCol(); c += 1) {
                 switch (get(c, r)) {
                 case RED:
-                    out.format(" r");
+                    out.append(" r");
                     break;
                 case BLUE:
-                    out.format(" b");
+                    out.append(" b");
                     break;
                 case BLOCKED:
-                    out.format(" X");
+                    out.append(" X");
                     break;
                 case EMPTY:
-                    out.format(" -");
+                    out.append(" -");
                     break;
                 default:
                     break;
                 }
             }
-            out.format("%n");
+            out.append(NEWLINE);
         }
         if (legend) {
-            out.format("   a b c d e f g");
+            out.append(' ');
+            for (char c = 'a'; c <= _geometry.lastCol(); c += 1) {
+                out.append(' ').append(c);
+            }
         }
         return out.toString();
     }
 
-    /** Set my notifier to NOTIFY. */
-    public void setNotifier(Consumer<Board> notify) {
-        _notifier = notify;
-        announce();
+    /* Position notation.  A position is written on one line as the rows
+     * of the board from 7 down to 1, separated by '/', followed by the
+     * side to move and the jump count, separated by single blanks.  Each
+     * row lists its squares from a to g as 'r' (red), 'b' (blue), or 'x'
+     * (block), with a run of empty squares written as a digit giving its
+     * length.  The initial position is
+     *     r5b/7/7/7/7/7/b5r r 0
+     * Everything is lower case, so that it survives command
+     * canonicalization.  Other sizes of board are written the same way,
+     * and the number of rows gives the size. */
+
+    /** Return my position in position notation. */
+    String position() {
+        StringBuilder out = new StringBuilder(MAX_POSITION_LENGTH);
+        position(out);
+        return out.toString();
+    }
+
+    /** Append my position, in position notation, to OUT.  This allocates
+     *  nothing if OUT has room for MAX_POSITION_LENGTH more characters,
+     *  so OUT may be reused to render many positions cheaply. */
+    void position(StringBuilder out) {
+        for (int r = _side - 1; r >= 0; r -= 1) {
+            int empty = 0;
+            for (int c = 0; c < _side; c += 1) {
+                PieceColor p = _board[_squares[c * _side + r]];
+                if (p == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(p == RED ? 'r' : p == BLUE ? 'b' : 'x');
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (r > 0) {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(_whoseMove == RED ? 'r' : 'b')
+            .append(' ').append(_numJumps);
+    }
+
+    /** Return the position, in position notation, from which the moves
+     *  in allMoves() were made. */
+    String startPosition() {
+        if (numMoves() == 0) {
+            return position();
+        }
+        takeSnapshots();
+        Board start = new Board(_side);
+        start.restore(_snapshots[0], 0);
+        return start.position();
+    }
+
+    /** Return the size of the board described by POS, in position
+     *  notation: its number of rows.  POS need not be valid otherwise. */
+    static int positionSide(CharSequence pos) {
+        int side = 1;
+        for (int i = 0; i < pos.length() && pos.charAt(i) != ' '; i += 1) {
+            if (pos.charAt(i) == '/') {
+                side += 1;
+            }
+        }
+        return side;
+    }
+
+    /** Set me to the position POS, given in position notation, with no
+     *  moves made, no undo history, and no current line, changing my
+     *  size to that of POS if need be.  Does not allocate unless the
+     *  size changes.  Leaves me unchanged if POS is not a valid
+     *  position. */
+    void setPosition(CharSequence pos) {
+        int n = pos.length();
+        int side = positionSide(pos);
+        if (side < Geometry.MIN_SIDE || side > Geometry.MAX_SIDE) {
+            throw error("position must have %d to %d rows",
+                        Geometry.MIN_SIDE, Geometry.MAX_SIDE);
+        }
+        int i = 0;
+        for (int r = side - 1; r >= 0; r -= 1) {
+            int c = 0;
+            for (; i < n && pos.charAt(i) != '/' && pos.charAt(i) != ' ';
+                 i += 1) {
+                char ch = pos.charAt(i);
+                if (ch >= '1' && ch <= '0' + side) {
+                    c += ch - '0';
+                } else if (ch == 'r' || ch == 'b' || ch == 'x'
+                           || ch == 'X') {
+                    c += 1;
+                } else {
+                    throw error("bad character in position: %c", ch);
+                }
+            }
+            if (c != side) {
+                throw error("wrong number of squares in position row %d",
+                            r + 1);
+            }
+            if (r > 0 && (i >= n || pos.charAt(i) != '/')) {
+                throw error("position has too few rows");
+            }
+            i += 1;
+        }
+        if (i + 1 >= n || (pos.charAt(i) != 'r' && pos.charAt(i) != 'b')
+            || pos.charAt(i + 1) != ' ') {
+            throw error("position lacks side to move");
+        }
+        PieceColor toMove = pos.charAt(i) == 'r' ? RED : BLUE;
+        i += 2;
+        if (i >= n) {
+            throw error("position lacks jump count");
+        }
+        int jumps = 0;
+        for (; i < n; i += 1) {
+            char ch = pos.charAt(i);
+            if (ch < '0' || ch > '9' || jumps > JUMP_LIMIT) {
+                throw error("bad jump count in position");
+            }
+            jumps = 10 * jumps + ch - '0';
+        }
+        if (jumps > JUMP_LIMIT) {
+            throw error("bad jump count in position");
+        }
+
+        setSize(side);
+        i = 0;
+        Arrays.fill(_numPieces, 0);
+        for (int r = side - 1; r >= 0; r -= 1, i += 1) {
+            for (int c = 0; pos.charAt(i) != '/' && pos.charAt(i) != ' ';
+                 i += 1) {
+                char ch = pos.charAt(i);
+                PieceColor p;
+                int count = 1;
+                if (ch == 'r') {
+                    p = RED;
+                } else if (ch == 'b') {
+                    p = BLUE;
+                } else if (ch == 'x' || ch == 'X') {
+                    p = BLOCKED;
+                } else {
+                    p = EMPTY;
+                    count = ch - '0';
+                }
+                for (; count > 0; count -= 1, c += 1) {
+                    unrecordedSet(_squares[c * side + r], p);
+                    incrPieces(p, 1);
+                }
+            }
+        }
+        _whoseMove = toMove;
+        _numJumps = jumps;
+        _allMoves.clear();
+        clearHistory();
+        _winner = null;
+        announceReset();
+    }
+
+    /** Return the total number of non-pass moves made on all Boards since
+     *  the program started.  Sampled by MoveCountEvent. */
+    static long totalMovesMade() {
+        return MOVES_MADE.sum();
+    }
+
+    /** Add LISTENER to my subscribers, delivering changes to it
+     *  asynchronously iff ASYNC (see BoardBus), and first delivering to it
+     *  a RESET change describing my current state.  Must be called on the
+     *  thread that changes me. */
+    void subscribe(BoardListener listener, boolean async) {
+        if (_bus == null) {
+            _bus = new BoardBus();
+        }
+        _bus.subscribe(listener, async, resetChange());
+    }
+
+    /** Remove LISTENER from my subscribers. */
+    void unsubscribe(BoardListener listener) {
+        if (_bus != null) {
+            _bus.unsubscribe(listener);
+        }
+    }
+
+    /** Announce a change of kind KIND involving MOVE to my subscribers.
+     *  The changed squares are those recorded in _undoSquares[FROM .. TO-1].
+     *  Does nothing (and allocates nothing) if there are no subscribers. */
+    private void announce(BoardChange.Kind kind, Move move, int from,
+                          int to) {
+        if (_quiet || _bus == null || _bus.isEmpty()) {
+            return;
+        }
+        int[] squares = Arrays.copyOfRange(_undoSquares, from, to);
+        PieceColor[] contents = new PieceColor[squares.length];
+        for (int k = 0; k < squares.length; k++) {
+            contents[k] = _board[squares[k]];
+        }
+        _bus.publish(new BoardChange(kind, _geometry, move, numMoves(),
+                                     _whoseMove,
+                                     redPieces(), bluePieces(),
+                                     squares, contents));
+    }
+
+    /** Announce to my subscribers that my entire state may have changed. */
+    private void announceReset() {
+        if (_quiet || _bus == null || _bus.isEmpty()) {
+            return;
+        }
+        _bus.publish(resetChange());
     }
 
-    /** Take any action that has been set for a change in my state. */
-    private void announce() {
-        _notifier.accept(this);
+    /** Return a RESET change describing my current state. */
+    private BoardChange resetChange() {
+        int[] squares = _squares.clone();
+        PieceColor[] contents = new PieceColor[squares.length];
+        for (int k = 0; k < squares.length; k++) {
+            contents[k] = _board[squares[k]];
+        }
+        return new BoardChange(BoardChange.Kind.RESET, _geometry, null,
+                               numMoves(), _whoseMove, redPieces(),
+                               bluePieces(), squares, contents);
     }
 
-    /** A notifier that does nothing. */
-    private static final Consumer<Board> NOP = (s) -> { };
+    /** My subscribers, or null if there have never been any. */
+    private BoardBus _bus;
+
+    /** The line separator used by toString. */
+    private static final String NEWLINE = System.lineSeparator();
+
+    /** Maximum length of a position in position notation on the largest
+     *  board: every square, the row separators, the side to move, and a
+     *  two-digit jump count, with blanks. */
+    static final int MAX_POSITION_LENGTH =
+        Geometry.MAX_SIDE * Geometry.MAX_SIDE + Geometry.MAX_SIDE - 1 + 5;
 
-    /** Use _notifier.accept(this) to announce changes to this board. */
-    private Consumer<Board> _notifier;
+    /** Count of all non-pass moves made on any Board.  A LongAdder, so
+     *  that searches on several threads do not contend for it. */
+    private static final LongAdder MOVES_MADE = new LongAdder();
+
+    /** True while goTo is making changes, which it announces only once
+     *  they are complete. */
+    private boolean _quiet;
 
     /** For reasons of efficiency in copying the board,
      *  we use a 1D array to represent it, using the usual access
@@ -529,8 +1031,28 @@ class Board {
      *
      *  Using characters as indices, it follows that if 'a' <= c <= 'g'
      *  and '1' <= r <= '7', then row r, column c of the board corresponds
-     *  to _board[(c -'a' + 2) + 11 (r - '1' + 2) ]. */
-    private final PieceColor[] _board;
+     *  to _board[(c -'a' + 2) + 11 (r - '1' + 2) ].  Other sizes of
+     *  board are laid out the same way, as described by _geometry. */
+    private PieceColor[] _board;
+
+    /** My layout. */
+    private Geometry _geometry;
+    /** Number of squares on a side. */
+    private int _side;
+    /** Tables from _geometry, kept here for speed. */
+    private int[] _neighbors, _targets, _squares;
+
+    /** Number of PieceColor values, and so of rows in _reach. */
+    private static final int NUM_COLORS = PieceColor.values().length;
+
+    /** _reach[C * N + SQ], where N is _board.length, is the number of
+     *  pieces of the color whose ordinal is C within two rows and columns
+     *  of square SQ.  Only the rows for RED and BLUE are used. */
+    private int[] _reach;
+
+    /** _mobility[C] is the number of empty squares SQ for which
+     *  _reach[C * N + SQ] > 0: the value of mobility(C). */
+    private final int[] _mobility;
 
     /** Player that is next to move. */
     private PieceColor _whoseMove;
@@ -553,15 +1075,61 @@ class Board {
      *  the game. */
     private ArrayList<Move> _allMoves;
 
-    /* The undo stack. We keep a stack of squares that have changed and
+    /* The undo records. We keep a stack of squares that have changed and
      * their previous contents.  Any given move may involve several such
-     * changes, so we mark the start of the changes for each move (including
-     * passes) with a null. */
-
-    /** Stack of linearized indices of squares that have been modified and
-     *  not undone. Nulls mark the beginnings of full moves. */
-    private Stack<Integer> _undoSquares;
-    /** Stack of pieces formally at corresponding squares in _UNDOSQUARES. */
-    private Stack<PieceColor> _undoPieces;
+     * changes, so we also keep, for each move (including passes), the
+     * position in that stack at which its changes start, along with the
+     * jump count before the move.  Only the records for the most recent
+     * MAX_UNDO_MOVES moves are kept; moves before those are undone by
+     * restoring a snapshot. */
+
+    /** Maximum number of moves whose undo records are kept. */
+    private static final int MAX_UNDO_MOVES = 256;
+
+    /** Linearized indices of squares that have been modified and not
+     *  undone, for the last _undoMoves moves. */
+    private int[] _undoSquares = new int[0];
+    /** Ordinals of the pieces formerly at corresponding squares in
+     *  _undoSquares. */
+    private byte[] _undoPieces = new byte[0];
+    /** Number of entries in _undoSquares and _undoPieces. */
+    private int _undoTop;
+    /** _undoStarts[k] is the index in _undoSquares of the first change
+     *  made by the k-th of the last _undoMoves moves. */
+    private int[] _undoStarts = new int[0];
+    /** _undoJumps[k] is the value of numJumps() before the k-th of the
+     *  last _undoMoves moves. */
+    private int[] _undoJumps = new int[0];
+    /** Number of most recent moves that have undo records. */
+    private int _undoMoves;
+
+    /* The current line and its snapshots.  The line holds the id()s of
+     * the moves made since the last clear, followed by any that have been
+     * undone and not replaced.  Snapshot i is the position after the
+     * first i * _snapInterval moves of the line.  Snapshots are taken
+     * late (see takeSnapshots), so only the first _numSnapshots of those
+     * due need exist.  When there are too many snapshots, every other one
+     * is dropped and the interval doubled, so that their number stays
+     * bounded however long the game. */
+
+    /** Initial number of moves between snapshots. */
+    private static final int SNAPSHOT_INTERVAL = 8;
+    /** Maximum number of snapshots kept (even). */
+    private static final int MAX_SNAPSHOTS = 32;
+
+    /** PieceColors indexed by ordinal. */
+    private static final PieceColor[] COLORS = PieceColor.values();
+
+    /** Move ids of the current line. */
+    private short[] _line = new short[0];
+    /** Number of moves in the current line. */
+    private int _lineLength;
+    /** Snapshots of positions along the current line, or null if none
+     *  has been taken. */
+    private byte[][] _snapshots;
+    /** Number of valid entries in _snapshots. */
+    private int _numSnapshots;
+    /** Number of moves between snapshots. */
+    private int _snapInterval;
 
 }
@@ -0,0 +1,62 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.List;
+import java.util.Random;
+
+/** Measures the rate at which moves are generated and made on boards of
+ *  each supported size, by playing random games to the end: at each
+ *  position, it lists the legal moves with AI.possibleMoves and makes one
+ *  chosen at random.
+ *  Usage: java ataxx.BoardBench [SECONDS-PER-SIZE]
+ *  @author Ezra Apple
+ */
+class BoardBench {
+
+    /** Default time per size, in seconds. */
+    static final double DEFAULT_SECONDS = 2.0;
+
+    /** Run the benchmark, with ARGS as described in the class comment. */
+    public static void main(String[] args) {
+        double seconds =
+            args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_SECONDS;
+        System.out.printf("%-6s %12s %10s%n", "size", "moves/sec",
+                          "games");
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side += 1) {
+            Board board = new Board(side);
+            Random rand = new Random(side);
+            long limit = (long) (seconds * 1e9);
+            for (long start = System.nanoTime();
+                 System.nanoTime() - start < limit;) {
+                playout(board, rand);
+            }
+            long moves = 0, games = 0;
+            long start = System.nanoTime(), elapsed;
+            do {
+                moves += playout(board, rand);
+                games += 1;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < limit);
+            System.out.printf("%-6s %12.0f %10d%n", Geometry.of(side),
+                              moves * 1e9 / elapsed, games);
+        }
+    }
+
+    /** Clear BOARD and play a game on it to the end with moves chosen
+     *  using RAND.  Return the number of moves made. */
+    static int playout(Board board, Random rand) {
+        board.clear();
+        int n = 0;
+        while (board.getWinner() == null) {
+            List<Move> moves = AI.possibleMoves(board);
+            board.makeMove(moves.get(rand.nextInt(moves.size())));
+            n += 1;
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,141 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Delivers BoardChanges to any number of BoardListeners.  A synchronous
+ *  listener is called on the thread that changed the board, before the
+ *  change returns, and so may examine the board itself.  An asynchronous
+ *  listener is called on a thread of its own; changes that arrive while
+ *  it is busy are coalesced into one, so a slow asynchronous listener
+ *  sees fewer, larger changes and never delays the board's owner.
+ *  @author Ezra Apple
+ */
+class BoardBus {
+
+    /** Add LISTENER, delivering to it asynchronously iff ASYNC, and
+     *  deliver INITIAL to it alone. */
+    void subscribe(BoardListener listener, boolean async,
+                   BoardChange initial) {
+        Subscriber s = async ? new Async(listener) : new Sync(listener);
+        _subscribers.add(s);
+        s.deliver(initial);
+    }
+
+    /** Remove LISTENER, if present, stopping its delivery thread if it
+     *  is asynchronous. */
+    void unsubscribe(BoardListener listener) {
+        for (Subscriber s : _subscribers) {
+            if (s._listener == listener) {
+                _subscribers.remove(s);
+                s.stop();
+            }
+        }
+    }
+
+    /** Return true iff there are any subscribers. */
+    boolean isEmpty() {
+        return _subscribers.isEmpty();
+    }
+
+    /** Deliver CHANGE to all subscribers. */
+    void publish(BoardChange change) {
+        for (Subscriber s : _subscribers) {
+            s.deliver(change);
+        }
+    }
+
+    /** A subscribed listener and its delivery policy. */
+    private abstract static class Subscriber {
+        /** A subscriber delivering to LISTENER. */
+        Subscriber(BoardListener listener) {
+            _listener = listener;
+        }
+
+        /** Arrange for CHANGE to be delivered to my listener. */
+        abstract void deliver(BoardChange change);
+
+        /** Stop delivering. */
+        void stop() {
+        }
+
+        /** The listener. */
+        protected final BoardListener _listener;
+    }
+
+    /** A listener called directly by publish. */
+    private static class Sync extends Subscriber {
+        /** A synchronous subscriber delivering to LISTENER. */
+        Sync(BoardListener listener) {
+            super(listener);
+        }
+
+        @Override
+        void deliver(BoardChange change) {
+            _listener.boardChanged(change);
+        }
+    }
+
+    /** A listener called from its own thread with coalesced changes. */
+    private static class Async extends Subscriber implements Runnable {
+        /** An asynchronous subscriber delivering to LISTENER. */
+        Async(BoardListener listener) {
+            super(listener);
+            _thread = new Thread(this, "board-listener");
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+
+        @Override
+        synchronized void deliver(BoardChange change) {
+            if (_pending == null) {
+                _pending = change;
+                notifyAll();
+            } else {
+                _pending = BoardChange.merge(_pending, change);
+            }
+        }
+
+        @Override
+        synchronized void stop() {
+            _stopped = true;
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                BoardChange change;
+                synchronized (this) {
+                    while (_pending == null && !_stopped) {
+                        try {
+                            wait();
+                        } catch (InterruptedException excp) {
+                            return;
+                        }
+                    }
+                    if (_stopped) {
+                        return;
+                    }
+                    change = _pending;
+                    _pending = null;
+                }
+                _listener.boardChanged(change);
+            }
+        }
+
+        /** Thread on which my listener is called. */
+        private final Thread _thread;
+        /** Changes not yet delivered, coalesced, or null if none. */
+        private BoardChange _pending;
+        /** True once I have been unsubscribed. */
+        private boolean _stopped;
+    }
+
+    /** Current subscribers. */
+    private final CopyOnWriteArrayList<Subscriber> _subscribers =
+        new CopyOnWriteArrayList<>();
+}
@@ -0,0 +1,170 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** A compact description of a change to a Board, as delivered to
+ *  BoardListeners.  It lists the squares whose contents changed, with
+ *  their new contents, together with the state of the rest of the board
+ *  afterwards, so that a listener can follow the game without looking at
+ *  the Board itself (which may have changed again by the time an
+ *  asynchronous listener sees this).  BoardChanges are immutable.
+ *  @author Ezra Apple
+ */
+class BoardChange {
+
+    /** The kinds of change. */
+    enum Kind {
+        /** A move (possibly a pass) was made. */
+        MOVE,
+        /** A move was undone. */
+        UNDO,
+        /** The board was cleared, set up, or jumped to another position.
+         *  Every square of the real board is listed as changed. */
+        RESET,
+        /** Several changes of the kinds above, coalesced. */
+        COALESCED
+    }
+
+    /** A change of kind KIND to a board of GEOMETRY, which involves MOVE
+     *  (or is null), after
+     *  which the board has PLY moves made, WHOSEMOVE to move, and
+     *  REDPIECES and BLUEPIECES pieces.  The changed squares are
+     *  SQUARES, whose new contents are the corresponding elements of
+     *  CONTENTS.  Neither array may be modified afterwards. */
+    BoardChange(Kind kind, Geometry geometry, Move move, int ply,
+                PieceColor whoseMove, int redPieces, int bluePieces,
+                int[] squares, PieceColor[] contents) {
+        _kind = kind;
+        _geometry = geometry;
+        _move = move;
+        _ply = ply;
+        _whoseMove = whoseMove;
+        _redPieces = redPieces;
+        _bluePieces = bluePieces;
+        _squares = squares;
+        _contents = contents;
+    }
+
+    /** Return the kind of change. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Return the layout of the board after the change, to which the
+     *  indices of the changed squares refer. */
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    /** Return the move made (for MOVE) or undone (for UNDO), or null
+     *  for other kinds. */
+    Move move() {
+        return _move;
+    }
+
+    /** Return the number of moves made on the board after the change. */
+    int ply() {
+        return _ply;
+    }
+
+    /** Return the side to move after the change. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of red pieces after the change. */
+    int redPieces() {
+        return _redPieces;
+    }
+
+    /** Return the number of blue pieces after the change. */
+    int bluePieces() {
+        return _bluePieces;
+    }
+
+    /** Return the number of squares whose contents changed. */
+    int numChanged() {
+        return _squares.length;
+    }
+
+    /** Return the linearized index of the Kth changed square. */
+    int square(int k) {
+        return _squares[k];
+    }
+
+    /** Return the new contents of the Kth changed square. */
+    PieceColor contents(int k) {
+        return _contents[k];
+    }
+
+    /** Return a change that has the same effect as EARLIER followed by
+     *  LATER. */
+    static BoardChange merge(BoardChange earlier, BoardChange later) {
+        if (later._kind == Kind.RESET) {
+            return later;
+        }
+        int size = later._geometry.size();
+        PieceColor[] contents = new PieceColor[size];
+        for (int k = 0; k < earlier._squares.length; k += 1) {
+            contents[earlier._squares[k]] = earlier._contents[k];
+        }
+        for (int k = 0; k < later._squares.length; k += 1) {
+            contents[later._squares[k]] = later._contents[k];
+        }
+        int n = 0;
+        for (PieceColor p : contents) {
+            if (p != null) {
+                n += 1;
+            }
+        }
+        int[] squares = new int[n];
+        PieceColor[] values = new PieceColor[n];
+        n = 0;
+        for (int sq = 0; sq < size; sq += 1) {
+            if (contents[sq] != null) {
+                squares[n] = sq;
+                values[n] = contents[sq];
+                n += 1;
+            }
+        }
+        Kind kind = earlier._kind == Kind.RESET ? Kind.RESET
+            : Kind.COALESCED;
+        return new BoardChange(kind, later._geometry, null, later._ply,
+                               later._whoseMove, later._redPieces,
+                               later._bluePieces, squares, values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(_kind).append(' ').append(_ply);
+        if (_move != null) {
+            out.append(' ').append(_move);
+        }
+        for (int k = 0; k < _squares.length; k += 1) {
+            out.append(' ').append(_geometry.numToCol(_squares[k]))
+                .append(_geometry.numToRow(_squares[k])).append('=')
+                .append(_contents[k]);
+        }
+        return out.toString();
+    }
+
+    /** Kind of change. */
+    private final Kind _kind;
+    /** Layout of the board. */
+    private final Geometry _geometry;
+    /** Move made or undone, or null. */
+    private final Move _move;
+    /** Moves made after the change. */
+    private final int _ply;
+    /** Side to move after the change. */
+    private final PieceColor _whoseMove;
+    /** Piece counts after the change. */
+    private final int _redPieces, _bluePieces;
+    /** Linearized indices of changed squares. */
+    private final int[] _squares;
+    /** New contents of the corresponding squares in _squares. */
+    private final PieceColor[] _contents;
+}
@@ -0,0 +1,493 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static ataxx.PieceColor.*;
+
+/** Checks Board against ReferenceBoard on random games.
+ *
+ *  Each game is on a board of random size with random blocks, and is a
+ *  sequence of operations, each one of
+ *      block CR    place a block (before any move)
+ *      C0R0-C1R1   a move, or - for a pass
+ *      undo        undo the last move
+ *      goto N      go to the position after N moves of the current line
+ *  chosen at random: mostly legal moves, with short runs of undos and
+ *  the occasional goto backward or forward in the line, and more undos
+ *  (some of them long runs) when the game ends.  Each game prefers jumps
+ *  until some number of them in a row (up to beyond the jump limit), so
+ *  that games end at the jump limit or go on long enough to overflow
+ *  Board's undo records and thin out its snapshots.  After every
+ *  operation, the two boards must agree on the squares, side to move,
+ *  jump count, moves made, length of the line, piece counts, mobility,
+ *  winner, position notation, and legal moves.  The operations are
+ *  written as the game's commands, so that a failing game, printed
+ *  after "manual blue" and "size N", is a script for ataxx.Main.
+ *
+ *  Games are played by several threads at once; game G is determined by
+ *  G and the seed, whatever thread plays it.  On the first disagreement,
+ *  the fuzzer stops, shrinks the game's operations to a minimal sequence
+ *  that still disagrees, and prints it.
+ *  Usage: java ataxx.BoardFuzzer [GAMES [THREADS [SEED]]]
+ *  where GAMES defaults to 100000, THREADS to one per processor, and SEED
+ *  to 0.  Exits with code 1 if the boards ever disagree.
+ *  @author Ezra Apple
+ */
+class BoardFuzzer {
+
+    /** Default number of games. */
+    static final long DEFAULT_GAMES = 100000;
+
+    /** Most operations in a game. */
+    static final int MAX_OPS = 2000;
+
+    /** Most undos in a long run of them: enough to undo past the undo
+     *  records that Board keeps. */
+    static final int LONG_UNDOS = 300;
+
+    /** Run the fuzzer, with ARGS as described in the class comment. */
+    public static void main(String[] args) {
+        if (args.length > 3) {
+            System.err.println("Usage: java ataxx.BoardFuzzer [GAMES"
+                               + " [THREADS [SEED]]]");
+            System.exit(1);
+        }
+        long games, seed;
+        int threads;
+        try {
+            games = args.length > 0 ? Long.parseLong(args[0])
+                : DEFAULT_GAMES;
+            threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        } catch (NumberFormatException excp) {
+            System.err.println("bad number: " + excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        BoardFuzzer fuzzer = new BoardFuzzer(seed);
+        long start = System.nanoTime();
+        fuzzer.run(games, threads);
+        double secs = (System.nanoTime() - start) * 1e-9;
+        System.out.printf("%d games, %d operations in %.1f s:"
+                          + " %.0f games/s, %.0f operations/s%n",
+                          fuzzer.games(), fuzzer.operations(), secs,
+                          fuzzer.games() / secs,
+                          fuzzer.operations() / secs);
+        Failure failure = fuzzer.failure();
+        if (failure == null) {
+            System.out.println("no disagreements");
+            return;
+        }
+        System.out.printf("game %d disagrees after %d operations: %s%n",
+                          failure.game(), failure.ops().size(),
+                          failure.message());
+        List<String> ops = shrink(failure.ops(),
+            o -> disagreement(failure.side(), o) != null);
+        System.out.printf("shrunk to %d operations: %s%n", ops.size(),
+                          disagreement(failure.side(), ops));
+        System.out.printf("manual blue%nsize %d%n", failure.side());
+        for (String op : ops) {
+            System.out.println(op);
+        }
+        System.exit(1);
+    }
+
+    /** A fuzzer whose games are determined by SEED. */
+    BoardFuzzer(long seed) {
+        _seed = seed;
+    }
+
+    /** Play games 0 to GAMES-1 on THREADS threads, or until one of them
+     *  disagrees. */
+    void run(long games, int threads) {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t += 1) {
+            workers[t] = new Thread(() -> {
+                    for (long g = _next.getAndIncrement();
+                         g < games && failure() == null;
+                         g = _next.getAndIncrement()) {
+                        play(g);
+                    }
+                }, "fuzz-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** Return the number of games finished. */
+    long games() {
+        return _games.get();
+    }
+
+    /** Return the number of operations performed in finished games. */
+    long operations() {
+        return _operations.get();
+    }
+
+    /** Return the first disagreement found, or null if none. */
+    synchronized Failure failure() {
+        return _failure;
+    }
+
+    /** Play game number GAME, recording it as the failure if the boards
+     *  disagree (and no failure has been recorded yet). */
+    void play(long game) {
+        Random rand = new Random(_seed * 0x9E3779B97F4A7C15L + game);
+        int side = Geometry.MIN_SIDE
+            + rand.nextInt(Geometry.MAX_SIDE - Geometry.MIN_SIDE + 1);
+        int jumpRun = rand.nextInt(Board.JUMP_LIMIT + 5);
+        Board board = new Board(side);
+        ReferenceBoard ref = new ReferenceBoard(side);
+        List<String> ops = new ArrayList<>();
+        String message = null;
+        for (int n = rand.nextInt(side); n > 0 && message == null;
+             n -= 1) {
+            String cr = square(side, rand);
+            if (ref.legalBlock(cr)) {
+                message = perform(board, ref, "block " + cr, ops);
+            }
+        }
+        while (message == null && ops.size() < MAX_OPS) {
+            boolean over = ref.winner() != null;
+            if (over && (ref.numMoves() == 0 || rand.nextInt(4) == 0)) {
+                break;
+            } else if (ref.numMoves() > 0
+                       && (over || rand.nextInt(20) == 0)) {
+                if (rand.nextInt(4) == 0) {
+                    int ply = rand.nextInt(ref.lineLength() + 1);
+                    message = perform(board, ref, "goto " + ply, ops);
+                } else {
+                    int most =
+                        over && rand.nextInt(2) == 0 ? LONG_UNDOS : 12;
+                    for (int k = 1 + rand.nextInt(Math.min(ref.numMoves(),
+                                                             most));
+                         k > 0 && message == null; k -= 1) {
+                        message = perform(board, ref, "undo", ops);
+                    }
+                }
+            } else {
+                message = perform(board, ref, choose(ref, jumpRun, rand),
+                                  ops);
+            }
+        }
+        _games.incrementAndGet();
+        _operations.addAndGet(ops.size());
+        if (message != null) {
+            synchronized (this) {
+                if (_failure == null) {
+                    _failure = new Failure(game, side, ops, message);
+                }
+            }
+        }
+    }
+
+    /** Return a random square name on a board of SIDE squares on a side,
+     *  chosen using RAND. */
+    private static String square(int side, Random rand) {
+        return "" + (char) ('a' + rand.nextInt(side))
+            + (char) ('1' + rand.nextInt(side));
+    }
+
+    /** Return a random legal move on REF, chosen using RAND, and chosen
+     *  from the jumps, if there are any, while fewer than JUMPRUN jumps
+     *  have been made since the last extend. */
+    private static String choose(ReferenceBoard ref, int jumpRun,
+                                 Random rand) {
+        List<String> moves = ref.legalMoves();
+        if (ref.numJumps() < jumpRun) {
+            List<String> jumps = new ArrayList<>();
+            for (String move : moves) {
+                if (!move.equals("-") && isJump(move)) {
+                    jumps.add(move);
+                }
+            }
+            if (!jumps.isEmpty()) {
+                moves = jumps;
+            }
+        }
+        return moves.get(rand.nextInt(moves.size()));
+    }
+
+    /** Return true iff MOVE, which is not a pass, is a jump. */
+    private static boolean isJump(String move) {
+        return Math.abs(move.charAt(3) - move.charAt(0)) == 2
+            || Math.abs(move.charAt(4) - move.charAt(1)) == 2;
+    }
+
+    /** Perform OP on BOARD and REF, assuming it is valid on REF, and add
+     *  it to OPS.  Return a description of how they then disagree, or
+     *  null if they agree.  After an undo or goto, which may rebuild the
+     *  list of moves made, compares the whole list. */
+    private static String perform(Board board, ReferenceBoard ref,
+                                  String op, List<String> ops) {
+        ops.add(op);
+        apply(ref, op);
+        try {
+            apply(board, op);
+        } catch (RuntimeException excp) {
+            return String.format("%s throws %s", op, excp);
+        }
+        String message = compare(board, ref);
+        if (message == null && !ref.allMoves().isEmpty()
+            && (op.equals("undo") || op.startsWith("goto "))) {
+            message = differ("moves", board.allMoves().toString(),
+                             ref.allMoves().toString());
+        }
+        return message == null ? null : op + ": " + message;
+    }
+
+    /** Return true iff OP is a valid operation on REF. */
+    static boolean valid(ReferenceBoard ref, String op) {
+        if (op.startsWith("block ")) {
+            String cr = op.substring("block ".length());
+            return cr.length() == 2 && cr.charAt(0) >= 'a'
+                && cr.charAt(0) < 'a' + ref.side() && cr.charAt(1) >= '1'
+                && cr.charAt(1) < '1' + ref.side() && ref.legalBlock(cr);
+        } else if (op.equals("undo")) {
+            return ref.numMoves() > 0;
+        } else if (op.startsWith("goto ")) {
+            int ply = Integer.parseInt(op.substring("goto ".length()));
+            return ply <= ref.lineLength();
+        } else {
+            return ref.winner() == null && ref.legalMove(op);
+        }
+    }
+
+    /** Perform OP, which is valid, on REF. */
+    private static void apply(ReferenceBoard ref, String op) {
+        if (op.startsWith("block ")) {
+            ref.setBlock(op.substring("block ".length()));
+        } else if (op.equals("undo")) {
+            ref.undo();
+        } else if (op.startsWith("goto ")) {
+            ref.goTo(Integer.parseInt(op.substring("goto ".length())));
+        } else {
+            ref.makeMove(op);
+        }
+    }
+
+    /** Perform OP on BOARD. */
+    private static void apply(Board board, String op) {
+        if (op.startsWith("block ")) {
+            board.setBlock(op.substring("block ".length()));
+        } else if (op.equals("undo")) {
+            board.undo();
+        } else if (op.startsWith("goto ")) {
+            board.goTo(Integer.parseInt(op.substring("goto ".length())));
+        } else {
+            board.makeMove(op);
+        }
+    }
+
+    /** Return a description of the first way in which BOARD and REF
+     *  disagree, or null if they agree.  Of the moves made, compares
+     *  only the number and the last, since a move changes no others. */
+    static String compare(Board board, ReferenceBoard ref) {
+        int side = ref.side();
+        for (char c = 'a'; c < 'a' + side; c += 1) {
+            for (char r = '1'; r < '1' + side; r += 1) {
+                if (board.get(c, r) != ref.get(c, r)) {
+                    return String.format("%c%c is %s, not %s", c, r,
+                                         board.get(c, r), ref.get(c, r));
+                }
+            }
+        }
+        String message =
+            differ("side to move", board.whoseMove(), ref.whoseMove());
+        message = message != null ? message
+            : differ("jumps", board.numJumps(), ref.numJumps());
+        message = message != null ? message
+            : differ("moves made", board.numMoves(), ref.numMoves());
+        if (message == null && ref.numMoves() > 0) {
+            message = differ("last move",
+                             board.allMoves().get(ref.numMoves() - 1)
+                             .toString(),
+                             ref.allMoves().get(ref.numMoves() - 1));
+        }
+        message = message != null ? message
+            : differ("line length", board.lineLength(), ref.lineLength());
+        message = message != null ? message
+            : differ("pieces", counts(board.numPieces(RED),
+                                      board.numPieces(BLUE)),
+                     counts(ref.numPieces(RED), ref.numPieces(BLUE)));
+        message = message != null ? message
+            : differ("mobility", counts(board.mobility(RED),
+                                        board.mobility(BLUE)),
+                     counts(ref.mobility(RED), ref.mobility(BLUE)));
+        message = message != null ? message
+            : differ("winner", board.getWinner(), ref.winner());
+        message = message != null ? message
+            : differ("position", board.position(), ref.position());
+        if (message == null && ref.winner() == null) {
+            message = compareMoves(board, ref);
+        }
+        return message;
+    }
+
+    /** Return a description of how the legal moves on BOARD and REF
+     *  differ, or null if they are the same. */
+    private static String compareMoves(Board board, ReferenceBoard ref) {
+        List<Move> actual = AI.possibleMoves(board);
+        List<String> expected = ref.legalMoves();
+        for (Move move : actual) {
+            if (!ref.legalMove(move.toString())) {
+                return "illegal move " + move + " is generated";
+            }
+        }
+        if (actual.size() != expected.size()) {
+            return differ("number of legal moves", actual.size(),
+                          expected.size());
+        }
+        Geometry geometry = board.geometry();
+        for (String move : expected) {
+            Move m = move.equals("-") ? geometry.pass()
+                : geometry.move(move.charAt(0), move.charAt(1),
+                                move.charAt(3), move.charAt(4));
+            if (!board.legalMove(m)) {
+                return "legal move " + move + " is rejected";
+            }
+        }
+        return null;
+    }
+
+    /** Return the pair RED and BLUE, as a long that prints readably
+     *  enough and compares cheaply. */
+    private static long counts(int red, int blue) {
+        return red * 1000L + blue;
+    }
+
+    /** Return a description of the difference in WHAT between ACTUAL
+     *  and EXPECTED, or null if they are equal. */
+    private static String differ(String what, Object actual,
+                                 Object expected) {
+        if (actual == null ? expected == null : actual.equals(expected)) {
+            return null;
+        }
+        return String.format("%s is %s, not %s", what, actual, expected);
+    }
+
+    /** Return a description of the first disagreement between a Board
+     *  and a ReferenceBoard of SIDE squares on a side after each
+     *  operation of OPS, or null if they always agree or some operation
+     *  is invalid (in which case OPS is not a test of anything).  Most
+     *  of the sequences tried while shrinking are invalid, so validity
+     *  is checked first, on the reference alone, which is much cheaper
+     *  than comparing the boards after each operation. */
+    static String disagreement(int side, List<String> ops) {
+        ReferenceBoard ref = new ReferenceBoard(side);
+        for (String op : ops) {
+            if (!valid(ref, op)) {
+                return null;
+            }
+            apply(ref, op);
+        }
+        Board board = new Board(side);
+        ref = new ReferenceBoard(side);
+        List<String> done = new ArrayList<>();
+        for (String op : ops) {
+            String message = perform(board, ref, op, done);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /** Return a sublist of ITEMS, with the order kept, on which FAILS is
+     *  still true, assuming it is true of ITEMS, and from which no single
+     *  item can be removed without making it false.  Removes runs of
+     *  items, from half of them down to one at a time, as long as that
+     *  keeps FAILS true.  Each pass goes from the end to the beginning,
+     *  since in a game, removing an operation (an undo, say) often makes
+     *  the one before it removable as well. */
+    static <T> List<T> shrink(List<T> items, Predicate<List<T>> fails) {
+        List<T> result = new ArrayList<>(items);
+        for (int run = Math.max(1, result.size() / 2); run >= 1;) {
+            boolean removed = false;
+            for (int i = result.size() - run; i >= 0;) {
+                List<T> trial = new ArrayList<>(result.subList(0, i));
+                trial.addAll(result.subList(i + run, result.size()));
+                if (fails.test(trial)) {
+                    result = trial;
+                    removed = true;
+                    i = Math.min(i, result.size() - run);
+                } else {
+                    i -= run;
+                }
+            }
+            if (!removed || run > 1) {
+                run /= 2;
+            }
+        }
+        return result;
+    }
+
+    /** A game on which the boards disagree. */
+    static class Failure {
+
+        /** Game number GAME, on a board of SIDE squares on a side, which
+         *  disagreed as described by MESSAGE after the operations OPS. */
+        Failure(long game, int side, List<String> ops, String message) {
+            _game = game;
+            _side = side;
+            _ops = ops;
+            _message = message;
+        }
+
+        /** Return the game number. */
+        long game() {
+            return _game;
+        }
+
+        /** Return the size of the board. */
+        int side() {
+            return _side;
+        }
+
+        /** Return the operations up to the disagreement. */
+        List<String> ops() {
+            return _ops;
+        }
+
+        /** Return the description of the disagreement. */
+        String message() {
+            return _message;
+        }
+
+        /** Game number. */
+        private final long _game;
+        /** Size of the board. */
+        private final int _side;
+        /** Operations performed. */
+        private final List<String> _ops;
+        /** How the boards disagreed. */
+        private final String _message;
+    }
+
+    /** Seed from which each game's random choices are derived. */
+    private final long _seed;
+    /** Number of the next game to play. */
+    private final AtomicLong _next = new AtomicLong();
+    /** Games finished. */
+    private final AtomicLong _games = new AtomicLong();
+    /** Operations performed in finished games. */
+    private final AtomicLong _operations = new AtomicLong();
+    /** The first disagreement found, or null. */
+    private Failure _failure;
+}
@@ -0,0 +1,42 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test the BoardFuzzer and its shrinking of failures.
+ *  @author Ezra Apple
+ */
+public class BoardFuzzerTest {
+
+    @Test
+    public void testFuzz() {
+        BoardFuzzer fuzzer = new BoardFuzzer(1);
+        fuzzer.run(60, 2);
+        assertNull("Board disagrees with model", fuzzer.failure());
+        assertEquals(60, fuzzer.games());
+        assertTrue(fuzzer.operations() > 1000);
+
+        List<String> ops = Arrays.asList(
+            "block b3", "a7-b6", "g7-f7", "undo", "goto 2", "undo",
+            "undo", "a7-c5");
+        assertNull(BoardFuzzer.disagreement(7, ops));
+        assertNull("invalid sequence not ignored",
+                   BoardFuzzer.disagreement(7, ops.subList(1, 4)));
+
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 100; i += 1) {
+            items.add(i);
+        }
+        assertEquals(Arrays.asList(17, 42, 43),
+                     BoardFuzzer.shrink(items, l -> l.contains(17)
+                                        && l.indexOf(43) == l.indexOf(42) + 1));
+    }
+}
@@ -0,0 +1,15 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+/** A subscriber to changes on a Board.  See Board.subscribe.
+ *  @author Ezra Apple
+ */
+interface BoardListener {
+
+    /** Respond to CHANGE on the board to which I am subscribed. */
+    void boardChanged(BoardChange change);
+
+}
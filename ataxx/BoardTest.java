@@ -4,6 +4,10 @@
 
 package ataxx;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 import static ataxx.PieceColor.*;
@@ -14,7 +18,7 @@ import static org.junit.Assert.*;
  */
 public class BoardTest {
 
-    private static void makeMoves(Board b, String[] moves) {
+    static void makeMoves(Board b, String[] moves) {
         for (String s : moves) {
             b.makeMove(s.charAt(0), s.charAt(1),
                     s.charAt(3), s.charAt(4));
@@ -365,6 +369,463 @@ public class BoardTest {
         assertEquals("wrong bluePieces", 12, b.bluePieces());
     }
 
+    @Test
+    public void testUndoPass() {
+        Board b = new Board();
+        b.setBlock('b', '1');
+        b.setBlock('g', '6');
+        b.setBlock('c', '2');
+        b.setBlock('b', '5');
+        makeMoves(b, PASSMOVES);
+        Board before = new Board(b);
+        assertFalse("red should be unable to move", b.canMove(RED));
+        assertTrue("blue should be able to move", b.canMove(BLUE));
+        b.makeMove(Move.pass());
+        assertEquals("not BLUE's move", BLUE, b.whoseMove());
+        assertEquals("wrong numMoves", PASSMOVES.length + 1, b.numMoves());
+        b.undo();
+        assertEquals("pass undone incorrectly", before, b);
+        assertEquals("not RED's move", RED, b.whoseMove());
+        assertEquals("wrong numMoves", PASSMOVES.length, b.numMoves());
+        assertEquals("wrong redPieces", 1, b.redPieces());
+        assertEquals("wrong bluePieces", before.bluePieces(),
+                     b.bluePieces());
+        b.undo();
+        assertEquals("wrong numMoves", PASSMOVES.length - 1, b.numMoves());
+        assertEquals("not BLUE's move", BLUE, b.whoseMove());
+    }
+
+    /** Return the number of empty squares within reach of WHO's pieces
+     *  on B, computed by brute force. */
+    private static int slowMobility(Board b, PieceColor who) {
+        int n = 0;
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                if (b.get(c, r) != EMPTY) {
+                    continue;
+                }
+                boolean reached = false;
+                for (int dc = -2; dc <= 2; dc++) {
+                    for (int dr = -2; dr <= 2; dr++) {
+                        if (b.get((char) (c + dc), (char) (r + dr)) == who) {
+                            reached = true;
+                        }
+                    }
+                }
+                if (reached) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return the legal moves on B, found by trying every move on the
+     *  standard board, or just a pass if there are none. */
+    private static List<Move> legalMoves(Board b) {
+        List<Move> moves = new ArrayList<>();
+        for (int id = 0; id < Move.NUM_MOVES; id++) {
+            if (b.legalMove(Move.move(id))) {
+                moves.add(Move.move(id));
+            }
+        }
+        if (moves.isEmpty()) {
+            moves.add(Move.pass());
+        }
+        return moves;
+    }
+
+    @Test
+    public void testMobility() {
+        Random rand = new Random(61);
+        for (int game = 0; game < 20; game++) {
+            Board b = new Board();
+            if (game % 2 == 1) {
+                b.setBlock('c', '3');
+                b.setBlock('d', '2');
+            }
+            while (b.getWinner() == null) {
+                List<Move> moves = legalMoves(b);
+                b.makeMove(moves.get(rand.nextInt(moves.size())));
+                if (rand.nextInt(4) == 0) {
+                    b.undo();
+                }
+                assertEquals("wrong red mobility", slowMobility(b, RED),
+                             b.mobility(RED));
+                assertEquals("wrong blue mobility", slowMobility(b, BLUE),
+                             b.mobility(BLUE));
+            }
+        }
+    }
+
+    /** Return the score AI.staticScore gives B with winning value W. */
+    private static int expectedScore(Board b, int w) {
+        PieceColor winner = b.getWinner();
+        if (winner == null) {
+            return b.redPieces() - b.bluePieces();
+        }
+        return winner == RED ? w : winner == BLUE ? -w : 0;
+    }
+
+    @Test
+    public void testLeafBatch() {
+        Random rand = new Random(36);
+        LeafBatch batch = new LeafBatch(Move.NUM_MOVES + 1);
+        for (int game = 0; game < 20; game++) {
+            Board b = new Board();
+            if (game % 2 == 1) {
+                b.setBlock('b', '2');
+                b.setBlock('d', '3');
+            }
+            while (b.getWinner() == null) {
+                List<Move> moves = legalMoves(b);
+                batch.clear();
+                batch.addChildren(b, moves);
+                int[] scores = batch.score(1000);
+                for (int i = 0; i < moves.size(); i++) {
+                    Board child = new Board(b);
+                    child.makeMove(moves.get(i));
+                    assertEquals("wrong score after " + moves.get(i),
+                                 expectedScore(child, 1000), scores[i]);
+                }
+                b.makeMove(moves.get(rand.nextInt(moves.size())));
+            }
+        }
+        Board b = new Board();
+        playLongGame(b, rand);
+        batch.clear();
+        batch.add(b);
+        assertEquals("wrong score at jump limit", expectedScore(b, 1000),
+                     batch.score(1000)[0]);
+    }
+
+    /** Return a description of the full state of B. */
+    private static String state(Board b) {
+        return b.toString() + b.whoseMove() + " " + b.numJumps() + " "
+            + b.redPieces() + " " + b.bluePieces() + " " + b.numMoves()
+            + " " + b.mobility(RED) + " " + b.mobility(BLUE);
+    }
+
+    /** Play a long game on B, in which each side avoids captures and
+     *  prefers jumps until near the jump limit, using RAND for choices,
+     *  and return the state() of B after each ply. */
+    private static List<String> playLongGame(
+        Board b, Random rand) {
+        List<String> states = new ArrayList<>();
+        states.add(state(b));
+        while (b.getWinner() == null) {
+            List<Move> extend = new ArrayList<>(),
+                jump = new ArrayList<>();
+            for (int id = 0; id < Move.NUM_MOVES; id++) {
+                Move m = Move.move(id);
+                if (!b.legalMove(m)) {
+                    continue;
+                }
+                boolean captures = false;
+                for (int k = 0; k < Move.NUM_NEIGHBORS; k++) {
+                    int sq = Move.NEIGHBORS[m.toIndex() * Move.NUM_NEIGHBORS
+                                            + k];
+                    captures |= b.get(sq) == b.whoseMove().opposite();
+                }
+                if (!captures) {
+                    (m.isJump() ? jump : extend).add(m);
+                }
+            }
+            if (extend.isEmpty() && jump.isEmpty()) {
+                if (b.canMove(b.whoseMove())) {
+                    break;
+                }
+                b.makeMove(Move.pass());
+            } else if (!jump.isEmpty()
+                       && (b.numJumps() < Board.JUMP_LIMIT - 5
+                           || extend.isEmpty())) {
+                b.makeMove(jump.get(rand.nextInt(jump.size())));
+            } else {
+                b.makeMove(extend.get(rand.nextInt(extend.size())));
+            }
+            states.add(state(b));
+        }
+        return states;
+    }
+
+    @Test
+    public void testGoTo() {
+        Random rand = new Random(30);
+        Board b = new Board();
+        List<String> states = playLongGame(b, rand);
+        int len = states.size() - 1;
+        assertTrue("game too short to test", len > 300);
+        assertEquals("wrong line length", len, b.lineLength());
+        for (int ply = len; ply > 0; ply--) {
+            b.undo();
+            assertEquals("bad undo to ply " + (ply - 1),
+                         states.get(ply - 1), state(b));
+        }
+        for (int i = 0; i < 200; i++) {
+            int ply = rand.nextInt(len + 1);
+            b.goTo(ply);
+            assertEquals("bad goto " + ply, states.get(ply), state(b));
+        }
+        b.goTo(len);
+        assertEquals("bad goto end", states.get(len), state(b));
+        assertEquals("wrong winner after goto", b.getWinner(),
+                     new Board(b).getWinner());
+
+        b.goTo(len / 2);
+        b.undo();
+        Move redo = b.allMoves().get(0);
+        b.goTo(len / 2);
+        b.goTo(0);
+        b.makeMove(redo);
+        assertEquals("same move discarded line", len, b.lineLength());
+        b.undo();
+        Move other = null;
+        for (int id = 0; other == null; id++) {
+            if (id != redo.id() && b.legalMove(Move.move(id))) {
+                other = Move.move(id);
+            }
+        }
+        b.makeMove(other);
+        assertEquals("new move did not end line", 1, b.lineLength());
+        b.undo();
+        assertEquals("bad position after new line", states.get(0),
+                     state(b));
+    }
+
+    @Test
+    public void testCopyHistory() {
+        Random rand = new Random(31);
+        Board b = new Board();
+        for (int i = 0; i < 10; i++) {
+            b.makeMove(randomMove(b, rand));
+        }
+        Board copy = new Board(b);
+        String start = copy.position();
+        List<String> states = playLongGame(copy, rand);
+        int len = states.size() - 1;
+        assertEquals("wrong start position of copy", start,
+                     copy.startPosition());
+        copy.goTo(0);
+        assertEquals("bad goto start of copy", start, copy.position());
+        int ply = len / 3;
+        copy.goTo(ply);
+        Move made = copy.allMoves().get(ply - 1);
+        copy.undo();
+        Move other = randomMove(copy, rand);
+        while (other == made) {
+            other = randomMove(copy, rand);
+        }
+        copy.makeMove(other);
+        String changed = state(copy);
+        assertEquals("new move did not end line", ply, copy.lineLength());
+        copy.goTo(0);
+        copy.goTo(ply - 1);
+        assertEquals("bad goto before a new line", states.get(ply - 1),
+                     state(copy));
+        copy.goTo(ply);
+        assertEquals("bad goto to end of a new line", changed, state(copy));
+    }
+
+    @Test
+    public void testPosition() {
+        Board b = new Board();
+        assertEquals("bad initial position", "r5b/7/7/7/7/7/b5r r 0",
+                     b.position());
+        b.setBlock('c', '3');
+        b.makeMove('a', '7', 'a', '5');
+        assertEquals("bad position", "6b/7/r1x1x2/7/2x1x2/7/b5r b 1",
+                     b.position());
+
+        Random rand = new Random(31);
+        Board c = new Board();
+        StringBuilder buf = new StringBuilder(Board.MAX_POSITION_LENGTH);
+        b = new Board();
+        while (true) {
+            buf.setLength(0);
+            b.position(buf);
+            c.setPosition(buf);
+            assertEquals("position did not round-trip", b, c);
+            assertEquals("wrong side to move", b.whoseMove(),
+                         c.whoseMove());
+            assertEquals("wrong jump count", b.numJumps(), c.numJumps());
+            assertEquals("wrong red count", b.redPieces(), c.redPieces());
+            assertEquals("wrong blue count", b.bluePieces(),
+                         c.bluePieces());
+            assertEquals("wrong mobility", b.mobility(RED),
+                         c.mobility(RED));
+            assertEquals("wrong winner", b.getWinner(), c.getWinner());
+            assertEquals("position not rendered again", buf.toString(),
+                         c.position());
+            if (b.getWinner() != null) {
+                break;
+            }
+            List<Move> moves = legalMoves(b);
+            b.makeMove(moves.get(rand.nextInt(moves.size())));
+        }
+    }
+
+    @Test
+    public void testBadPosition() {
+        Board b = new Board();
+        String[] bad = {
+            "", "r5b/7/7/7/7/7 r 0", "r5b/7/7/7/7/7/b5r", "r5b/7/7/7/7/7/b5r r",
+            "r6b/7/7/7/7/7/b5r r 0", "r5q/7/7/7/7/7/b5r r 0",
+            "r5b/7/7/7/7/7/b5r g 0", "r5b/7/7/7/7/7/b5r r 99",
+        };
+        for (String pos : bad) {
+            try {
+                b.setPosition(pos);
+                fail("accepted bad position: " + pos);
+            } catch (GameException excp) {
+                assertEquals("bad position changed board",
+                             "r5b/7/7/7/7/7/b5r r 0", b.position());
+            }
+        }
+    }
+
+    /** A BoardListener that keeps a copy of the contents of the real
+     *  board from the changes it receives. */
+    private static class Mirror implements BoardListener {
+        @Override
+        public synchronized void boardChanged(BoardChange change) {
+            for (int k = 0; k < change.numChanged(); k++) {
+                _contents[change.square(k)] = change.contents(k);
+            }
+            _ply = change.ply();
+            _whoseMove = change.whoseMove();
+            _changes++;
+            if (_delay > 0) {
+                try {
+                    Thread.sleep(_delay);
+                } catch (InterruptedException excp) {
+                    return;
+                }
+            }
+            notifyAll();
+        }
+
+        /** Return true iff I agree with B. */
+        synchronized boolean matches(Board b) {
+            for (int sq : Move.SQUARES) {
+                if (_contents[sq] != b.get(sq)) {
+                    return false;
+                }
+            }
+            return _ply == b.numMoves() && _whoseMove == b.whoseMove();
+        }
+
+        /** Wait until I agree with B, for at most a second. */
+        synchronized boolean await(Board b) throws InterruptedException {
+            long end = System.currentTimeMillis() + 1000;
+            while (!matches(b) && System.currentTimeMillis() < end) {
+                wait(10);
+            }
+            return matches(b);
+        }
+
+        PieceColor[] _contents = new PieceColor[Board.SIZE];
+        int _ply, _changes;
+        PieceColor _whoseMove;
+        long _delay;
+    }
+
+    @Test
+    public void testListeners() throws InterruptedException {
+        Board b = new Board();
+        Mirror sync1 = new Mirror(), sync2 = new Mirror(),
+            slow = new Mirror();
+        slow._delay = 50;
+        b.subscribe(sync1, false);
+        b.subscribe(sync2, false);
+        b.subscribe(slow, true);
+        assertTrue("initial state not delivered", sync1.matches(b));
+        b.setBlock('c', '3');
+        assertTrue("block not delivered", sync1.matches(b));
+
+        long start = System.currentTimeMillis();
+        List<String> states =
+            playLongGame(b, new Random(32));
+        for (int i = 0; i < 50; i++) {
+            b.undo();
+            assertTrue("undo not delivered", sync2.matches(b));
+        }
+        b.goTo(3);
+        assertTrue("goto not delivered", sync2.matches(b));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("sync listener missed changes", sync1.matches(b));
+        assertTrue("slow listener stalled play",
+                   elapsed < slow._delay * states.size() / 2);
+        assertTrue("slow listener never caught up", slow.await(b));
+        assertTrue("slow listener changes not coalesced",
+                   slow._changes < states.size());
+
+        b.unsubscribe(sync1);
+        b.goTo(4);
+        assertTrue("remaining listener not notified", sync2.matches(b));
+        assertEquals("unsubscribed listener notified", 3, sync1._ply);
+    }
+
+    @Test
+    public void testSizes() {
+        Random rand = new Random(57);
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side++) {
+            Board b = new Board(side);
+            Geometry g = b.geometry();
+            char lastCol = g.lastCol(), lastRow = g.lastRow();
+            assertEquals(side, b.side());
+            assertEquals(RED, b.get('a', lastRow));
+            assertEquals(BLUE, b.get(lastCol, lastRow));
+            assertEquals(BLOCKED, b.get((char) (lastCol + 1), '1'));
+            b.setBlock('b', '2');
+            assertEquals(BLOCKED, b.get((char) (lastCol - 1),
+                                         (char) (lastRow - 1)));
+            String start = b.position();
+            assertFalse("standard move legal on " + g,
+                        side != Board.SIDE && b.legalMove(Move.move("a7-a6")));
+            Board copy = new Board();
+            while (b.getWinner() == null) {
+                List<Move> moves = AI.possibleMoves(b);
+                int legal = 0;
+                for (int id = 0; id <= g.passId(); id++) {
+                    if (b.legalMove(g.move(id))) {
+                        legal++;
+                    }
+                }
+                assertEquals("wrong move count on " + g, moves.size(), legal);
+                b.makeMove(moves.get(rand.nextInt(moves.size())));
+                copy.setPosition(b.position());
+                assertEquals(side, copy.side());
+                assertEquals(b.position(), copy.position());
+                assertEquals(b.redPieces(), copy.redPieces());
+                assertEquals(b.mobility(BLUE), copy.mobility(BLUE));
+            }
+            assertEquals(start, b.startPosition());
+            b.goTo(0);
+            assertEquals(start, b.position());
+        }
+    }
+
+    /** Return BOARD after up to PLIES random moves chosen using RAND,
+     *  stopping early if the game ends. */
+    static Board randomPlay(Board board, Random rand, int plies) {
+        for (int k = 0; k < plies && board.getWinner() == null; k += 1) {
+            board.makeMove(randomMove(board, rand));
+        }
+        return board;
+    }
+
+    /** Return a move chosen using RAND from AI.possibleMoves(BOARD). */
+    static Move randomMove(Board board, Random rand) {
+        List<Move> moves = AI.possibleMoves(board);
+        return moves.get(rand.nextInt(moves.size()));
+    }
+
+    private static final String[] PASSMOVES = {
+        "a7-c5", "g7-f6", "c5-d3", "f6-e5", "d3-e3", "e5-g4",
+        "g1-f2", "f6-f4", "g1-e1", "e3-d2", "f2-g1", "f4-g3"
+    };
+
     private static final String[] GAME1 = {
         "a7-b7", "a1-a2",
         "a7-a6", "a2-a3",
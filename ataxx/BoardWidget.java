@@ -9,18 +9,34 @@ import ucb.gui2.Pad;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.BasicStroke;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 
 import java.awt.event.MouseEvent;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Arrays;
+
+import javax.swing.Timer;
 
 import static ataxx.PieceColor.*;
 import static ataxx.Utils.*;
 
 /** Widget for displaying an Ataxx board.
+ *
+ *  The widget follows its board as an asynchronous BoardListener, keeping
+ *  its own copy of the squares' contents and noting which squares have
+ *  changed since the last frame.  It keeps two images: the empty grid,
+ *  drawn once, and the grid with the current pieces and blocks.  A frame
+ *  redraws only the changed squares of the second image (from the first)
+ *  and then copies it to the screen.  Repaints are requested at most once
+ *  per display refresh, so a fast AI-vs-AI game costs a bounded amount of
+ *  drawing however quickly it moves.
  *  @author Ezra Apple
  */
-class BoardWidget extends Pad  {
+class BoardWidget extends Pad implements BoardListener {
 
     /** Length of side of one square, in pixels. */
     static final int SQDIM = 50;
@@ -30,6 +46,9 @@ class BoardWidget extends Pad  {
     static final int PIECE_RADIUS = 15;
     /** Dimension of a block. */
     static final int BLOCK_WIDTH = 40;
+    /** Display refresh rate assumed when it cannot be determined, in
+     *  frames per second. */
+    static final int DEFAULT_REFRESH_RATE = 60;
 
     /** Color of red pieces. */
     private static final Color RED_COLOR = Color.RED;
@@ -51,15 +70,36 @@ class BoardWidget extends Pad  {
 
     /** A new widget sending commands resulting from mouse clicks
      *  to COMMANDQUEUE. */
-    BoardWidget(ArrayBlockingQueue<String> commandQueue) {
+    BoardWidget(QueuedSource commandQueue) {
         _commandQueue = commandQueue;
         setMouseHandler("click", this::handleClick);
         _dim = SQDIM * SIDE;
         _blockMode = false;
+        Arrays.fill(_contents, EMPTY);
+        _frameMillis = 1000 / refreshRate();
+        _frameTimer = new Timer(_frameMillis, (e) -> repaint());
+        _frameTimer.setRepeats(false);
         setPreferredSize(_dim, _dim);
         setMinimumSize(_dim, _dim);
     }
 
+    /** Return the refresh rate of the default screen, in frames per
+     *  second, or DEFAULT_REFRESH_RATE if unknown. */
+    private static int refreshRate() {
+        try {
+            DisplayMode mode =
+                GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode();
+            int rate = mode.getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return rate;
+            }
+        } catch (HeadlessException excp) {
+            /* Fall through to default. */
+        }
+        return DEFAULT_REFRESH_RATE;
+    }
+
     /** Indicate that SQ (of the form CR) is selected, or that none is
      *  selected if SQ is null. */
     void selectSquare(String sq) {
@@ -69,17 +109,92 @@ class BoardWidget extends Pad  {
             _selectedCol = sq.charAt(0);
             _selectedRow = sq.charAt(1);
         }
-        repaint();
+        requestFrame();
     }
 
     @Override
     public synchronized void paintComponent(Graphics2D g) {
+        _framePending = false;
+        _lastFrame = System.currentTimeMillis();
+        if (_pieces == null) {
+            _background = new BufferedImage(_dim, _dim,
+                                             BufferedImage.TYPE_INT_RGB);
+            drawGrid(_background.createGraphics());
+            _pieces = new BufferedImage(_dim, _dim,
+                                        BufferedImage.TYPE_INT_RGB);
+            _dirty = ALL_SQUARES;
+        }
+        if (_dirty != 0) {
+            Graphics2D layer = _pieces.createGraphics();
+            layer.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                   RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int slot = 0; slot < SIDE * SIDE; slot += 1) {
+                if ((_dirty & (1L << slot)) != 0) {
+                    drawSquare(layer, slot);
+                }
+            }
+            layer.dispose();
+            _dirty = 0;
+        }
+        g.drawImage(_pieces, 0, 0, null);
+        if (_selectedCol != 0) {
+            int x = (_selectedCol - 'a') * SQDIM,
+                y = ('1' + SIDE - 1 - _selectedRow) * SQDIM;
+            g.setColor(SELECTED_COLOR);
+            g.setStroke(BLOCK_STROKE);
+            g.drawRect(x + 2, y + 2, SQDIM - 4, SQDIM - 4);
+        }
+    }
+
+    /** Draw the empty grid on G. */
+    private void drawGrid(Graphics2D g) {
         g.setColor(BLANK_COLOR);
         g.fillRect(0, 0, _dim, _dim);
+        g.setColor(LINE_COLOR);
+        g.setStroke(LINE_STROKE);
+        for (int k = 0; k <= SIDE; k += 1) {
+            g.drawLine(0, k * SQDIM, _dim, k * SQDIM);
+            g.drawLine(k * SQDIM, 0, k * SQDIM, _dim);
+        }
+        g.dispose();
+    }
+
+    /** Redraw the square whose position on the real board in the order
+     *  of Move.SQUARES is SLOT on G, from the empty grid and the current
+     *  contents of the square. */
+    private void drawSquare(Graphics2D g, int slot) {
+        int x = (slot / SIDE) * SQDIM,
+            y = (SIDE - 1 - slot % SIDE) * SQDIM;
+        g.drawImage(_background, x, y, x + SQDIM, y + SQDIM,
+                    x, y, x + SQDIM, y + SQDIM, null);
+        int cx = x + SQDIM / 2, cy = y + SQDIM / 2;
+        switch (_contents[slot]) {
+        case RED:
+            drawPiece(g, cx, cy, RED_COLOR);
+            break;
+        case BLUE:
+            drawPiece(g, cx, cy, BLUE_COLOR);
+            break;
+        case BLOCKED:
+            drawBlock(g, cx, cy);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /** Draw a piece of color C centered at (CX, CY) on G. */
+    private void drawPiece(Graphics2D g, int cx, int cy, Color c) {
+        g.setColor(c);
+        g.fillOval(cx - PIECE_RADIUS, cy - PIECE_RADIUS,
+                   2 * PIECE_RADIUS, 2 * PIECE_RADIUS);
     }
 
     /** Draw a block centered at (CX, CY) on G. */
     void drawBlock(Graphics2D g, int cx, int cy) {
+        g.setColor(BLOCK_COLOR);
+        g.fillRect(cx - BLOCK_WIDTH / 2, cy - BLOCK_WIDTH / 2,
+                   BLOCK_WIDTH, BLOCK_WIDTH);
     }
 
     /** Clear selected block, if any, and turn off block mode. */
@@ -103,9 +218,13 @@ class BoardWidget extends Pad  {
             if (mouseCol >= 'a' && mouseCol <= 'g'
                 && mouseRow >= '1' && mouseRow <= '7') {
                 if (_blockMode) {
-                    _commandQueue.offer("block c3");
+                    _commandQueue.offer(fmt("block %c%c", mouseCol,
+                                            mouseRow));
                 } else {
                     if (_selectedCol != 0) {
+                        _commandQueue.offer(fmt("%c%c-%c%c",
+                                                _selectedCol, _selectedRow,
+                                                mouseCol, mouseRow));
                         _selectedCol = _selectedRow = 0;
                     } else {
                         _selectedCol = mouseCol;
@@ -114,19 +233,71 @@ class BoardWidget extends Pad  {
                 }
             }
         }
-        repaint();
+        requestFrame();
+    }
+
+    @Override
+    public synchronized void boardChanged(BoardChange change) {
+        if (change.geometry().side() != SIDE) {
+            return;
+        }
+        for (int k = 0; k < change.numChanged(); k += 1) {
+            int sq = change.square(k);
+            int slot = (Board.numToCol(sq) - 'a') * SIDE
+                + Board.numToRow(sq) - '1';
+            if (_contents[slot] != change.contents(k)) {
+                _contents[slot] = change.contents(k);
+                _dirty |= 1L << slot;
+            }
+        }
+        if (_dirty != 0) {
+            requestFrame();
+        }
     }
 
-    public synchronized void update(Board board) {
-        _model = new Board(board);
-        repaint();
+    /** Arrange for a repaint, unless one is already pending, no sooner
+     *  than one frame time after the last. */
+    private synchronized void requestFrame() {
+        if (_framePending) {
+            return;
+        }
+        _framePending = true;
+        long wait = _lastFrame + _frameMillis - System.currentTimeMillis();
+        if (wait <= 0) {
+            repaint();
+        } else {
+            _frameTimer.setInitialDelay((int) wait);
+            _frameTimer.restart();
+        }
     }
 
+    /** Bit mask with one bit for every square. */
+    private static final long ALL_SQUARES = (1L << (SIDE * SIDE)) - 1;
+
     /** Dimension of current drawing surface in pixels. */
     private int _dim;
 
-    /** Model being displayed. */
-    private static Board _model;
+    /** Contents of the squares, in the order of Move.SQUARES, as of the
+     *  latest change received. */
+    private final PieceColor[] _contents = new PieceColor[SIDE * SIDE];
+
+    /** Bit K is set iff square K (in the order of Move.SQUARES) has
+     *  changed since it was last drawn in _pieces. */
+    private long _dirty;
+
+    /** The empty grid. */
+    private BufferedImage _background;
+    /** The grid with pieces and blocks, as of the last frame. */
+    private BufferedImage _pieces;
+
+    /** Minimum time between frames, in milliseconds. */
+    private final int _frameMillis;
+    /** Timer used to delay a frame requested too soon after the last. */
+    private final Timer _frameTimer;
+    /** True iff a repaint has been requested and not yet done. */
+    private boolean _framePending;
+    /** Time at which the last frame was painted. */
+    private long _lastFrame;
 
     /** Coordinates of currently selected square, or '\0' if no selection. */
     private char _selectedCol, _selectedRow;
@@ -135,5 +306,5 @@ class BoardWidget extends Pad  {
     private boolean _blockMode;
 
     /** Destination for commands derived from mouse clicks. */
-    private ArrayBlockingQueue<String> _commandQueue;
+    private QueuedSource _commandQueue;
 }
@@ -0,0 +1,106 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** A pair of game clocks for a time control consisting of a base time
+ *  for each side plus an increment added after each of its moves.  At
+ *  most one side's clock runs at a time.  All times are in
+ *  milliseconds.  Thread-safe, so that players may consult it while
+ *  thinking.
+ *  @author Ezra Apple
+ */
+class Clock {
+
+    /** Clocks starting with BASE for each side, adding INCREMENT after
+     *  each move. */
+    Clock(long base, long increment) {
+        _base = base;
+        _increment = increment;
+        reset();
+    }
+
+    /** Reset both clocks to the base time and stop them. */
+    synchronized void reset() {
+        _remaining[RED.ordinal()] = _remaining[BLUE.ordinal()] = _base;
+        _running = null;
+    }
+
+    /** Return the base time. */
+    long base() {
+        return _base;
+    }
+
+    /** Return the increment. */
+    long increment() {
+        return _increment;
+    }
+
+    /** Start WHO's clock, stopping the other's if it is running. */
+    synchronized void start(PieceColor who) {
+        stop();
+        _running = who;
+        _started = System.currentTimeMillis();
+    }
+
+    /** Stop the running clock, if any, charging its side for the time
+     *  since it was started. */
+    synchronized void stop() {
+        if (_running != null) {
+            _remaining[_running.ordinal()] -=
+                System.currentTimeMillis() - _started;
+            _running = null;
+        }
+    }
+
+    /** Credit WHO with the increment for a completed move. */
+    synchronized void addIncrement(PieceColor who) {
+        _remaining[who.ordinal()] += _increment;
+    }
+
+    /** Return the time WHO has left, including the time used so far on
+     *  a running clock.  This is negative once WHO has run out. */
+    synchronized long remaining(PieceColor who) {
+        long left = _remaining[who.ordinal()];
+        if (who == _running) {
+            left -= System.currentTimeMillis() - _started;
+        }
+        return left;
+    }
+
+    /** Return true iff WHO has run out of time. */
+    boolean flagged(PieceColor who) {
+        return remaining(who) <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Red %s, Blue %s", format(remaining(RED)),
+                             format(remaining(BLUE)));
+    }
+
+    /** Return MILLIS formatted as minutes, seconds and tenths. */
+    static String format(long millis) {
+        if (millis < 0) {
+            return "0:00.0";
+        }
+        long tenths = millis / 100;
+        return String.format("%d:%02d.%d", tenths / 600, tenths / 10 % 60,
+                             tenths % 10);
+    }
+
+    /** Starting time for each side. */
+    private final long _base;
+    /** Time added after each move. */
+    private final long _increment;
+    /** Time remaining for each side, indexed by ordinal, as of the last
+     *  time its clock stopped. */
+    private final long[] _remaining = new long[PieceColor.values().length];
+    /** Side whose clock is running, or null. */
+    private PieceColor _running;
+    /** Time at which the running clock was started. */
+    private long _started;
+}
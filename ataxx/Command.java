@@ -17,8 +17,10 @@ class Command {
 
     /** A list of all commands. */
     private static final String[] COMMAND_NAMES = {
-        "auto", "block", "board", "dump", "help", "manual",
-        "new", "q", "quiet", "quit", "seed", "undo", "verbose",
+        "analyze", "auto", "back", "block", "board", "clock", "dump",
+        "forward", "goto", "help", "manual", "new", "position", "q",
+        "quiet", "quit", "seed", "setup", "size", "time", "undo",
+        "verbose",
     };
 
     /** Command types.  PIECEMOVE indicates a move of the form
@@ -27,17 +29,27 @@ class Command {
      *  programmer writes. */
     enum Type {
         COMMENT("#.*|$"),
-        AUTO("auto\\s+(red|blue)"),
-        BLOCK("block\\s+([a-g][1-7])"),
+        AUTO("auto\\s+(red|blue)(?:\\s+(ai|ai-full|mcts|engine))?"),
+        BLOCK("block\\s+([a-i][1-9])"),
         MANUAL("manual\\s+(red|blue)"),
         SEED("seed\\s+(\\d+)"),
         START,
         /* Regular moves. */
-        PIECEMOVE("(-|[a-g][1-7]-[a-g][1-7])"),
+        PIECEMOVE("(-|[a-i][1-9]-[a-i][1-9])"),
         QUIT("q|quit"),
         NEW, DUMP, HELP,
         /* Extra commands. */
         BOARD, VERBOSE, QUIET, UNDO,
+        GOTO("goto\\s+(\\d+)"),
+        FORWARD("forward(?:\\s+(\\d+))?"),
+        BACK("back(?:\\s+(\\d+))?"),
+        SETUP("setup\\s+([rbx1-9/]+\\s[rb]\\s\\d+)"),
+        SIZE("size\\s+(\\d+)"),
+        POSITION,
+        TIME("time\\s+(\\d+(?:\\.\\d+)?)(?:\\s+(\\d+(?:\\.\\d+)?))?"),
+        ADJUDICATE("adjudicate\\s+(off|\\d+)(?:\\s+(\\d+))?"),
+        CLOCK,
+        ANALYZE("analyze(?:\\s+(\\d+)(?:\\s+(\\d+))?)?"),
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
         ERROR(".*"),
@@ -79,7 +91,8 @@ class Command {
         return _operands;
     }
 
-    /** Parse COMMAND, returning the command and its operands. */
+    /** Parse COMMAND, returning the command and its operands.  Trailing
+     *  optional operands that are not supplied are omitted. */
     static Command parseCommand(String command) {
         if (command == null) {
             return new Command(Type.EOF);
@@ -88,7 +101,11 @@ class Command {
         for (Type type : Type.values()) {
             Matcher mat = type._pattern.matcher(command);
             if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
+                int n = mat.groupCount();
+                while (n > 0 && mat.group(n) == null) {
+                    n -= 1;
+                }
+                String[] operands = new String [n];
                 for (int i = 1; i <= operands.length; i += 1) {
                     operands[i - 1] = mat.group(i);
                 }
@@ -0,0 +1,33 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A flight-recorder event timing the execution of one command (including
+ *  moves) by a Game.  Its duration is the command's latency.
+ *  @author Ezra Apple
+ */
+@Name("ataxx.Command")
+@Label("Game Command")
+@Category({"Ataxx", "Game"})
+@Description("Execution of one command or move by the game loop.")
+@StackTrace(false)
+class CommandEvent extends Event {
+
+    /** Type of command executed. */
+    @Label("Type")
+    String type;
+
+    /** Full command text. */
+    @Label("Command")
+    String command;
+
+}
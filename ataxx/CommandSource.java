@@ -4,6 +4,9 @@
 
 package ataxx;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /** Provides command input, one line at a time.
  *  @author P. N. Hilfinger
  */
@@ -14,4 +17,13 @@ interface CommandSource {
      *  prompts for input, use PROMPT, if not null, to do so. */
     String getCommand(String prompt);
 
+    /** Returns a future that completes with the result of
+     *  getCommand(PROMPT), doing any blocking on EXECUTOR.  By default,
+     *  this runs getCommand as a task on EXECUTOR. */
+    default CompletableFuture<String> requestCommand(String prompt,
+                                                     Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getCommand(prompt),
+                                             executor);
+    }
+
 }
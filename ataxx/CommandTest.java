@@ -33,6 +33,11 @@ public class CommandTest {
     @Test public void testAUTO() {
         check("auto red", AUTO, "red");
         check("auto blue", AUTO, "blue");
+        check("auto red mcts", AUTO, "red", "mcts");
+        check("auto blue ai", AUTO, "blue", "ai");
+        check("auto blue engine", AUTO, "blue", "engine");
+        check("auto red ai-full", AUTO, "red", "ai-full");
+        checkError("auto red alphazero");
         checkError("auto green");
         checkError("auto");
         checkError("auto red foo");
@@ -50,6 +55,70 @@ public class CommandTest {
         checkError("seed 142 foo");
     }
 
+    @Test public void testGOTO() {
+        check("goto 12", GOTO, "12");
+        check("forward", FORWARD);
+        check("forward 3", FORWARD, "3");
+        check("back", BACK);
+        check("back 10", BACK, "10");
+        checkError("goto");
+        checkError("back x");
+    }
+
+    @Test public void testTIME() {
+        check("time 300", TIME, "300");
+        check("time 60 2", TIME, "60", "2");
+        check("time 0", TIME, "0");
+        check("time 3 0.1", TIME, "3", "0.1");
+        check("time 0.5", TIME, "0.5");
+        check("clock", CLOCK);
+        checkError("time");
+        checkError("time 5 x");
+        checkError("time 3 .1");
+        checkError("time 3. 1");
+    }
+
+    @Test public void testADJUDICATE() {
+        check("adjudicate 8 20", ADJUDICATE, "8", "20");
+        check("adjudicate 0", ADJUDICATE, "0");
+        check("adjudicate off", ADJUDICATE, "off");
+        checkError("adjudicate");
+        checkError("adjudicate on");
+    }
+
+    @Test public void testANALYZE() {
+        check("analyze", ANALYZE);
+        check("analyze 5", ANALYZE, "5");
+        check("analyze 2 6", ANALYZE, "2", "6");
+        checkError("analyze x");
+        check("an", ANALYZE);
+        try {
+            Command.parseCommand("a");
+            fail("\"a\" taken as a unique abbreviation");
+        } catch (GameException excp) {
+            assertTrue(excp.getMessage().contains("not a unique prefix"));
+        }
+    }
+
+    @Test public void testSETUP() {
+        check("setup r5b/7/7/7/7/7/b5r r 0", SETUP,
+              "r5b/7/7/7/7/7/b5r r 0");
+        check("setup R5B/7/7/7/7/7/B5R B 12", SETUP,
+              "r5b/7/7/7/7/7/b5r b 12");
+        check("position", POSITION);
+        checkError("setup");
+        checkError("setup r5b/7/7/7/7/7/b5r");
+    }
+
+    @Test public void testSIZE() {
+        check("size 5", SIZE, "5");
+        check("size 9", SIZE, "9");
+        checkError("size");
+        checkError("size x");
+        check("setup r7b/9/9/9/9/9/9/9/b7r r 0", SETUP,
+              "r7b/9/9/9/9/9/9/9/b7r r 0");
+    }
+
     @Test public void testSTART() {
         check("start", START);
         checkError("start foo");
@@ -75,9 +144,10 @@ public class CommandTest {
         checkError("a3b3");
         checkError("a3-b3 foo");
         checkError("3a-3b");
-        checkError("h3-g3");
+        check("h8-i9", PIECEMOVE, "h8-i9");
+        checkError("j3-i3");
         checkError("a0-a1");
-        checkError("a7-a8");
+        checkError("a9-a10");
     }
 
 }
@@ -0,0 +1,361 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ataxx.PieceColor.*;
+import static ataxx.Utils.*;
+
+/** A Player whose moves come from an external Ataxx engine, run as a
+ *  subprocess and driven through its standard input and output using
+ *  the UAI protocol (the Ataxx counterpart of chess's UCI).  Red is
+ *  UAI's 'x' (and "black" in its time controls), blue is 'o', and blocks
+ *  are '-'.  Each move is requested with the starting position of the
+ *  game and Board.allMoves(), followed by "go" with either a fixed move
+ *  time or, under a time control, both clocks.
+ *
+ *  The engine is started when first needed and kept for later moves and
+ *  games until close().  An engine that crashes, fails to answer in
+ *  time, or answers with an illegal move forfeits the game and is
+ *  restarted for the next.  The round-trip time of each move request,
+ *  and of an isready/readyok exchange before it (pure pipe latency), are
+ *  recorded and reported when the engine is closed.
+ *  @author Ezra Apple
+ */
+class ExternalEngine extends Player {
+
+    /** Time per move when there is no time control, in milliseconds. */
+    static final long DEFAULT_MOVE_TIME = 1000;
+    /** Time allowed beyond an engine's budget before it is presumed
+     *  hung, in milliseconds. */
+    static final long GRACE = 1000;
+    /** Time allowed for an engine to start up, in milliseconds. */
+    static final long STARTUP_TIMEOUT = 10000;
+    /** Time allowed for an engine to quit before it is killed, in
+     *  milliseconds. */
+    static final long QUIT_TIMEOUT = 500;
+
+    /** A player of MYCOLOR in GAME using the engine started by the
+     *  command line COMMAND (words separated by whitespace). */
+    ExternalEngine(Game game, PieceColor myColor, String command) {
+        super(game, myColor);
+        _command = command.trim().split("\\s+");
+    }
+
+    @Override
+    boolean isAuto() {
+        return true;
+    }
+
+    @Override
+    String getMove() {
+        if (!getBoard().canMove(myColor())) {
+            return pass();
+        }
+        Main.startTiming();
+        try {
+            return finish(consult(getBoard()), null);
+        } catch (CompletionException excp) {
+            return finish(null, excp);
+        }
+    }
+
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        if (!getBoard().canMove(myColor())) {
+            return CompletableFuture.completedFuture(pass());
+        }
+        Main.startTiming();
+        Board board = getBoard();
+        return CompletableFuture.supplyAsync(() -> consult(board), BACKGROUND)
+            .handleAsync(this::finish, executor);
+    }
+
+    /** Report and return my pass. */
+    private String pass() {
+        game().reportMove(Move.pass(), myColor());
+        return "-";
+    }
+
+    /** Return the engine's move from BOARD, starting the engine if need
+     *  be.  Failures are thrown as CompletionExceptions. */
+    private Move consult(Board board) {
+        try {
+            start();
+            return search(board);
+        } catch (IOException excp) {
+            throw new CompletionException(excp);
+        }
+    }
+
+    /** Finish timing and report MOVE, the engine's reply, and return its
+     *  denotation, or if the engine failed with EXCP instead, forfeit the
+     *  game and return "". */
+    private String finish(Move move, Throwable excp) {
+        Main.endTiming();
+        if (excp != null) {
+            Throwable cause = excp.getCause() != null ? excp.getCause()
+                : excp;
+            kill();
+            game().forfeit(myColor(),
+                           fmt("forfeits (engine %s: %s)", _command[0],
+                               cause.getMessage()));
+            return "";
+        }
+        game().reportMove(move, myColor());
+        return move.toString();
+    }
+
+    @Override
+    void moveNow() {
+        PrintWriter toEngine = _toEngine;
+        if (toEngine != null) {
+            toEngine.println("stop");
+        }
+    }
+
+    @Override
+    void close() {
+        if (_process != null) {
+            _toEngine.println("quit");
+            try {
+                _process.waitFor(QUIT_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException excp) {
+                /* Kill it anyway. */
+            }
+            kill();
+        }
+        if (_moves > 0) {
+            System.err.printf("[engine %s: %d moves, round trip avg %d "
+                              + "max %d msec; ping avg %d usec]%n",
+                              _command[0], _moves,
+                              _moveNanos / _moves / 1000000,
+                              _maxMoveNanos / 1000000,
+                              _pingNanos / _moves / 1000);
+        }
+    }
+
+    /** Start the engine if it is not running, and wait for it to
+     *  acknowledge the protocol. */
+    private void start() throws IOException {
+        if (_process != null && _process.isAlive()) {
+            return;
+        }
+        kill();
+        ProcessBuilder builder = new ProcessBuilder(_command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        _process = builder.start();
+        _toEngine = new PrintWriter(_process.getOutputStream(), true);
+        LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        BufferedReader fromEngine = new BufferedReader(
+            new InputStreamReader(_process.getInputStream()));
+        Thread reader = new Thread(() -> {
+            try {
+                String line;
+                while ((line = fromEngine.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException excp) {
+                /* Treat as end of output. */
+            }
+            lines.add(EOF);
+        }, "engine-reader");
+        reader.setDaemon(true);
+        reader.start();
+        _fromEngine = lines;
+        _toEngine.println("uai");
+        expect("uaiok", STARTUP_TIMEOUT);
+    }
+
+    /** Ask the engine for a move from BOARD and return it. */
+    private Move search(Board board) throws IOException {
+        StringBuilder cmnd = new StringBuilder("position fen ");
+        cmnd.append(toFen(board.startPosition()));
+        List<Move> moves = board.allMoves();
+        if (!moves.isEmpty()) {
+            cmnd.append(" moves");
+            for (Move m : moves) {
+                cmnd.append(' ').append(toUai(m));
+            }
+        }
+        _toEngine.println(cmnd);
+
+        long start = System.nanoTime();
+        _toEngine.println("isready");
+        expect("readyok", STARTUP_TIMEOUT);
+        long ping = System.nanoTime() - start;
+
+        Clock clock = game().clock();
+        long budget;
+        if (clock == null) {
+            budget = DEFAULT_MOVE_TIME;
+            _toEngine.printf("go movetime %d%n", budget);
+        } else {
+            budget = Math.max(0, clock.remaining(myColor()));
+            _toEngine.printf("go btime %d wtime %d binc %d winc %d%n",
+                             Math.max(0, clock.remaining(RED)),
+                             Math.max(0, clock.remaining(BLUE)),
+                             clock.increment(), clock.increment());
+        }
+        start = System.nanoTime();
+        String reply = expect("bestmove", budget + GRACE);
+        long elapsed = System.nanoTime() - start;
+        _moves += 1;
+        _pingNanos += ping;
+        _moveNanos += elapsed;
+        _maxMoveNanos = Math.max(_maxMoveNanos, elapsed);
+
+        String[] words = reply.trim().split("\\s+");
+        Move move = words.length < 2 ? null : fromUai(board, words[1]);
+        if (move == null || !board.legalMove(move)) {
+            throw new IOException("illegal move: " + reply);
+        }
+        return move;
+    }
+
+    /** Return the first line from the engine starting with PREFIX,
+     *  reporting any "info" lines before it as search progress.  Throws
+     *  IOException if the engine stops or if no such line arrives within
+     *  TIMEOUT milliseconds. */
+    private String expect(String prefix, long timeout) throws IOException {
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            while (true) {
+                long wait = deadline - System.currentTimeMillis();
+                String line = _fromEngine.poll(Math.max(wait, 0),
+                                               TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    throw new IOException("no " + prefix + " in time");
+                } else if (line == EOF) {
+                    throw new IOException("engine exited");
+                } else if (line.startsWith(prefix)) {
+                    return line;
+                } else if (line.startsWith("info ")) {
+                    reportInfo(line);
+                }
+            }
+        } catch (InterruptedException excp) {
+            throw new IOException("interrupted");
+        }
+    }
+
+    /** Report the depth, nodes, and principal variation in the UAI
+     *  "info" line INFO as search progress. */
+    private void reportInfo(String info) {
+        String[] words = info.split("\\s+");
+        int depth = 0;
+        long nodes = 0;
+        Move best = null;
+        try {
+            for (int i = 1; i + 1 < words.length; i += 1) {
+                switch (words[i]) {
+                case "depth":
+                    depth = Integer.parseInt(words[i + 1]);
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(words[i + 1]);
+                    break;
+                case "pv":
+                    best = fromUai(getBoard(), words[i + 1]);
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (NumberFormatException excp) {
+            return;
+        }
+        game().reportProgress(myColor(), depth, nodes, best);
+    }
+
+    /** Kill the engine process, if any. */
+    private void kill() {
+        if (_process != null) {
+            _process.destroyForcibly();
+            _process = null;
+            _toEngine = null;
+        }
+    }
+
+    /** Return the UAI FEN for the position POS, given in position
+     *  notation. */
+    static String toFen(String pos) {
+        StringBuilder fen = new StringBuilder(pos.length() + 2);
+        int i;
+        for (i = 0; pos.charAt(i) != ' '; i += 1) {
+            char c = pos.charAt(i);
+            fen.append(c == 'r' ? 'x' : c == 'b' ? 'o' : c == 'x' ? '-' : c);
+        }
+        fen.append(pos.charAt(i + 1) == 'r' ? " x" : " o")
+            .append(pos.substring(i + 2)).append(" 1");
+        return fen.toString();
+    }
+
+    /** Return MOVE in UAI notation: "0000" for a pass, the destination
+     *  alone for an extension, and both squares for a jump. */
+    static String toUai(Move move) {
+        if (move.isPass()) {
+            return "0000";
+        }
+        String s = "" + move.col1() + move.row1();
+        return move.isExtend() ? s : "" + move.col0() + move.row0() + s;
+    }
+
+    /** Return the move by the side to move on BOARD denoted by MOVE in
+     *  UAI notation, or null if it is not a move. */
+    static Move fromUai(Board board, String move) {
+        Geometry geometry = board.geometry();
+        if (move.equals("0000")) {
+            return geometry.pass();
+        } else if (move.length() == 4) {
+            return geometry.move(move.charAt(0), move.charAt(1),
+                                 move.charAt(2), move.charAt(3));
+        } else if (move.length() != 2
+                   || !geometry.onBoard(move.charAt(0), move.charAt(1))) {
+            return null;
+        }
+        int to = geometry.index(move.charAt(0), move.charAt(1));
+        int[] neighbors = geometry.neighbors();
+        for (int k = 0; k < Move.NUM_NEIGHBORS; k += 1) {
+            int from = neighbors[to * Move.NUM_NEIGHBORS + k];
+            if (board.get(from) == board.whoseMove()) {
+                return geometry.move(geometry.numToCol(from),
+                                     geometry.numToRow(from),
+                                     move.charAt(0), move.charAt(1));
+            }
+        }
+        return null;
+    }
+
+    /** Marks the end of the engine's output. */
+    private static final String EOF = new String("<eof>");
+
+    /** Command line that starts the engine. */
+    private final String[] _command;
+    /** The engine process, or null if not running. */
+    private Process _process;
+    /** Writer to the engine's standard input. */
+    private volatile PrintWriter _toEngine;
+    /** Lines of the engine's standard output, ending with EOF. */
+    private LinkedBlockingQueue<String> _fromEngine;
+
+    /** Number of moves requested from the engine. */
+    private int _moves;
+    /** Total and maximum round-trip time of move requests, in
+     *  nanoseconds. */
+    private long _moveNanos, _maxMoveNanos;
+    /** Total round-trip time of the isready/readyok exchanges. */
+    private long _pingNanos;
+}
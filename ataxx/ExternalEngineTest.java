@@ -0,0 +1,171 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Test the UAI notation and protocol used by ExternalEngine.
+ *  @author Ezra Apple
+ */
+public class ExternalEngineTest {
+
+    @Test
+    public void testFen() {
+        assertEquals("x5o/7/7/7/7/7/o5x x 0 1",
+                     ExternalEngine.toFen("r5b/7/7/7/7/7/b5r r 0"));
+        assertEquals("x1-3o/7/2--3/7/7/7/o5x o 13 1",
+                     ExternalEngine.toFen("r1x3b/7/2xx3/7/7/7/b5r b 13"));
+        assertEquals("-xo-/4/4/o2x x 2 1",
+                     ExternalEngine.toFen("xrbx/4/4/b2r r 2"));
+
+        Random rand = new Random(38);
+        for (int k = 0; k < 50; k += 1) {
+            Board b = new Board(5 + k % 5);
+            b.setBlock('b', '2');
+            BoardTest.randomPlay(b, rand, rand.nextInt(30));
+            String pos = b.position();
+            String fen = ExternalEngine.toFen(pos);
+            assertEquals(pos, fromFen(fen));
+        }
+    }
+
+    @Test
+    public void testUai() {
+        Board b = new Board();
+        assertEquals("0000", ExternalEngine.toUai(Move.pass()));
+        assertEquals("b6", ExternalEngine.toUai(Move.move("a7-b6")));
+        assertEquals("a7c5", ExternalEngine.toUai(Move.move("a7-c5")));
+        assertEquals(b.geometry().pass(), ExternalEngine.fromUai(b, "0000"));
+        assertEquals(Move.move("a7-c5"), ExternalEngine.fromUai(b, "a7c5"));
+        assertEquals(Move.move("a7-b6"), ExternalEngine.fromUai(b, "b6"));
+        assertEquals(Move.move("g1-f2"), ExternalEngine.fromUai(b, "f2"));
+        b.makeMove("a7-b6");
+        assertEquals(Move.move("g7-f6"), ExternalEngine.fromUai(b, "f6"));
+
+        for (String bad : new String[] { "", "b", "d4", "a8", "h1", "z9",
+                                         "b6x", "a7c", "a7z5", "zzzz",
+                                         "a7a7", "a7d7", "bestmove" }) {
+            Move move = ExternalEngine.fromUai(b, bad);
+            assertTrue("accepted " + bad,
+                       move == null || !b.legalMove(move));
+        }
+
+        Random rand = new Random(380);
+        for (int k = 0; k < 50; k += 1) {
+            b = new Board(5 + k % 5);
+            BoardTest.randomPlay(b, rand, rand.nextInt(40));
+            for (Move move : AI.possibleMoves(b)) {
+                Move back = ExternalEngine.fromUai(b,
+                                                   ExternalEngine.toUai(move));
+                assertTrue(b.legalMove(back));
+                if (move.isExtend()) {
+                    assertTrue(back.isExtend());
+                    assertEquals(move.col1(), back.col1());
+                    assertEquals(move.row1(), back.row1());
+                } else {
+                    assertEquals(move, back);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testForfeitAndRestart() throws IOException {
+        File script = File.createTempFile("engine", ".sh");
+        script.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(script)) {
+            out.println(FAKE_ENGINE);
+        }
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errors, true));
+        try {
+            for (String mode : new String[] { "illegal", "silent", "exit" }) {
+                File starts = File.createTempFile("engine", ".log");
+                starts.deleteOnExit();
+                Game game = GameTest.newGame((prompt) -> null);
+                ExternalEngine engine =
+                    new ExternalEngine(game, RED,
+                                       String.format("sh %s %s %s", script,
+                                                     mode, starts));
+                long start = System.currentTimeMillis();
+                assertEquals(mode, "", engine.getMove());
+                assertEquals(mode, BLUE, game.winner());
+                if (mode.equals("silent")) {
+                    assertTrue(System.currentTimeMillis() - start
+                               >= ExternalEngine.DEFAULT_MOVE_TIME);
+                }
+
+                game.clear();
+                assertEquals(mode, "a7-b6", engine.getMove());
+                assertNull(mode, game.winner());
+                assertEquals(mode, "g1-f2", engine.getMove());
+                assertEquals(mode, 2,
+                             Files.readAllLines(starts.toPath()).size());
+                engine.close();
+            }
+        } finally {
+            System.setErr(STDERR);
+        }
+        String report = errors.toString();
+        assertTrue(report, report.contains("[engine sh: 3 moves"));
+        assertTrue(report, report.contains("[engine sh: 2 moves"));
+    }
+
+    /** Return the position, in position notation, given by the UAI FEN
+     *  FEN. */
+    private static String fromFen(String fen) {
+        StringBuilder pos = new StringBuilder();
+        int i;
+        for (i = 0; fen.charAt(i) != ' '; i += 1) {
+            char c = fen.charAt(i);
+            pos.append(c == 'x' ? 'r' : c == 'o' ? 'b' : c == '-' ? 'x' : c);
+        }
+        assertTrue(fen.endsWith(" 1"));
+        return pos.append(fen.charAt(i + 1) == 'x' ? " r" : " b")
+            .append(fen, i + 2, fen.length() - 2).toString();
+    }
+
+    /** A shell script acting as a UAI engine, run with a mode and the
+     *  name of a file to which it adds a line each time it starts.  The
+     *  first time, it fails as the mode says: replying with a bad move
+     *  ("illegal"), not replying ("silent"), or exiting ("exit").  After
+     *  that it plays the extensions to b6 and f2, in that order. */
+    private static final String FAKE_ENGINE =
+        "echo start >> \"$2\"\n"
+        + "first=$(wc -l < \"$2\")\n"
+        + "moves='b6 f2'\n"
+        + "while read cmnd rest; do\n"
+        + "  case $cmnd in\n"
+        + "  uai) echo uaiok ;;\n"
+        + "  isready) echo readyok ;;\n"
+        + "  quit) exit 0 ;;\n"
+        + "  go)\n"
+        + "    if [ $first -eq 1 ]; then\n"
+        + "      case $1 in\n"
+        + "      illegal) echo 'info depth 1 nodes 5 pv b6';"
+        + " echo 'bestmove a9' ;;\n"
+        + "      exit) exit 1 ;;\n"
+        + "      esac\n"
+        + "    else\n"
+        + "      set -- $moves; echo \"bestmove $1\"; shift;"
+        + " moves=\"$*\"\n"
+        + "    fi ;;\n"
+        + "  esac\n"
+        + "done";
+
+    /** The standard error when the tests began. */
+    private static final PrintStream STDERR = System.err;
+}
@@ -7,7 +7,8 @@ package ataxx;
 import ucb.gui2.TopLevel;
 import ucb.gui2.LayoutSpec;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import java.io.InputStream;
 import java.io.BufferedReader;
@@ -55,6 +56,10 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
                            false, this::adjustBlockMode);
         addMenuRadioButton("Game->Blocks->Move Pieces", "Blocks",
                            true, this::adjustBlockMode);
+        addMenuButton("Game->Review->Start", (dummy) -> send("goto 0"));
+        addMenuButton("Game->Review->Back", (dummy) -> send("back"));
+        addMenuButton("Game->Review->Forward", (dummy) -> send("forward"));
+        addMenuButton("Game->Review->End", this::goToEnd);
         addMenuButton("Game->Quit", this::quit);
         addMenuButton("Options->Seed...", this::setSeed);
         addMenuRadioButton("Options->Players->Red AI", "Red",
@@ -75,6 +80,23 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
         addLabel("Red to move", "State",
                  new LayoutSpec("y", 1, "anchor", "west"));
         addButton("Pass", this::doPass, new LayoutSpec("y", "1"));
+        addButton("Move Now", this::doMoveNow, new LayoutSpec("y", "1"));
+        addLabel("", "Search",
+                 new LayoutSpec("y", 2, "width", "REMAINDER",
+                                "anchor", "west"));
+    }
+
+    /** Use MOVENOW to ask a thinking AI to move at once.  Commands in the
+     *  queue are not read while an AI thinks, so this bypasses it. */
+    void setMoveNow(Runnable moveNow) {
+        _moveNow = moveNow;
+    }
+
+    /** Execute the "Move Now" button function. */
+    private void doMoveNow(String unused) {
+        if (_moveNow != null) {
+            _moveNow.run();
+        }
     }
 
     /** Execute the "Quit" button function. */
@@ -90,6 +112,13 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
         _widget.setBlockMode(false);
     }
 
+    /** Go to the last position of the current game. */
+    private synchronized void goToEnd(String unused) {
+        if (_board != null) {
+            send("goto %d", _board.lineLength());
+        }
+    }
+
     /** Execute Seed... command. */
     private synchronized void setSeed(String unused) {
         String resp =
@@ -144,6 +173,15 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
     public void announceMove(Move move, PieceColor player) {
     }
 
+    @Override
+    public void searchProgress(PieceColor player, int depth, long nodes,
+                               Move best) {
+        setLabel("Search",
+                 String.format("%s thinking: depth %d, %d nodes, best %s",
+                               player, depth, nodes,
+                               best == null ? "-" : best));
+    }
+
     @Override
     public void msg(String format, Object... args) {
         showMessage(String.format(format, args), "Message", "information");
@@ -151,20 +189,27 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
 
     @Override
     public void update(Board board) {
-        if (board == _board) {
-            updateLabel();
+        if (board != _board) {
+            board.subscribe(_widget, true);
         }
         _board = board;
-        _widget.update(board);
+        updateLabel();
+    }
+
+    @Override
+    public boolean canShow(int side) {
+        return side == BoardWidget.SIDE;
     }
 
     @Override
     public String getCommand(String ignored) {
-        try {
-            return _commandQueue.take();
-        } catch (InterruptedException excp) {
-            throw new Error("unexpected interrupt");
-        }
+        return _commandQueue.getCommand(ignored);
+    }
+
+    @Override
+    public CompletableFuture<String> requestCommand(String prompt,
+                                                    Executor executor) {
+        return _commandQueue.requestCommand(prompt, executor);
     }
 
     /** Return true iff we are currently in block-setting mode. */
@@ -209,8 +254,9 @@ class GUI extends TopLevel implements View, CommandSource, Reporter {
     /** Contains the drawing logic for the Ataxx model. */
     private BoardWidget _widget;
     /** Queue for commands going to the controlling Game. */
-    private final ArrayBlockingQueue<String> _commandQueue =
-        new ArrayBlockingQueue<>(5);
+    private final QueuedSource _commandQueue = new QueuedSource();
     /** The model of the game. */
     private Board _board;
+    /** Action that asks a thinking AI to move at once, or null. */
+    private volatile Runnable _moveNow;
 }
@@ -4,6 +4,12 @@
 
 package ataxx;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
 import static ataxx.PieceColor.*;
 import static ataxx.GameException.error;
 import static ataxx.Utils.*;
@@ -29,7 +35,7 @@ class Game {
         _seed = (long) (Math.random() * Long.MAX_VALUE);
 
         _board = new Board();
-        _board.setNotifier((b) -> _view.update(b));
+        _board.subscribe((change) -> _view.update(_board), false);
     }
 
     /** Returns the game board.  This board is not intended to be modified
@@ -40,40 +46,276 @@ class Game {
 
     /** Return true iff the current game is not over. */
     boolean gameInProgress() {
-        return _board.getWinner() == null;
+        return winner() == null;
+    }
+
+    /** Return the winner of the current game (EMPTY for a draw), or null
+     *  if it is not over.  A side that runs out of time or forfeits
+     *  loses. */
+    PieceColor winner() {
+        if (_forfeited != null) {
+            return _forfeited.opposite();
+        }
+        return _board.getWinner();
+    }
+
+    /** Adjudicate games from now on: when one side cannot move and the
+     *  other can, play out the game with the blocked side passing and the
+     *  other extending into the empty squares; and if PLIES > 0, end the
+     *  game once one side has led by at least MARGIN pieces for PLIES
+     *  plies in a row, with the side behind resigning.  If PLIES < 0, do
+     *  not adjudicate. */
+    void setAdjudication(int plies, int margin) {
+        _adjudicate = plies >= 0;
+        _resignPlies = plies;
+        _resignMargin = margin;
+        _lopsidedPlies = 0;
+    }
+
+    /** Return how the current or last game was adjudicated: "fill" if
+     *  it was played out by filling the board, "resign" if a side
+     *  resigned, or "play" if it was not adjudicated. */
+    String adjudication() {
+        return _adjudication;
+    }
+
+    /** Make PLAYER lose the current game, for the reason REASON (a verb
+     *  phrase, such as "is out of time"). */
+    void forfeit(PieceColor player, String reason) {
+        _forfeited = player;
+        _forfeitReason = reason;
+    }
+
+    /** Return the clocks for the current time control, or null if play
+     *  is untimed. */
+    Clock clock() {
+        return _clock;
+    }
+
+    /** Play under a time control of BASE milliseconds per side plus
+     *  INCREMENT milliseconds per move, resetting both clocks, or untimed
+     *  if BASE is 0. */
+    void setTimeControl(long base, long increment) {
+        _forfeited = null;
+        if (base == 0) {
+            _clock = null;
+        } else {
+            _clock = new Clock(base, increment);
+        }
+    }
+
+    /** Return the number of milliseconds in SECONDS, a numeral that may
+     *  have a fractional part, rounded to the nearest millisecond. */
+    private static long toMillis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+
+    /** Stop the clock of MOVER, who was to move when the board had had
+     *  MOVES moves made, after MOVER's player has supplied a move or
+     *  command.  MOVER loses if out of time, and otherwise earns the
+     *  increment if the command was a move. */
+    private void stopClock(PieceColor mover, int moves) {
+        if (_clock == null) {
+            return;
+        }
+        _clock.stop();
+        if (_forfeited != null) {
+            return;
+        } else if (_clock.flagged(mover)) {
+            forfeit(mover, "is out of time");
+        } else if (_board.numMoves() > moves) {
+            _clock.addIncrement(mover);
+        }
     }
 
     /** Play a session of Ataxx.  This may include multiple games,
      *  and proceeds until the user exits.  Returns an exit code: 0 is
-     *  normal; any positive quantity indicates an error.  */
+     *  normal; any positive quantity indicates an error.  The session
+     *  is run by playAsync, with each step run in turn on this
+     *  thread. */
     int play() {
-        boolean winnerAnnounced;
+        LinkedBlockingQueue<Runnable> steps = new LinkedBlockingQueue<>();
+        CompletableFuture<Integer> done = playAsync(steps::add);
+        try {
+            while (!done.isDone()) {
+                steps.take().run();
+            }
+            return done.join();
+        } catch (InterruptedException excp) {
+            return 1;
+        } catch (CompletionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new Error(excp.getCause());
+        }
+    }
 
+    /** Start a session of Ataxx as for play(), returning a future that
+     *  completes with its exit code.  Rather than waiting for each move
+     *  or command, the session asks the player or command source for a
+     *  future, and proceeds when it completes, running the next step on
+     *  EXECUTOR.  Thus many games may share a few threads: no thread is
+     *  tied up by a game that is waiting. */
+    CompletableFuture<Integer> playAsync(Executor executor) {
         System.out.println("Welcome to " + Defaults.VERSION);
         _board.clear();
+        _lopsidedPlies = 0;
+        _adjudication = "play";
         setManual(RED);
         setAuto(BLUE);
         _exit = -1;
-        winnerAnnounced = false;
-        while (_exit < 0) {
-            String cmnd;
-            if (_board.getWinner() == null) {
-                winnerAnnounced = false;
+        _winnerAnnounced = false;
+        _executor = executor;
+        _done = new CompletableFuture<>();
+        _mover = null;
+        advance(null, null);
+        return _done;
+    }
+
+    /** Respond to CMND, the result of the last request (null if none),
+     *  or to its failure EXCP, and then carry out further steps of the
+     *  session, each a request for a move or command followed by the
+     *  response to it.  Stops when a request is still pending, whose
+     *  completion then resumes the session, or when the session ends. */
+    private void advance(String cmnd, Throwable excp) {
+        try {
+            while (respond(cmnd, excp) && _exit < 0) {
+                CompletableFuture<String> request = request();
+                if (!request.isDone()) {
+                    request.whenCompleteAsync(this::advance, _executor);
+                    return;
+                }
                 try {
-                    String x = getPlayer(_board.whoseMove()).getMove();
-                    executeCommand(x);
-                } catch (GameException e) {
-                    reportError(e.getMessage());
+                    cmnd = request.join();
+                    excp = null;
+                } catch (CompletionException e) {
+                    cmnd = null;
+                    excp = e;
+                }
+            }
+            if (_exit >= 0) {
+                for (Player player : _players) {
+                    if (player != null) {
+                        player.close();
+                    }
+                }
+                _done.complete(_exit);
+            }
+        } catch (RuntimeException | Error e) {
+            _done.completeExceptionally(e);
+        }
+    }
+
+    /** Return a future move or command: the move of the player to move
+     *  if a game is in progress (starting the mover's clock), and
+     *  otherwise a command from my source, after announcing the result
+     *  of the game just finished. */
+    private CompletableFuture<String> request() {
+        if (gameInProgress()) {
+            _winnerAnnounced = false;
+            _mover = _board.whoseMove();
+            _moverMoves = _board.numMoves();
+            if (_clock != null) {
+                _clock.start(_mover);
+            }
+            _thinking = getPlayer(_mover);
+            return _thinking.requestMove(_executor);
+        } else {
+            _mover = null;
+            if (!_winnerAnnounced) {
+                if (_forfeited != null) {
+                    _reporter.msg("* %s %s.", _forfeited, _forfeitReason);
+                }
+                _reporter.announceWin(winner());
+                _winnerAnnounced = true;
+            }
+            return requestCommand("-> ", _executor);
+        }
+    }
+
+    /** Execute CMND, the result of the last request, if not null, or
+     *  report EXCP if the request failed instead, then stop the mover's
+     *  clock, if any.  Returns true if the session may continue, and
+     *  false if it has failed, completing _done exceptionally. */
+    private boolean respond(String cmnd, Throwable excp) {
+        _thinking = null;
+        Throwable cause = excp;
+        while (cause instanceof CompletionException
+               && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        try {
+            if (cause instanceof GameException) {
+                reportError(cause.getMessage());
+            } else if (cause != null) {
+                _done.completeExceptionally(cause);
+                return false;
+            } else if (cmnd != null) {
+                executeCommand(cmnd);
+            }
+        } catch (GameException e) {
+            reportError(e.getMessage());
+        }
+        if (_mover != null) {
+            stopClock(_mover, _moverMoves);
+            if (_board.numMoves() > _moverMoves) {
+                adjudicate();
+            }
+        }
+        return true;
+    }
+
+    /** Adjudicate the current game after a move, if adjudicating and the
+     *  game is not over (see setAdjudication). */
+    private void adjudicate() {
+        if (!_adjudicate || !gameInProgress()) {
+            return;
+        }
+        if (_board.canMove(RED) != _board.canMove(BLUE)) {
+            fill(_board.canMove(RED) ? BLUE : RED);
+            if (!gameInProgress()) {
+                return;
+            }
+        }
+        int margin = _board.redPieces() - _board.bluePieces();
+        if (_resignPlies == 0 || Math.abs(margin) < _resignMargin) {
+            _lopsidedPlies = 0;
+        } else {
+            _lopsidedPlies += 1;
+            if (_lopsidedPlies >= _resignPlies) {
+                _adjudication = "resign";
+                forfeit(margin > 0 ? BLUE : RED, "resigns");
+            }
+        }
+    }
+
+    /** Play out the current game with BLOCKED, which cannot move,
+     *  passing and its opponent making its first extend in the order of
+     *  AI.possibleMoves, until the game ends or the opponent has no
+     *  extend.  BLOCKED cannot move again as long as its opponent only
+     *  extends, since it has no empty square within reach. */
+    private void fill(PieceColor blocked) {
+        while (gameInProgress()) {
+            PieceColor mover = _board.whoseMove();
+            Move move = null;
+            if (mover == blocked) {
+                move = _board.geometry().pass();
+            } else {
+                for (Move m : AI.possibleMoves(_board)) {
+                    if (m.isExtend()) {
+                        move = m;
+                        break;
+                    }
                 }
-            } else if (!gameInProgress()) {
-                if (!winnerAnnounced) {
-                    _reporter.announceWin(_board.getWinner());
-                    winnerAnnounced = true;
+                if (move == null) {
+                    return;
                 }
-                executeCommand(getCommand("-> "));
             }
+            _board.makeMove(move);
+            _adjudication = "fill";
+            reportMove(move, mover);
         }
-        return _exit;
     }
 
     /** Return a suggested prompt for command input. */
@@ -85,6 +327,14 @@ class Game {
         }
     }
 
+    /** Return a future command from the current source, using PROMPT as
+     *  a prompt, if needed, and doing any blocking on EXECUTOR. */
+    CompletableFuture<String> requestCommand(String prompt,
+                                             Executor executor) {
+        return _inp.requestCommand(prompt, executor)
+            .thenApply((cmnd) -> cmnd == null ? "quit" : cmnd);
+    }
+
     /** Return a command from the current source, using PROMPT as a
      *  prompt, if needed. */
     String getCommand(String prompt) {
@@ -98,7 +348,7 @@ class Game {
 
     /** Perform the move denoted by MOVESTR, which must be legal. */
     void makeMove(String moveStr) {
-        Move move = Move.move(moveStr);
+        Move move = _board.geometry().move(moveStr);
         if (_board.legalMove(move)) {
             _board.makeMove(move);
         } else {
@@ -122,6 +372,40 @@ class Game {
         _board.setBlock(place.charAt(0), place.charAt(1));
     }
 
+    /** Set the board to POS, given in position notation (see
+     *  Board.setPosition), with no moves made. */
+    void setup(String pos) {
+        checkSize(Board.positionSide(pos));
+        _board.setPosition(pos);
+        if (_verbose) {
+            printBoard();
+        }
+    }
+
+    /** Change the board to one SIDE squares on a side in the initial
+     *  position, unless it is that size already. */
+    void setSize(int side) {
+        if (_board.numMoves() > 0) {
+            throw error("size-setting must precede first move.");
+        }
+        checkSize(side);
+        _board.setSize(side);
+        if (_verbose) {
+            printBoard();
+        }
+    }
+
+    /** Check that a board SIDE squares on a side is supported and that
+     *  my view can show it. */
+    private void checkSize(int side) {
+        if (side < Geometry.MIN_SIDE || side > Geometry.MAX_SIDE) {
+            throw error("board size must be from %d to %d",
+                        Geometry.MIN_SIDE, Geometry.MAX_SIDE);
+        } else if (!_view.canShow(side)) {
+            throw error("this display cannot show %dx%d boards", side, side);
+        }
+    }
+
     /** Undo the last move, and also the previous one, if that player is
      *  automatic. */
     void undo() {
@@ -134,11 +418,49 @@ class Game {
         }
     }
 
+    /** Set the board to its position after the first PLY moves of the
+     *  current game, including moves that have been undone or skipped
+     *  over and not since replaced. */
+    void goTo(int ply) {
+        _board.goTo(ply);
+        if (_verbose) {
+            printBoard();
+        }
+    }
+
+    /** Move forward N moves along the current game, or as far as
+     *  possible. */
+    void forward(int n) {
+        goTo(Math.min(_board.numMoves() + n, _board.lineLength()));
+    }
+
+    /** Move back N moves along the current game, or to its start. */
+    void back(int n) {
+        goTo(Math.max(_board.numMoves() - n, 0));
+    }
+
     /** Report the move MOVE by PLAYER. */
     void reportMove(Move move, PieceColor player) {
         _reporter.announceMove(move, player);
     }
 
+    /** Report that the search for PLAYER's move has reached depth DEPTH
+     *  after NODES positions, with BEST the best move so far.  May be
+     *  called from any thread. */
+    void reportProgress(PieceColor player, int depth, long nodes,
+                        Move best) {
+        _reporter.searchProgress(player, depth, nodes, best);
+    }
+
+    /** Ask the player now choosing a move, if any, to play the best move
+     *  it has found so far.  May be called from any thread. */
+    void moveNow() {
+        Player player = _thinking;
+        if (player != null) {
+            player.moveNow();
+        }
+    }
+
     /** Send a message to the user as determined by FORMAT and ARGS, which
      *  are interpreted as for String.format or PrintWriter.printf. */
     void message(String format, Object... args) {
@@ -152,7 +474,33 @@ class Game {
 
     /** Make the player of COLOR an AI for subsequent moves. */
     private void setAuto(PieceColor color) {
-        setPlayer(color, new AI(this, color, _seed));
+        setAuto(color, "ai");
+    }
+
+    /** Make the player of COLOR an automated player of kind ENGINE for
+     *  subsequent moves: "ai" for the minimax AI, "ai-full" for the
+     *  minimax AI searching without selectivity (AI.FULL_WIDTH), "mcts"
+     *  for Monte Carlo Tree Search, or "engine" for the external engine
+     *  given by Main.engineCommand(). */
+    private void setAuto(PieceColor color, String engine) {
+        switch (engine) {
+        case "ai-full":
+            setPlayer(color, new AI(this, color, _seed, AI.FULL_WIDTH));
+            break;
+        case "mcts":
+            setPlayer(color, new MCTS(this, color, _seed));
+            break;
+        case "engine":
+            if (Main.engineCommand() == null) {
+                throw error("no external engine (use --engine=COMMAND)");
+            }
+            setPlayer(color,
+                      new ExternalEngine(this, color, Main.engineCommand()));
+            break;
+        default:
+            setPlayer(color, new AI(this, color, _seed));
+            break;
+        }
         _seed += 1;
     }
 
@@ -167,14 +515,23 @@ class Game {
         return _players[color.ordinal()];
     }
 
-    /** Set getPlayer(COLOR) to PLAYER. */
+    /** Set getPlayer(COLOR) to PLAYER, closing the previous one. */
     private void setPlayer(PieceColor color, Player player) {
+        if (_players[color.ordinal()] != null) {
+            _players[color.ordinal()].close();
+        }
         _players[color.ordinal()] = player;
     }
 
-    /** Clear the board to its initial state. */
+    /** Clear the board to its initial state, and reset the clocks. */
     void clear() {
         _board.clear();
+        _forfeited = null;
+        _lopsidedPlies = 0;
+        _adjudication = "play";
+        if (_clock != null) {
+            _clock.reset();
+        }
     }
 
     /** Print the current board using standard board-dump format. */
@@ -182,6 +539,40 @@ class Game {
         _reporter.msg("===%n%s===", _board.toString());
     }
 
+    /** Print the time remaining on each side's clock. */
+    private void printClock() {
+        if (_clock == null) {
+            _reporter.msg("No time control.");
+        } else {
+            _reporter.msg("%s", _clock);
+        }
+    }
+
+    /** Print the best K moves from the current position, searched to
+     *  DEPTH plies, with their scores and principal variations. */
+    private void analyze(int k, int depth) {
+        if (k < 1 || depth < 1) {
+            throw error("number of lines and depth must be positive");
+        } else if (!gameInProgress()) {
+            throw error("game is over");
+        }
+        if (_analyzer == null) {
+            _analyzer = new Analyzer();
+        }
+        List<Analyzer.Line> lines =
+            _analyzer.analyze(new Board(_board), k, depth);
+        for (int i = 0; i < lines.size(); i += 1) {
+            _reporter.msg("%d. %s", i + 1, lines.get(i));
+        }
+        _reporter.msg("(%s to move, depth %d, %d nodes)",
+                      _board.whoseMove(), depth, _analyzer.nodes());
+    }
+
+    /** Print the current position in position notation. */
+    private void printPosition() {
+        _reporter.msg("%s", _board.position());
+    }
+
     /** Print a board with row/column numbers. */
     private void printBoard() {
         _reporter.msg(_board.toString(true));
@@ -199,6 +590,8 @@ class Game {
 
     /** Execute command CMNDSTR.  Throws GameException on errors. */
     private void executeCommand(String cmndStr) {
+        CommandEvent event = new CommandEvent();
+        event.begin();
         Command cmnd = Command.parseCommand(cmndStr);
         String[] parts = cmnd.operands();
         log(cmndStr);
@@ -207,7 +600,8 @@ class Game {
             case COMMENT:
                 break;
             case AUTO:
-                setAuto(parseColor(parts[0]));
+                setAuto(parseColor(parts[0]),
+                        parts.length > 1 ? parts[1] : "ai");
                 break;
             case BOARD:
                 printBoard();
@@ -242,6 +636,47 @@ class Game {
             case BLOCK:
                 block(parts[0]);
                 break;
+            case SETUP:
+                setup(parts[0]);
+                break;
+            case SIZE:
+                setSize(toInt(parts[0]));
+                break;
+            case POSITION:
+                printPosition();
+                break;
+            case ADJUDICATE:
+                if (parts[0].equals("off")) {
+                    setAdjudication(-1, 0);
+                } else if (toInt(parts[0]) > 0 && parts.length < 2) {
+                    throw error("resignation margin missing");
+                } else {
+                    setAdjudication(toInt(parts[0]),
+                                    parts.length > 1 ? toInt(parts[1]) : 0);
+                }
+                break;
+            case TIME:
+                setTimeControl(toMillis(parts[0]),
+                               parts.length > 1 ? toMillis(parts[1]) : 0);
+                break;
+            case CLOCK:
+                printClock();
+                break;
+            case ANALYZE:
+                analyze(parts.length > 0 ? toInt(parts[0])
+                        : Analyzer.DEFAULT_LINES,
+                        parts.length > 1 ? toInt(parts[1])
+                        : Analyzer.DEFAULT_DEPTH);
+                break;
+            case GOTO:
+                goTo(toInt(parts[0]));
+                break;
+            case FORWARD:
+                forward(parts.length > 0 ? toInt(parts[0]) : 1);
+                break;
+            case BACK:
+                back(parts.length > 0 ? toInt(parts[0]) : 1);
+                break;
             case PIECEMOVE:
                 makeMove(parts[0]);
                 break;
@@ -256,6 +691,12 @@ class Game {
             reportError("Argument(s) missing: %s", cmnd);
         } catch (GameException excp) {
             reportError(excp.getMessage());
+        } finally {
+            if (event.shouldCommit()) {
+                event.type = cmnd.commandType().toString();
+                event.command = cmndStr;
+                event.commit();
+            }
         }
     }
 
@@ -302,6 +743,46 @@ class Game {
      *  indicates that the session is not over. */
     private int _exit;
 
+    /** Analyzer for the analyze command, or null if not yet needed. */
+    private Analyzer _analyzer;
+
+    /** Clocks for the current time control, or null if untimed. */
+    private Clock _clock;
+    /** The side that has run out of time or forfeited the current game,
+     *  or null. */
+    private PieceColor _forfeited;
+    /** Why _forfeited lost. */
+    private String _forfeitReason;
+
+    /** True iff adjudicating games (see setAdjudication). */
+    private boolean _adjudicate;
+    /** Plies for which a side must lead by _resignMargin for the other
+     *  to resign, or 0 for no resignations. */
+    private int _resignPlies;
+    /** Lead in pieces needed for resignation. */
+    private int _resignMargin;
+    /** Number of plies in a row after which a side has led by at least
+     *  _resignMargin. */
+    private int _lopsidedPlies;
+    /** How the current game was adjudicated (see adjudication()). */
+    private String _adjudication = "play";
+
+    /** The player whose getMove is in progress, or null. */
+    private volatile Player _thinking;
+    /** The side whose move was last requested, or null if the last
+     *  request was for a command between games. */
+    private PieceColor _mover;
+    /** Number of moves made when _mover's move was requested. */
+    private int _moverMoves;
+    /** True iff the result of the last finished game has been
+     *  announced. */
+    private boolean _winnerAnnounced;
+
+    /** Runs the steps of the current session. */
+    private Executor _executor;
+    /** Completes with the exit code of the current session. */
+    private CompletableFuture<Integer> _done;
+
     /** Current players, indexed by color (RED, BLUE). */
     private final Player[] _players = new Player[PieceColor.values().length];
 
@@ -0,0 +1,125 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** The outcome and moves of a finished game, as reported by a self-play
+ *  worker.  On the wire, a record is one line of the form
+ *      record ID WINNER RED-PIECES BLUE-PIECES ENDING MOVES
+ *  where WINNER is red, blue or empty (a draw), ENDING is how the game
+ *  was adjudicated (play, fill, or resign; see Game.adjudication), and
+ *  MOVES gives each
+ *  move's id() (a pass being Move.PASS_ID) as two base-36 digits, or is
+ *  "-" if there were none.
+ *  @author Ezra Apple
+ */
+class GameRecord {
+
+    /** Radix of the move encoding. */
+    static final int RADIX = 36;
+
+    /** A record of game number ID, won by WINNER (EMPTY for a draw) with
+     *  RED red and BLUE blue pieces, adjudicated as ENDING, whose moves
+     *  were MOVES. */
+    GameRecord(int id, PieceColor winner, int red, int blue, String ending,
+               List<Move> moves) {
+        _id = id;
+        _winner = winner;
+        _red = red;
+        _blue = blue;
+        _ending = ending;
+        _moves = new short[moves.size()];
+        for (int i = 0; i < _moves.length; i += 1) {
+            Move m = moves.get(i);
+            _moves[i] = (short) (m.isPass() ? Move.PASS_ID : m.id());
+        }
+    }
+
+    /** Return the record described by LINE, as produced by toString. */
+    static GameRecord parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 7 || !parts[0].equals("record")
+            || parts[6].length() % 2 != 0 && !parts[6].equals("-")) {
+            throw error("malformed record: %s", line);
+        }
+        try {
+            String code = parts[6].equals("-") ? "" : parts[6];
+            Move[] moves = new Move[code.length() / 2];
+            for (int i = 0; i < moves.length; i += 1) {
+                int id = Integer.parseInt(code.substring(2 * i, 2 * i + 2),
+                                          RADIX);
+                if (id > Move.PASS_ID) {
+                    throw error("malformed record: %s", line);
+                }
+                moves[i] = id == Move.PASS_ID ? Move.pass() : Move.move(id);
+            }
+            return new GameRecord(Integer.parseInt(parts[1]),
+                                  PieceColor.valueOf(parts[2].toUpperCase()),
+                                  Integer.parseInt(parts[3]),
+                                  Integer.parseInt(parts[4]), parts[5],
+                                  List.of(moves));
+        } catch (IllegalArgumentException excp) {
+            throw error("malformed record: %s", line);
+        }
+    }
+
+    /** Return the number of the game. */
+    int id() {
+        return _id;
+    }
+
+    /** Return the winner, or EMPTY for a draw. */
+    PieceColor winner() {
+        return _winner;
+    }
+
+    /** Return how the game was adjudicated: "play", "fill", or
+     *  "resign". */
+    String ending() {
+        return _ending;
+    }
+
+    /** Return the number of moves (including passes) in the game. */
+    int numMoves() {
+        return _moves.length;
+    }
+
+    /** Return move number K of the game, numbering from 0. */
+    Move move(int k) {
+        return _moves[k] == Move.PASS_ID ? Move.pass() : Move.move(_moves[k]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append("record ").append(_id).append(' ')
+            .append(_winner.toString().toLowerCase()).append(' ')
+            .append(_red).append(' ').append(_blue).append(' ')
+            .append(_ending).append(' ');
+        if (_moves.length == 0) {
+            out.append('-');
+        }
+        for (short id : _moves) {
+            out.append(Character.forDigit(id / RADIX, RADIX))
+                .append(Character.forDigit(id % RADIX, RADIX));
+        }
+        return out.toString();
+    }
+
+    /** Number of the game. */
+    private final int _id;
+    /** Winner of the game, EMPTY for a draw. */
+    private final PieceColor _winner;
+    /** Final piece counts. */
+    private final int _red, _blue;
+    /** How the game was adjudicated. */
+    private final String _ending;
+    /** Move ids, in order. */
+    private final short[] _moves;
+}
@@ -0,0 +1,209 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test playing Games from scripts of commands.
+ *  @author Ezra Apple
+ */
+public class GameTest {
+
+    @Test
+    public void testPlayAsync() throws Exception {
+        final int games = 12;
+        ByteArrayOutputStream output = captureOutput();
+        try {
+            List<Game> async = new ArrayList<>();
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            try {
+                for (int k = 0; k < games; k += 1) {
+                    Game game = scriptedGame(aiScript(k));
+                    async.add(game);
+                    results.add(game.playAsync(pool));
+                }
+                for (CompletableFuture<Integer> result : results) {
+                    assertEquals(0, (int) result.get(60, TimeUnit.SECONDS));
+                }
+            } finally {
+                pool.shutdown();
+            }
+            for (int k = 0; k < games; k += 1) {
+                Game game = playScript(aiScript(k));
+                assertNotNull(game.winner());
+                assertEquals(game.winner(), async.get(k).winner());
+                assertEquals(game.getBoard().allMoves(),
+                             async.get(k).getBoard().allMoves());
+            }
+        } finally {
+            restoreOutput();
+        }
+        assertEquals(2 * games, banners(output));
+    }
+
+    @Test
+    public void testQueuedSource() throws Exception {
+        QueuedSource source1 = new QueuedSource(),
+            source2 = new QueuedSource();
+        Game game1 = newGame(source1), game2 = newGame(source2);
+        ExecutorService pool = Executors.newFixedThreadPool(1, (r) -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        ByteArrayOutputStream output = captureOutput();
+        try {
+            CompletableFuture<Integer> result1 = game1.playAsync(pool),
+                result2 = game2.playAsync(pool);
+            source1.offer("manual blue");
+            for (String cmnd : List.of("manual blue", "a7-b7", "g7-f7")) {
+                source2.offer(cmnd);
+            }
+            source2.close();
+            assertEquals(0, (int) result2.get(10, TimeUnit.SECONDS));
+            assertEquals(2, game2.getBoard().numMoves());
+            assertFalse("game 1 ended early", result1.isDone());
+            source1.offer("a7-b6");
+            source1.close();
+            assertEquals(0, (int) result1.get(10, TimeUnit.SECONDS));
+            assertEquals(1, game1.getBoard().numMoves());
+        } finally {
+            pool.shutdown();
+            restoreOutput();
+        }
+        assertEquals(2, banners(output));
+    }
+
+    @Test
+    public void testAdjudication() {
+        ByteArrayOutputStream output = captureOutput();
+        try {
+            Game game = playScript("adjudicate 0",
+                                   "setup 5/5/rrrrr/rrrrr/rrrbb r 0", "c3-c4");
+            assertEquals("fill", game.adjudication());
+            assertEquals(PieceColor.RED, game.winner());
+            assertEquals(23, game.getBoard().redPieces());
+            assertEquals(2, game.getBoard().bluePieces());
+
+            game = playScript("adjudicate 1 4",
+                              "setup r5b/7/7/7/7/rrr4/b5r r 0", "c2-c3");
+            assertEquals("resign", game.adjudication());
+            assertEquals(PieceColor.RED, game.winner());
+            assertEquals(1, game.getBoard().numMoves());
+
+            game = playScript("adjudicate 1 5",
+                              "setup r5b/7/7/7/7/rrr4/b5r r 0", "c2-c3");
+            assertEquals("play", game.adjudication());
+        } finally {
+            restoreOutput();
+        }
+        assertEquals(3, banners(output));
+    }
+
+    @Test
+    public void testTimeControl() {
+        ByteArrayOutputStream output = captureOutput();
+        try {
+            Game game = playScript("time 2.5 0.1");
+            assertEquals(2500, game.clock().base());
+            assertEquals(100, game.clock().increment());
+            game = playScript("time 3 0.0005", "time 60");
+            assertEquals(60000, game.clock().base());
+            assertEquals(0, game.clock().increment());
+            game = playScript("time 3", "time 0");
+            assertNull(game.clock());
+        } finally {
+            restoreOutput();
+        }
+        assertEquals(3, banners(output));
+    }
+
+    /** Return a script for a game numbered K between AIs on a small
+     *  board. */
+    private static String[] aiScript(int k) {
+        return new String[] { "size 4", "seed " + k, "block b" + (1 + k % 2),
+                              "auto red", "auto blue" };
+    }
+
+    /** Return a new game that will play the commands in SCRIPT, with
+     *  Blue an AI unless SCRIPT says otherwise. */
+    static Game scriptedGame(String... script) {
+        ArrayDeque<String> cmnds = new ArrayDeque<>(List.of(script));
+        return newGame((prompt) -> cmnds.poll());
+    }
+
+    /** Return a new game taking commands from SOURCE, with Blue an AI
+     *  unless SOURCE says otherwise. */
+    static Game newGame(CommandSource source) {
+        return new Game(source, (b) -> { },
+                        new Reporter() {
+                            @Override
+                            public void announceWin(PieceColor side) {
+                            }
+
+                            @Override
+                            public void announceMove(Move move,
+                                                     PieceColor p) {
+                            }
+
+                            @Override
+                            public void msg(String format,
+                                            Object... args) {
+                            }
+
+                            @Override
+                            public void err(String format,
+                                            Object... args) {
+                                fail(String.format(format, args));
+                            }
+                        }, false);
+    }
+
+    /** Return the game played by the commands in SCRIPT, with Blue an
+     *  AI. */
+    static Game playScript(String... script) {
+        Game game = scriptedGame(script);
+        game.play();
+        return game;
+    }
+
+    /** Send the standard output, on which a Game prints a banner when it
+     *  starts, to a new buffer, and return the buffer. */
+    private static ByteArrayOutputStream captureOutput() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        return output;
+    }
+
+    /** Restore the standard output after captureOutput. */
+    private static void restoreOutput() {
+        System.setOut(STDOUT);
+    }
+
+    /** Return the number of banners printed on OUTPUT. */
+    private static int banners(ByteArrayOutputStream output) {
+        String banner = "Welcome to " + Defaults.VERSION;
+        int count = 0;
+        for (String line : output.toString().split("\\R")) {
+            count += line.equals(banner) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /** The standard output when the tests began. */
+    private static final PrintStream STDOUT = System.out;
+}
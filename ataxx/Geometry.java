@@ -0,0 +1,277 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** The layout of a square board of a given size, from MIN_SIDE to
+ *  MAX_SIDE squares on a side, and the tables that go with it: the
+ *  linearized indices of its squares, the neighbors and move targets of
+ *  each square, and its Moves.  There is one Geometry for each size,
+ *  built the first time it is asked for and shared thereafter.
+ *
+ *  As for the standard 7x7 board (see Board), squares are numbered in
+ *  row-major order on a board extended by a border two squares deep, so
+ *  the linearized index of a square depends on the size.  So do the
+ *  id()s of Moves, and each Geometry has its own set of Moves, its own
+ *  pass among them.  The static tables and factory methods of Move are
+ *  those of the standard Geometry.
+ *  @author Ezra Apple
+ */
+class Geometry {
+
+    /** Smallest supported board size. */
+    static final int MIN_SIDE = 4;
+    /** Largest supported board size. */
+    static final int MAX_SIDE = 9;
+
+    /** Return the Geometry for boards SIDE squares on a side, where
+     *  MIN_SIDE <= SIDE <= MAX_SIDE. */
+    static Geometry of(int side) {
+        if (side < MIN_SIDE || side > MAX_SIDE) {
+            throw GameException.error("board size must be from %d to %d",
+                                      MIN_SIDE, MAX_SIDE);
+        }
+        /* Building a Geometry creates Moves, and initializing Move builds
+         * the standard Geometry, so Move must be initialized before the
+         * lock is taken, whatever SIDE is.  Reading Move.STANDARD does
+         * that (Move.SIDE, a constant, does not).  It is null only while
+         * Move's own initialization is building it on this thread. */
+        Geometry standard = Move.STANDARD;
+        if (side == Move.SIDE && standard != null) {
+            return standard;
+        }
+        synchronized (GEOMETRIES) {
+            if (GEOMETRIES[side] == null) {
+                GEOMETRIES[side] = new Geometry(side);
+            }
+            return GEOMETRIES[side];
+        }
+    }
+
+    /** The Geometry for boards SIDE squares on a side. */
+    private Geometry(int side) {
+        _side = side;
+        _extendedSide = side + 4;
+        int size = _extendedSide * _extendedSide;
+        _numMoves = side * side * Move.NUM_TARGETS;
+        _neighbors = new int[size * Move.NUM_NEIGHBORS];
+        _extendIds = new int[size * Move.NUM_NEIGHBORS];
+        _jumpTargets = new int[size * Move.NUM_JUMPS];
+        _jumpIds = new int[size * Move.NUM_JUMPS];
+        _targets = new int[size * Move.NUM_TARGETS];
+        _squares = new int[side * side];
+        _firstIds = new int[size];
+        _moves = new Move[_numMoves];
+        _pass = new Move(this);
+
+        Arrays.fill(_firstIds, -1);
+        for (int c = 2; c < side + 2; c += 1) {
+            for (int r = 2; r < side + 2; r += 1) {
+                int sq = r * _extendedSide + c;
+                int slot = (c - 2) * side + r - 2;
+                int n, j;
+                n = j = 0;
+                _squares[slot] = sq;
+                _firstIds[sq] = id(slot, -2, -2);
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    for (int dr = -2; dr <= 2; dr += 1) {
+                        if (dc == 0 && dr == 0) {
+                            continue;
+                        }
+                        int id = id(slot, dc, dr);
+                        int to = sq + dr * _extendedSide + dc;
+                        _moves[id] = new Move(this, id, c, r, c + dc, r + dr);
+                        _targets[sq * Move.NUM_TARGETS + id - _firstIds[sq]] =
+                            to;
+                        if (Math.abs(dc) <= 1 && Math.abs(dr) <= 1) {
+                            _neighbors[sq * Move.NUM_NEIGHBORS + n] = to;
+                            _extendIds[sq * Move.NUM_NEIGHBORS + n] = id;
+                            n += 1;
+                        } else {
+                            _jumpTargets[sq * Move.NUM_JUMPS + j] = to;
+                            _jumpIds[sq * Move.NUM_JUMPS + j] = id;
+                            j += 1;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the number of squares on a side including the border. */
+    int extendedSide() {
+        return _extendedSide;
+    }
+
+    /** Return the number of squares including the border: one more than
+     *  the largest linearized index. */
+    int size() {
+        return _extendedSide * _extendedSide;
+    }
+
+    /** Return the number of distinct Moves other than pass. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the id() of my pass. */
+    int passId() {
+        return _numMoves;
+    }
+
+    /** Return the last column letter. */
+    char lastCol() {
+        return (char) ('a' + _side - 1);
+    }
+
+    /** Return the last row digit. */
+    char lastRow() {
+        return (char) ('1' + _side - 1);
+    }
+
+    /** Return true iff COL ROW is a square on the real board. */
+    boolean onBoard(char col, char row) {
+        return col >= 'a' && col <= lastCol() && row >= '1'
+            && row <= lastRow();
+    }
+
+    /** Return the linearized index of square COL ROW, where COL and ROW
+     *  may be up to two beyond the edge of the board. */
+    int index(char col, char row) {
+        return (row - '1' + 2) * _extendedSide + (col - 'a' + 2);
+    }
+
+    /** Return the character for the row of linearized INDEX. */
+    char numToRow(int index) {
+        return (char) ((index - (_extendedSide * 2 + 2)) / _extendedSide
+                       + '1');
+    }
+
+    /** Return the character for the column of linearized INDEX. */
+    char numToCol(int index) {
+        return (char) ((index - (_extendedSide * 2 + 2)) % _extendedSide
+                       + 'a');
+    }
+
+    /* Per-square tables, laid out as for the static tables in Move (for
+     * example, the neighbors of SQ are neighbors()[SQ * NUM_NEIGHBORS
+     * + k]).  These arrays must not be modified. */
+
+    /** Return the neighbors of each square. */
+    int[] neighbors() {
+        return _neighbors;
+    }
+
+    /** Return the ids of the extends to each square's neighbors. */
+    int[] extendIds() {
+        return _extendIds;
+    }
+
+    /** Return the jump destinations of each square. */
+    int[] jumpTargets() {
+        return _jumpTargets;
+    }
+
+    /** Return the ids of the jumps from each square. */
+    int[] jumpIds() {
+        return _jumpIds;
+    }
+
+    /** Return the destinations of all moves from each square, in order
+     *  of id(). */
+    int[] targets() {
+        return _targets;
+    }
+
+    /** Return the linearized indices of the squares on the real board,
+     *  in column-major order. */
+    int[] squares() {
+        return _squares;
+    }
+
+    /** Return the smallest id() of a move from each square, or -1 for
+     *  squares not on the real board. */
+    int[] firstIds() {
+        return _firstIds;
+    }
+
+    /** Return my Move whose id() is ID.  passId() denotes my pass. */
+    Move move(int id) {
+        return id == _numMoves ? _pass : _moves[id];
+    }
+
+    /** Return my pass. */
+    Move pass() {
+        return _pass;
+    }
+
+    /** Return my Move from COL0 ROW0 to COL1 ROW1, or null if there is
+     *  no such move: if the first square is not on the board or the
+     *  second is more than 2 squares from it in some direction. */
+    Move move(char col0, char row0, char col1, char row1) {
+        int dc = col1 - col0, dr = row1 - row0;
+        if (!onBoard(col0, row0)
+            || Math.abs(dc) > 2 || Math.abs(dr) > 2 || (dc == 0 && dr == 0)) {
+            return null;
+        }
+        return _moves[id((col0 - 'a') * _side + row0 - '1', dc, dr)];
+    }
+
+    /** Return my Move denoted by STR, or null if STR is not a
+     *  syntactically valid move designation or denotes no move. */
+    Move move(String str) {
+        Matcher mat = MOVE_PATN.matcher(str);
+        if (!mat.matches()) {
+            return null;
+        } else if (mat.group(1) != null) {
+            String moveStr = mat.group(1);
+            return move(moveStr.charAt(0), moveStr.charAt(1),
+                        moveStr.charAt(3), moveStr.charAt(4));
+        } else {
+            return _pass;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _side + "x" + _side;
+    }
+
+    /** Return the id() of the move from the square whose position in
+     *  column-major order on the real board is SLOT to the square DC
+     *  columns and DR rows away. */
+    private static int id(int slot, int dc, int dr) {
+        int k = (dc + 2) * 5 + dr + 2;
+        return slot * Move.NUM_TARGETS
+            + (k < Move.NUM_TARGETS / 2 ? k : k - 1);
+    }
+
+    /** Syntax of a move.  Groups capture row and column. */
+    private static final Pattern MOVE_PATN =
+        Pattern.compile("([a-z][1-9a-f]-[a-z][1-9a-f])|(-)");
+
+    /** The Geometries built so far, indexed by size. */
+    private static final Geometry[] GEOMETRIES = new Geometry[MAX_SIDE + 1];
+
+    /** Squares on a side, without and with the border. */
+    private final int _side, _extendedSide;
+    /** Number of Moves other than pass. */
+    private final int _numMoves;
+    /** Per-square tables. */
+    private final int[] _neighbors, _extendIds, _jumpTargets, _jumpIds,
+        _targets, _squares, _firstIds;
+    /** My Moves other than pass, indexed by id(). */
+    private final Move[] _moves;
+    /** My pass. */
+    private final Move _pass;
+}
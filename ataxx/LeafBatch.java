@@ -0,0 +1,175 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** A buffer of leaf positions kept in struct-of-arrays form and scored
+ *  together.  Each position is held as three 49-bit boards (red pieces,
+ *  blue pieces and blocks, bit K standing for the square Move.SQUARES[K])
+ *  plus its count of consecutive jumps, in parallel arrays.  Scoring
+ *  is then a straight-line loop over those arrays: population counts for
+ *  the material and two dilations of the piece boards (shifts and masks)
+ *  to see whether either side can still move.  It gives exactly the
+ *  value AI.staticScore gives the same position.
+ *
+ *  Children of a position can be added without making any moves on a
+ *  Board, which is how a search expands its frontier into a batch.
+ *  Batches hold positions on the standard 7x7 board only.
+ *  @author Ezra Apple
+ */
+class LeafBatch {
+
+    /** Number of squares on a side. */
+    static final int SIDE = Board.SIDE;
+    /** Bits for all squares on the board. */
+    static final long ALL = (1L << (SIDE * SIDE)) - 1;
+    /** Bits for the squares in row 1. */
+    static final long ROW_1;
+    /** Bits for the squares in row 7. */
+    static final long ROW_7;
+
+    static {
+        long bottom, top;
+        bottom = top = 0;
+        for (int c = 0; c < SIDE; c += 1) {
+            bottom |= 1L << (c * SIDE);
+            top |= 1L << (c * SIDE + SIDE - 1);
+        }
+        ROW_1 = bottom;
+        ROW_7 = top;
+    }
+
+    /** An empty batch with room for CAPACITY positions. */
+    LeafBatch(int capacity) {
+        _red = new long[capacity];
+        _blue = new long[capacity];
+        _blocks = new long[capacity];
+        _jumps = new int[capacity];
+        _scores = new int[capacity];
+    }
+
+    /** Return the number of positions in the batch. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the number of positions the batch can hold. */
+    int capacity() {
+        return _red.length;
+    }
+
+    /** Remove all positions from the batch. */
+    void clear() {
+        _size = 0;
+    }
+
+    /** Return the bit for the square with linearized index SQ. */
+    static long bit(int sq) {
+        return 1L << (Move.FIRST_IDS[sq] / Move.NUM_TARGETS);
+    }
+
+    /** Return the bits for the squares of BOARD containing COLOR. */
+    static long bits(Board board, PieceColor color) {
+        long result = 0;
+        for (int slot = 0; slot < SIDE * SIDE; slot += 1) {
+            if (board.get(Move.SQUARES[slot]) == color) {
+                result |= 1L << slot;
+            }
+        }
+        return result;
+    }
+
+    /** Return SQUARES together with all squares adjacent to them
+     *  (including diagonally). */
+    static long dilate(long squares) {
+        long col = (squares | ((squares << 1) & ~ROW_1)
+                    | ((squares >>> 1) & ~ROW_7)) & ALL;
+        return (col | (col << SIDE) | (col >>> SIDE)) & ALL;
+    }
+
+    /** Add the position with red pieces RED, blue pieces BLUE, blocks
+     *  BLOCKS, and JUMPS consecutive jumps, returning its index. */
+    int add(long red, long blue, long blocks, int jumps) {
+        int k = _size;
+        _red[k] = red;
+        _blue[k] = blue;
+        _blocks[k] = blocks;
+        _jumps[k] = jumps;
+        _size += 1;
+        return k;
+    }
+
+    /** Add the position on BOARD, returning its index. */
+    int add(Board board) {
+        return add(bits(board, RED), bits(board, BLUE),
+                   bits(board, BLOCKED), board.numJumps());
+    }
+
+    /** Add the position resulting from each of MOVES on BOARD, in
+     *  order, where the moves are legal for the side to move.  A pass
+     *  leaves the position as it is. */
+    void addChildren(Board board, List<Move> moves) {
+        long red = bits(board, RED), blue = bits(board, BLUE),
+            blocks = bits(board, BLOCKED);
+        boolean redMoves = board.whoseMove() == RED;
+        long mine = redMoves ? red : blue, theirs = redMoves ? blue : red;
+        int jumps = board.numJumps();
+        for (Move move : moves) {
+            if (move.isPass()) {
+                add(red, blue, blocks, jumps);
+                continue;
+            }
+            long to = bit(move.toIndex());
+            long captured = dilate(to) & theirs;
+            long mine1 = mine | to | captured;
+            if (move.isJump()) {
+                mine1 &= ~bit(move.fromIndex());
+            }
+            long theirs1 = theirs & ~captured;
+            if (redMoves) {
+                add(mine1, theirs1, blocks, move.isJump() ? jumps + 1 : 0);
+            } else {
+                add(theirs1, mine1, blocks, move.isJump() ? jumps + 1 : 0);
+            }
+        }
+    }
+
+    /** Score every position in the batch, returning an array whose first
+     *  size() entries are the scores in order of addition.  A won
+     *  position scores +WINNINGVALUE if red has won and -WINNINGVALUE if
+     *  blue has; a drawn game scores 0; any other scores the number of
+     *  red pieces less the number of blue pieces.  The array belongs to
+     *  the batch and is overwritten by the next call. */
+    int[] score(int winningValue) {
+        long[] red = _red, blue = _blue, blocks = _blocks;
+        int[] jumps = _jumps, scores = _scores;
+        for (int k = 0; k < _size; k += 1) {
+            long r = red[k], b = blue[k];
+            int diff = Long.bitCount(r) - Long.bitCount(b);
+            long empty = ALL & ~(r | b | blocks[k]);
+            long reach = dilate(dilate(r | b));
+            boolean over = r == 0 || b == 0
+                || jumps[k] >= Board.JUMP_LIMIT || (reach & empty) == 0;
+            scores[k] = over ? Integer.signum(diff) * winningValue : diff;
+        }
+        return scores;
+    }
+
+    /** Red pieces of each position. */
+    private final long[] _red;
+    /** Blue pieces of each position. */
+    private final long[] _blue;
+    /** Blocks of each position. */
+    private final long[] _blocks;
+    /** Consecutive jumps leading to each position. */
+    private final int[] _jumps;
+    /** Scores from the last call to score. */
+    private final int[] _scores;
+    /** Number of positions in the batch. */
+    private int _size;
+}
@@ -0,0 +1,156 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Measures the rate at which leaf positions are scored, one at a time
+ *  on Boards (as AI.staticScore does) and in LeafBatches of various
+ *  sizes.  Each measurement scores the children of a fixed sample of
+ *  positions from random games; the scalar path copies the parent and
+ *  makes each move, while the batched path adds the children to a batch
+ *  with LeafBatch.addChildren and scores them whenever it fills.
+ *  Usage: java ataxx.LeafBench [SECONDS-PER-MEASUREMENT]
+ *  @author Ezra Apple
+ */
+class LeafBench {
+
+    /** Number of sample positions. */
+    static final int SAMPLES = 2000;
+    /** Batch sizes measured. */
+    static final int[] BATCH_SIZES = { 1, 4, 16, 64, 256, 1024 };
+    /** Default time per measurement, in seconds. */
+    static final double DEFAULT_SECONDS = 2.0;
+
+    /** Run the benchmark, with ARGS as described in the class comment. */
+    public static void main(String[] args) {
+        double seconds =
+            args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_SECONDS;
+        List<Board> sample = new ArrayList<>();
+        List<List<Move>> moves = new ArrayList<>();
+        Random rand = new Random(36);
+        while (sample.size() < SAMPLES) {
+            Board b = new Board();
+            while (b.getWinner() == null && sample.size() < SAMPLES) {
+                List<Move> legal = legalMoves(b);
+                sample.add(new Board(b));
+                moves.add(legal);
+                b.makeMove(legal.get(rand.nextInt(legal.size())));
+            }
+        }
+
+        System.out.printf("%-10s %12s %10s%n", "path", "leaves/sec",
+                          "speedup");
+        double scalar = rate(seconds, () -> scalarPass(sample, moves));
+        System.out.printf("%-10s %12.0f %10s%n", "scalar", scalar, "1.00");
+        for (int size : BATCH_SIZES) {
+            LeafBatch batch = new LeafBatch(size + Move.NUM_MOVES + 1);
+            double r = rate(seconds,
+                            () -> batchPass(sample, moves, batch, size));
+            System.out.printf("%-10s %12.0f %10.2f%n", "batch " + size, r,
+                              r / scalar);
+        }
+        System.out.printf("(checksum %d)%n", _sink);
+    }
+
+    /** A pass over the sample that returns the number of leaves it
+     *  scored. */
+    interface Pass {
+        /** Make the pass and return the number of leaves scored. */
+        long run();
+    }
+
+    /** Return the rate at which PASS scores leaves, in leaves per second,
+     *  measured over about SECONDS after a warm-up of the same length. */
+    static double rate(double seconds, Pass pass) {
+        long limit = (long) (seconds * 1e9);
+        for (long start = System.nanoTime();
+             System.nanoTime() - start < limit;) {
+            pass.run();
+        }
+        long leaves = 0;
+        long start = System.nanoTime(), elapsed;
+        do {
+            leaves += pass.run();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < limit);
+        return leaves * 1e9 / elapsed;
+    }
+
+    /** Score the children of each of SAMPLE, whose legal moves are MOVES,
+     *  one at a time, returning the number scored. */
+    static long scalarPass(List<Board> sample, List<List<Move>> moves) {
+        long n = 0;
+        for (int i = 0; i < sample.size(); i += 1) {
+            Board b = sample.get(i);
+            for (Move m : moves.get(i)) {
+                Board child = new Board(b);
+                child.makeMove(m);
+                _sink += score(child);
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Score the children of each of SAMPLE, whose legal moves are MOVES,
+     *  in BATCH, scoring whenever it holds at least SIZE positions, and
+     *  return the number scored. */
+    static long batchPass(List<Board> sample, List<List<Move>> moves,
+                          LeafBatch batch, int size) {
+        long n = 0;
+        batch.clear();
+        for (int i = 0; i < sample.size(); i += 1) {
+            batch.addChildren(sample.get(i), moves.get(i));
+            if (batch.size() >= size) {
+                n += flush(batch);
+            }
+        }
+        return n + flush(batch);
+    }
+
+    /** Score and empty BATCH, returning the number of positions it
+     *  held. */
+    private static int flush(LeafBatch batch) {
+        int n = batch.size();
+        int[] scores = batch.score(Integer.MAX_VALUE - 20);
+        for (int k = 0; k < n; k += 1) {
+            _sink += scores[k];
+        }
+        batch.clear();
+        return n;
+    }
+
+    /** Return B's value as computed by AI.staticScore at a leaf. */
+    private static int score(Board b) {
+        PieceColor winner = b.getWinner();
+        if (winner == null) {
+            return b.redPieces() - b.bluePieces();
+        }
+        return winner == RED ? Integer.MAX_VALUE - 20
+            : winner == BLUE ? -(Integer.MAX_VALUE - 20) : 0;
+    }
+
+    /** Return the legal moves on B, or a pass if there are none. */
+    private static List<Move> legalMoves(Board b) {
+        List<Move> result = new ArrayList<>();
+        for (int id = 0; id < Move.NUM_MOVES; id += 1) {
+            if (b.legalMove(Move.move(id))) {
+                result.add(Move.move(id));
+            }
+        }
+        if (result.isEmpty()) {
+            result.add(Move.pass());
+        }
+        return result;
+    }
+
+    /** Accumulates scores so that the work cannot be optimized away. */
+    private static long _sink;
+}
@@ -0,0 +1,437 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static ataxx.PieceColor.*;
+
+/** A Player that computes its moves by Monte Carlo Tree Search, as an
+ *  alternative to the minimax search in AI.
+ *
+ *  The search tree lives in a pool of nodes held in parallel primitive
+ *  arrays and indexed by node number, so that a search allocates nothing
+ *  per node.  Several threads share one tree (tree parallelism).  Each
+ *  thread descends from the root by UCT, applying moves in place to its
+ *  own Board, expands the leaf it reaches, finishes the game with a
+ *  lightly biased random playout, backs the result up the path, and then
+ *  undoes its moves to return to the root.  A Board that only makes and
+ *  undoes moves takes no snapshots, and allocates only while its undo
+ *  records first grow to the length of a playout, so the threads, too,
+ *  allocate nothing per playout once under way.  While a thread is below
+ *  a node, that node carries a virtual loss, which steers the other
+ *  threads toward different lines.
+ *  @author Ezra Apple
+ */
+class MCTS extends Player {
+
+    /** Default maximum number of playouts per move. */
+    static final int DEFAULT_PLAYOUTS = 20000;
+    /** Default maximum think time per move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 2000;
+    /** Capacity of the node pool. */
+    private static final int POOL_SIZE = 1 << 20;
+    /** Maximum number of legal moves in any position on the largest
+     *  board: at most one piece per square, each with at most 24
+     *  destinations, less the occupied ones. */
+    private static final int MAX_MOVES =
+        Move.NUM_TARGETS * Geometry.MAX_SIDE * Geometry.MAX_SIDE;
+    /** Maximum depth of the tree below the root that a search visits. */
+    private static final int MAX_PATH = 1024;
+    /** Number of plies after which a playout is scored by piece count. */
+    private static final int PLAYOUT_LIMIT = 120;
+    /** UCT exploration constant. */
+    private static final double EXPLORATION = 1.4;
+    /** Visits added (without reward) to a node while a thread is below
+     *  it. */
+    private static final int VIRTUAL_LOSS = 3;
+    /** Node rewards, in half-points, for a loss, draw, and win. */
+    private static final int LOSS = 0, DRAW = 1, WIN = 2;
+    /** Expansion states of a node. */
+    private static final int UNEXPANDED = 0, EXPANDING = 1, EXPANDED = 2;
+    /** UCT value of a child not yet visited, before random tie-breaking. */
+    private static final double UNVISITED = 1e9;
+    /** Chance, out of 256, that a playout prefers an extending move
+     *  over a jump when both are available. */
+    private static final int EXTEND_BIAS = 192;
+
+    /** A new MCTS player for GAME that will play MYCOLOR, seeding its
+     *  random-number generators from SEED, and using the default number
+     *  of threads and limits. */
+    MCTS(Game game, PieceColor myColor, long seed) {
+        this(game, myColor, seed,
+             Runtime.getRuntime().availableProcessors(),
+             DEFAULT_PLAYOUTS, DEFAULT_TIME_LIMIT);
+    }
+
+    /** A new MCTS player for GAME that will play MYCOLOR, seeding its
+     *  random-number generators from SEED, and searching with THREADS
+     *  threads for at most PLAYOUTS playouts or TIMELIMIT milliseconds
+     *  per move, whichever comes first.  With one thread and no time
+     *  limit that is ever reached, identical seeds produce identical
+     *  behaviour. */
+    MCTS(Game game, PieceColor myColor, long seed, int threads,
+         int playouts, long timeLimit) {
+        super(game, myColor);
+        _seed = seed;
+        _threads = Math.max(1, threads);
+        _playouts = playouts;
+        _timeLimit = timeLimit;
+    }
+
+    @Override
+    boolean isAuto() {
+        return true;
+    }
+
+    @Override
+    String getMove() {
+        if (!getBoard().canMove(myColor())) {
+            return pass();
+        }
+        Main.startTiming();
+        return finish(findMove());
+    }
+
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        if (!getBoard().canMove(myColor())) {
+            return CompletableFuture.completedFuture(pass());
+        }
+        Main.startTiming();
+        return CompletableFuture.supplyAsync(this::findMove, BACKGROUND)
+            .thenApplyAsync(this::finish, executor);
+    }
+
+    /** Report and return my pass. */
+    private String pass() {
+        game().reportMove(Move.pass(), myColor());
+        return "-";
+    }
+
+    /** Finish timing and report MOVE, the result of my search, and
+     *  return its denotation. */
+    private String finish(Move move) {
+        Main.endTiming();
+        game().reportMove(move, myColor());
+        return move.toString();
+    }
+
+    @Override
+    void moveNow() {
+        _deadline = 0;
+    }
+
+    /** Return the number of playouts made by the last call to findMove. */
+    int lastPlayouts() {
+        return _done.get();
+    }
+
+    /** Return a move for me from the current position, assuming there
+     *  is a move.  If the search never expands the root (for lack of
+     *  playouts, time, or room), that is the first legal move. */
+    Move findMove() {
+        allocatePool();
+        _next.set(1);
+        resetNode(0, getBoard().geometry().passId());
+        _done.set(0);
+        _started.set(0);
+        _deadline = System.currentTimeMillis() + _timeLimit;
+        Clock clock = game().clock();
+        if (clock != null) {
+            TimeManager timer =
+                new TimeManager(clock, getBoard(), myColor());
+            _deadline = Math.min(_deadline, timer.softDeadline());
+        }
+
+        Board root = getBoard();
+        Thread[] workers = new Thread[_threads - 1];
+        for (int i = 0; i < workers.length; i += 1) {
+            Worker w = new Worker(new Board(root), _seed + i + 1);
+            workers[i] = new Thread(w, "mcts-" + i);
+            workers[i].start();
+        }
+        new Worker(new Board(root), _seed).run();
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException excp) {
+                throw new Error("unexpected interrupt");
+            }
+        }
+        _seed += 1;
+
+        int best = -1;
+        for (int c = _firstChild[0]; c < _firstChild[0] + _numChildren[0];
+             c += 1) {
+            if (best == -1 || _visits.get(c) > _visits.get(best)) {
+                best = c;
+            }
+        }
+        if (best == -1) {
+            return AI.possibleMoves(root).get(0);
+        }
+        return root.geometry().move(_move[best]);
+    }
+
+    /** One search thread. */
+    private class Worker implements Runnable {
+
+        /** A thread that searches from BOARD, which it owns, using random
+         *  numbers seeded with SEED. */
+        Worker(Board board, long seed) {
+            _board = board;
+            _rand = new Random(seed);
+            _geometry = board.geometry();
+            _neighbors = _geometry.neighbors();
+            _extendIds = _geometry.extendIds();
+            _jumpTargets = _geometry.jumpTargets();
+            _jumpIds = _geometry.jumpIds();
+        }
+
+        @Override
+        public void run() {
+            while (_started.getAndIncrement() < _playouts
+                   && System.currentTimeMillis() < _deadline) {
+                iterate();
+                _done.incrementAndGet();
+            }
+        }
+
+        /** Perform one select/expand/playout/backup cycle. */
+        private void iterate() {
+            int node = 0;
+            int depth = 0;
+            _path[0] = 0;
+            _visits.addAndGet(0, VIRTUAL_LOSS);
+            while (_state.get(node) == EXPANDED && depth + 1 < MAX_PATH
+                   && _board.getWinner() == null) {
+                node = select(node);
+                _board.makeMove(_geometry.move(_move[node]));
+                depth += 1;
+                _path[depth] = node;
+                _visits.addAndGet(node, VIRTUAL_LOSS);
+            }
+            if (_board.getWinner() == null
+                && _state.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                expand(node);
+            }
+            int made = depth;
+            PieceColor winner = _board.getWinner();
+            if (winner == null) {
+                made += playout();
+                winner = outcome();
+            }
+            for (; made > 0; made -= 1) {
+                _board.undo();
+            }
+            backup(depth, winner);
+        }
+
+        /** Return the child of NODE with the highest UCT value. */
+        private int select(int node) {
+            int first = _firstChild[node];
+            int end = first + _numChildren[node];
+            double logN = Math.log(Math.max(1, _visits.get(node)));
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int c = first; c < end; c += 1) {
+                int n = _visits.get(c);
+                double value;
+                if (n == 0) {
+                    value = UNVISITED + _rand.nextDouble();
+                } else {
+                    value = (double) _reward.get(c) / (WIN * n)
+                        + EXPLORATION * Math.sqrt(logN / n);
+                }
+                if (value > bestValue) {
+                    best = c;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        /** Add children for all legal moves at NODE, whose position is
+         *  on my board, and mark it expanded. */
+        private void expand(int node) {
+            int n = legalMoves(_board, _moves);
+            int first = _next.getAndAdd(n);
+            if (first + n > POOL_SIZE) {
+                _state.set(node, UNEXPANDED);
+                return;
+            }
+            for (int i = 0; i < n; i += 1) {
+                resetNode(first + i, _moves[i]);
+            }
+            _firstChild[node] = first;
+            _numChildren[node] = n;
+            _state.set(node, EXPANDED);
+        }
+
+        /** Play random moves on my board until the game ends or
+         *  PLAYOUT_LIMIT plies have passed, and return the number of
+         *  moves made. */
+        private int playout() {
+            int made;
+            for (made = 0; made < PLAYOUT_LIMIT
+                     && _board.getWinner() == null; made += 1) {
+                int n = legalMoves(_board, _moves);
+                int pick;
+                if (_extends > 0 && _extends < n
+                    && _rand.nextInt(256) < EXTEND_BIAS) {
+                    pick = _rand.nextInt(_extends);
+                } else {
+                    pick = _rand.nextInt(n);
+                }
+                _board.makeMove(_geometry.move(_moves[pick]));
+            }
+            return made;
+        }
+
+        /** Return the winner on my board, or the side ahead on pieces
+         *  (EMPTY if level) if the game is not over. */
+        private PieceColor outcome() {
+            PieceColor winner = _board.getWinner();
+            if (winner != null) {
+                return winner;
+            }
+            int diff = _board.redPieces() - _board.bluePieces();
+            return diff > 0 ? RED : diff < 0 ? BLUE : EMPTY;
+        }
+
+        /** Credit the result WINNER to the nodes in _path[0 .. DEPTH],
+         *  removing their virtual losses. */
+        private void backup(int depth, PieceColor winner) {
+            PieceColor mover = _board.whoseMove().opposite();
+            for (int d = 0; d <= depth; d += 1) {
+                int node = _path[d];
+                int reward =
+                    winner == EMPTY ? DRAW : winner == mover ? WIN : LOSS;
+                _reward.addAndGet(node, reward);
+                _visits.addAndGet(node, 1 - VIRTUAL_LOSS);
+                mover = mover.opposite();
+            }
+        }
+
+        /** Store the ids of the legal moves for the side to move on
+         *  BOARD in MOVES, extends first, set _extends to the number of
+         *  extends, and return the number of moves.  If there are none,
+         *  stores a single pass. */
+        private int legalMoves(Board board, int[] moves) {
+            PieceColor who = board.whoseMove();
+            int n, j;
+            n = 0;
+            j = MAX_MOVES;
+            for (int sq : _geometry.squares()) {
+                if (board.get(sq) != who) {
+                    continue;
+                }
+                int base = sq * Move.NUM_NEIGHBORS;
+                for (int k = 0; k < Move.NUM_NEIGHBORS; k += 1) {
+                    if (board.get(_neighbors[base + k]) == EMPTY) {
+                        moves[n] = _extendIds[base + k];
+                        n += 1;
+                    }
+                }
+                base = sq * Move.NUM_JUMPS;
+                for (int k = 0; k < Move.NUM_JUMPS; k += 1) {
+                    if (board.get(_jumpTargets[base + k]) == EMPTY) {
+                        j -= 1;
+                        moves[j] = _jumpIds[base + k];
+                    }
+                }
+            }
+            _extends = n;
+            System.arraycopy(moves, j, moves, n, MAX_MOVES - j);
+            n += MAX_MOVES - j;
+            if (n == 0) {
+                moves[n] = _geometry.passId();
+                n += 1;
+            }
+            return n;
+        }
+
+        /** The board on which this thread makes its moves. */
+        private final Board _board;
+        /** The layout of _board. */
+        private final Geometry _geometry;
+        /** Move tables of _geometry. */
+        private final int[] _neighbors, _extendIds, _jumpTargets, _jumpIds;
+        /** Source of random choices for this thread. */
+        private final Random _rand;
+        /** Nodes on the current selection path, root first. */
+        private final int[] _path = new int[MAX_PATH];
+        /** Buffer of move ids for expansion and playouts. */
+        private final int[] _moves = new int[MAX_MOVES + 1];
+        /** Number of extends stored by the last call to legalMoves. */
+        private int _extends;
+    }
+
+    /** Initialize pool entry NODE as an unexpanded node reached by the
+     *  move whose id is MOVE. */
+    private void resetNode(int node, int move) {
+        _move[node] = move;
+        _firstChild[node] = 0;
+        _numChildren[node] = 0;
+        _visits.set(node, 0);
+        _reward.set(node, 0);
+        _state.set(node, UNEXPANDED);
+    }
+
+    /** Allocate the node pool, if not yet done. */
+    private void allocatePool() {
+        if (_move == null) {
+            _move = new int[POOL_SIZE];
+            _firstChild = new int[POOL_SIZE];
+            _numChildren = new int[POOL_SIZE];
+            _visits = new AtomicIntegerArray(POOL_SIZE);
+            _reward = new AtomicLongArray(POOL_SIZE);
+            _state = new AtomicIntegerArray(POOL_SIZE);
+        }
+    }
+
+    /* The node pool.  Node 0 is the root.  The children of a node are
+     * allocated contiguously.  The plain arrays for a node are written
+     * before its _state entry is set to EXPANDED and read only after it is
+     * seen to be EXPANDED, so the atomic state publishes them. */
+
+    /** Id of the move leading to each node. */
+    private int[] _move;
+    /** Pool index of each node's first child. */
+    private int[] _firstChild;
+    /** Number of children of each node. */
+    private int[] _numChildren;
+    /** Visit count of each node, including virtual losses. */
+    private AtomicIntegerArray _visits;
+    /** Total reward of each node, in half-points, for the side that made
+     *  the move leading to it. */
+    private AtomicLongArray _reward;
+    /** Expansion state of each node. */
+    private AtomicIntegerArray _state;
+
+    /** Next free node in the pool. */
+    private final AtomicInteger _next = new AtomicInteger();
+    /** Number of playouts begun during the current search. */
+    private final AtomicInteger _started = new AtomicInteger();
+    /** Number of playouts completed during the current search. */
+    private final AtomicInteger _done = new AtomicInteger();
+    /** Time at which the current search must stop. */
+    private volatile long _deadline;
+
+    /** Seed for the random-number generators of the next search. */
+    private long _seed;
+    /** Number of search threads. */
+    private final int _threads;
+    /** Maximum playouts per move. */
+    private final int _playouts;
+    /** Maximum think time per move, in milliseconds. */
+    private final long _timeLimit;
+}
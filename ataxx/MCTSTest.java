@@ -0,0 +1,25 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.GameTest.scriptedGame;
+
+/** Test the Monte Carlo tree search player.
+ *  @author Ezra Apple
+ */
+public class MCTSTest {
+
+    @Test
+    public void testMCTSWithoutPlayouts() {
+        Game game = scriptedGame();
+        MCTS mcts = new MCTS(game, PieceColor.RED, 0, 1, 0, 1000);
+        Move move = mcts.findMove();
+        assertEquals(0, mcts.lastPlayouts());
+        assertTrue(game.getBoard().legalMove(move));
+    }
+}
@@ -28,13 +28,45 @@ public class Main {
      *       --log: Print commands.
      *       --strict: Strict mode---players errors cause error exit.
      *       --debug: Set level of debugging information.
+     *       --selfplay=N: Play N self-play games on worker processes.
+     *       --workers=K: Use K worker processes for --selfplay.
+     *       --engines=R,B: Engines for red and blue in --selfplay.
+     *       --seed=S: Seed for --selfplay games.
+     *       --adjudicate=N,M|off: Adjudication of --selfplay games (see
+     *           the adjudicate command).
+     *       --worker=PORT: Run as a self-play worker for the
+     *           coordinator on PORT.
+     *       --engine=COMMAND: Command line for the external engine used
+     *           by "auto C engine".
+     *       --tablebase=FILE: Solved positions (see Retrograde) for the
+     *           AI to play from.
+     *       --store=FILE: Persistent store of search results (see
+     *           PositionStore) for the AI to consult and add to.
+     *       --tuning=SPEC: Parameters of the AI's selective search (see
+     *           AI.Tuning.parse).
+     *       --bench: Run the search benchmark (see Bench) and exit.
+     *       --record=FILE: Record the trees the AI searches in FILE (see
+     *           SearchRecorder and SearchReport).
+     *       --replay: Check the moves of the input files against the
+     *           rules as quickly as possible (see Replay) and exit.
      *  Trailing arguments are input files; the standard input is the
      *  default.
      */
     public static void main(String[] args0) {
         CommandArgs args =
             new CommandArgs("--display{0,1} --strict --version --timing --log"
-                            + " --debug=(\\d+){0,1} --=(.*){0,}", args0);
+                            + " --debug=(\\d+){0,1} --selfplay=(\\d+){0,1}"
+                            + " --workers=(\\d+){0,1}"
+                            + " --engines=((?:ai|ai-full|mcts|engine),"
+                            + "(?:ai|ai-full|mcts|engine)){0,1}"
+                            + " --engine=(.+){0,1}"
+                            + " --tablebase=(.+){0,1} --store=(.+){0,1}"
+                            + " --tuning=(.+){0,1}"
+                            + " --adjudicate=(off|\\d+,\\d+){0,1}"
+                            + " --seed=(\\d+){0,1} --worker=(\\d+){0,1}"
+                            + " --bench{0,1} --record=(.+){0,1}"
+                            + " --replay{0,1}"
+                            + " --=(.*){0,}", args0);
 
 
         System.out.println("CS61B Ataxx! Version 3.0");
@@ -55,10 +87,77 @@ public class Main {
             Utils.setMessageLevel(args.getInt("--debug"));
         }
 
+        if (args.contains("--engine")) {
+            _engineCommand = args.getFirst("--engine");
+        }
+        if (args.contains("--tablebase")) {
+            try {
+                _tablebase = new Tablebase(args.getFirst("--tablebase"));
+            } catch (GameException excp) {
+                System.err.println(excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (args.contains("--store")) {
+            try {
+                _store = new PositionStore(args.getFirst("--store"),
+                                           PositionStore.DEFAULT_BUCKETS);
+            } catch (GameException excp) {
+                System.err.println(excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (args.contains("--tuning")) {
+            try {
+                _tuning = AI.Tuning.parse(args.getFirst("--tuning"));
+            } catch (GameException excp) {
+                System.err.println(excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (args.contains("--record")) {
+            try {
+                _recorder = new SearchRecorder(args.getFirst("--record"));
+            } catch (GameException excp) {
+                System.err.println(excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (args.contains("--bench")) {
+            System.exit(Bench.run());
+        }
+        if (args.contains("--replay")) {
+            System.exit(Replay.run(args.get("--")));
+        }
+        if (args.contains("--worker")) {
+            System.exit(SelfPlayWorker.run(args.getInt("--worker")));
+        }
+        if (args.contains("--selfplay")) {
+            String[] engines =
+                args.contains("--engines")
+                ? args.getFirst("--engines").split(",")
+                : new String[] { "ai", "ai" };
+            SelfPlay selfPlay =
+                new SelfPlay(args.getInt("--selfplay"),
+                             args.contains("--workers")
+                             ? args.getInt("--workers")
+                             : Runtime.getRuntime().availableProcessors(),
+                             engines[0], engines[1],
+                             args.contains("--seed")
+                             ? args.getLong("--seed") : 0,
+                             args.contains("--adjudicate")
+                             ? args.getFirst("--adjudicate")
+                             : SelfPlay.DEFAULT_ADJUDICATION);
+            System.exit(selfPlay.run());
+        }
+
+        MoveCountEvent.register();
+
         Game game;
         if (args.contains("--display")) {
             GUI display = new GUI("Ataxx!");
             game = new Game(display, display, display, log);
+            display.setMoveNow(game::moveNow);
             display.pack();
             display.setVisible(true);
         } else {
@@ -98,6 +197,35 @@ public class Main {
         return _strict;
     }
 
+    /** Return the command line for the external engine, or null if none
+     *  was given. */
+    static String engineCommand() {
+        return _engineCommand;
+    }
+
+    /** Return the tablebase the AI plays from, or null if none was
+     *  given. */
+    static Tablebase tablebase() {
+        return _tablebase;
+    }
+
+    /** Return the store of search results the AI uses, or null if none
+     *  was given. */
+    static PositionStore store() {
+        return _store;
+    }
+
+    /** Return the parameters of the AI's search. */
+    static AI.Tuning tuning() {
+        return _tuning;
+    }
+
+    /** Return the recorder of the AI's searches, or null if none was
+     *  asked for. */
+    static SearchRecorder recorder() {
+        return _recorder;
+    }
+
     /* TIMING */
 
     /** Start timing an operation. */
@@ -130,6 +258,21 @@ public class Main {
         }
     }
 
+    /** Command line for the external engine, or null. */
+    private static String _engineCommand;
+
+    /** Tablebase for the AI, or null. */
+    private static Tablebase _tablebase;
+
+    /** Store of search results for the AI, or null. */
+    private static PositionStore _store;
+
+    /** Parameters of the AI's search. */
+    private static AI.Tuning _tuning = AI.DEFAULT_TUNING;
+
+    /** Recorder of the AI's searches, or null. */
+    private static SearchRecorder _recorder;
+
     /** True iff AIs should time. */
     private static boolean _timing;
 
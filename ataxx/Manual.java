@@ -4,6 +4,9 @@
 
 package ataxx;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import static ataxx.PieceColor.*;
 import static ataxx.Command.Type.*;
 
@@ -28,6 +31,11 @@ class Manual extends Player {
         }
     }
 
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        return game().requestCommand(_prompt, executor);
+    }
+
     /** The User serving as a source of input commands. */
     private String _prompt;
 }
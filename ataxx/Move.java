@@ -4,11 +4,9 @@
 
 package ataxx;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 /** Represents an Ataxx move. There is one Move object created for
- *  each distinct Move.
+ *  each distinct Move on each size of board (see Geometry).  The static
+ *  tables and factory methods here are for the standard 7x7 board.
  *  @author Ezra Apple
  */
 class Move {
@@ -21,14 +19,19 @@ class Move {
      * are immutable, and for any possible move, there is exactly one
      * object of type Move. */
 
-    /** The move COL0 ROW0 - COL1 ROW1.  This must be a legal move. */
-    private Move(int col0, int row0, int col1, int row1) {
+    /** The move COL0 ROW0 - COL1 ROW1 on boards of GEOMETRY, whose
+     *  identifying number is ID.  The columns and rows are numbered from
+     *  0 at the outside of the border.  This must be a legal move. */
+    Move(Geometry geometry, int id, int col0, int row0, int col1,
+         int row1) {
+        _geometry = geometry;
+        _id = id;
         _col0 = (char) (col0 + 'a' - 2);
         _row0 = (char) (row0 + '1' - 2);
         _col1 = (char) (col1 + 'a' - 2);
         _row1 = (char) (row1 + '1' - 2);
-        _fromIndex = row0 * EXTENDED_SIDE + col0;
-        _toIndex = row1 * EXTENDED_SIDE + col1;
+        _fromIndex = row0 * geometry.extendedSide() + col0;
+        _toIndex = row1 * geometry.extendedSide() + col1;
         if ((Math.abs(_col1 - _col0) <= 1) && Math.abs(_row1 - _row0) <= 1) {
             _isExtend = true;
             _isJump = false;
@@ -38,8 +41,10 @@ class Move {
         }
     }
 
-    /** A pass. */
-    private Move() {
+    /** The pass on boards of GEOMETRY. */
+    Move(Geometry geometry) {
+        _geometry = geometry;
+        _id = geometry.passId();
         _col0 = _col1 = _row0 = _row1 = 0;
         _fromIndex = _toIndex = -1;
         _isJump = _isExtend = false;
@@ -52,24 +57,18 @@ class Move {
      *  may go into the border layers). */
     static Move move(char col0, char row0, char col1, char row1) {
         assert col0 >= 'a' && row0 >= '1' && col1 >= 'a' - 2 && row1 >= '1' - 2;
-        return
-            ALL_MOVES[col0 - 'a' + 2][row0 - '1' + 2]
-            [col1 - 'a' + 2][row1 - '1' + 2];
+        return STANDARD.move(col0, row0, col1, row1);
+    }
+
+    /** Return the Move whose id() is ID.  PASS_ID denotes a pass. */
+    static Move move(int id) {
+        return STANDARD.move(id);
     }
 
     /** Return the Move denoted by STR, or null if STR is not a syntactically
      *  valid move designation. */
     static Move move(String str) {
-        Matcher mat = MOVE_PATN.matcher(str);
-        if (!mat.matches()) {
-            return null;
-        } else if (mat.group(1) != null) {
-            String moveStr = mat.group(1);
-            return move(moveStr.charAt(0), moveStr.charAt(1),
-                        moveStr.charAt(3), moveStr.charAt(4));
-        } else {
-            return pass();
-        }
+        return STANDARD.move(str);
     }
 
     /** Returns a pass. */
@@ -77,9 +76,20 @@ class Move {
         return PASS;
     }
 
+    /** Return the Geometry of the boards I am a move on. */
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    /** Return my identifying number: a value in 0 .. NUM_MOVES - 1, or
+     *  PASS_ID if I am a pass. */
+    int id() {
+        return _id;
+    }
+
     /** Return true iff I am a pass. */
     boolean isPass() {
-        return this == PASS;
+        return _fromIndex < 0;
     }
 
     /** Return true if this is an extension (move to adjacent square). */
@@ -133,18 +143,76 @@ class Move {
         return string + _row0 + "-" + _col1 + _row1;
     }
 
-    /** Syntax of a move.  Groups capture row and column. */
-    private static final Pattern MOVE_PATN =
-        Pattern.compile("([a-z][1-9a-f]-[a-z][1-9a-f])|(-)");
-
     /** Size of a side of the board. */
     static final int SIDE = 7;
 
     /** Size of side of a board plus 2-deep boundary. */
     static final int EXTENDED_SIDE = SIDE + 4;
 
+    /** Number of squares within two rows and columns of a square, other
+     *  than itself: the possible destinations of a move. */
+    static final int NUM_TARGETS = 24;
+
+    /** Number of distinct Moves other than pass. */
+    static final int NUM_MOVES = SIDE * SIDE * NUM_TARGETS;
+
+    /** The id() of the pass. */
+    static final int PASS_ID = NUM_MOVES;
+
+    /** Number of squares adjacent to a square: the possible destinations
+     *  of an extend, and the squares captured by a move. */
+    static final int NUM_NEIGHBORS = 8;
+
+    /** Number of squares exactly two rows or columns from a square: the
+     *  possible destinations of a jump. */
+    static final int NUM_JUMPS = NUM_TARGETS - NUM_NEIGHBORS;
+
+    /** The Geometry of the standard board. */
+    static final Geometry STANDARD = Geometry.of(SIDE);
+
     /** The pass. */
-    static final Move PASS = new Move();
+    static final Move PASS = STANDARD.pass();
+
+    /* Per-square tables for the standard board, indexed by linearized
+     * index (as for Board.index).  They are filled in only for squares
+     * on the real board, but the targets they list may be border
+     * squares, which are always blocked.  These arrays must not be
+     * modified.  The same tables for other sizes come from Geometry. */
+
+    /** The neighbors of square SQ are NEIGHBORS[SQ * NUM_NEIGHBORS + k]
+     *  for 0 <= k < NUM_NEIGHBORS. */
+    static final int[] NEIGHBORS = STANDARD.neighbors();
+
+    /** EXTEND_IDS[SQ * NUM_NEIGHBORS + k] is the id() of the extend from
+     *  SQ to NEIGHBORS[SQ * NUM_NEIGHBORS + k]. */
+    static final int[] EXTEND_IDS = STANDARD.extendIds();
+
+    /** The jump destinations from square SQ are
+     *  JUMP_TARGETS[SQ * NUM_JUMPS + k] for 0 <= k < NUM_JUMPS. */
+    static final int[] JUMP_TARGETS = STANDARD.jumpTargets();
+
+    /** JUMP_IDS[SQ * NUM_JUMPS + k] is the id() of the jump from SQ to
+     *  JUMP_TARGETS[SQ * NUM_JUMPS + k]. */
+    static final int[] JUMP_IDS = STANDARD.jumpIds();
+
+    /** The destinations of all moves from square SQ, in order of id(),
+     *  are TARGETS[SQ * NUM_TARGETS + k] for 0 <= k < NUM_TARGETS.  The
+     *  id() of the move to TARGETS[SQ * NUM_TARGETS + k] is
+     *  FIRST_IDS[SQ] + k. */
+    static final int[] TARGETS = STANDARD.targets();
+
+    /** The linearized indices of the squares on the real board. */
+    static final int[] SQUARES = STANDARD.squares();
+
+    /** FIRST_IDS[SQ] is the smallest id() of a move from SQ, or -1 if SQ
+     *  is not on the real board. */
+    static final int[] FIRST_IDS = STANDARD.firstIds();
+
+    /** The Geometry of my boards. */
+    private final Geometry _geometry;
+
+    /** Identifying number. */
+    private final int _id;
 
     /** Linearized indices. */
     private final int _fromIndex, _toIndex;
@@ -154,24 +222,4 @@ class Move {
 
     /** From and two squares, or 0s if a pass. */
     private char _col0, _row0, _col1, _row1;
-
-    /** The set of all Moves other than pass, indexed by from and to column and
-     *  row positions. */
-    private static final Move[][][][] ALL_MOVES =
-        new Move[EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE];
-
-    static {
-        for (int c = 2; c < SIDE + 2; c += 1) {
-            for (int r = 2; r < SIDE + 2; r += 1) {
-                for (int dc = -2; dc <= 2; dc += 1) {
-                    for (int dr = -2; dr <= 2; dr += 1) {
-                        if (dc != 0 || dr != 0) {
-                            ALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
-                        }
-                    }
-                }
-            }
-        }
-    }
 }
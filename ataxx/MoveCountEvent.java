@@ -0,0 +1,59 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/** A periodic flight-recorder event reporting how many calls to
+ *  Board.makeMove (on any board) occurred since the previous sample.
+ *  Sampling a shared counter, rather than emitting one event per move,
+ *  keeps the cost on the search path down to a single counter increment.
+ *  @author Ezra Apple
+ */
+@Name("ataxx.MoveCount")
+@Label("Board Move Count")
+@Category({"Ataxx", "Board"})
+@Description("Board.makeMove calls since the previous sample.")
+@Period("1 s")
+@StackTrace(false)
+class MoveCountEvent extends Event {
+
+    /** Moves made since the previous sample. */
+    @Label("Moves")
+    long moves;
+
+    /** Register the periodic hook that emits this event.  Only the first
+     *  call has any effect. */
+    static synchronized void register() {
+        if (!_registered) {
+            _registered = true;
+            FlightRecorder.addPeriodicEvent(MoveCountEvent.class,
+                                            MoveCountEvent::emit);
+        }
+    }
+
+    /** Commit one sample of the move counter. */
+    private static void emit() {
+        long total = Board.totalMovesMade();
+        MoveCountEvent event = new MoveCountEvent();
+        event.moves = total - _lastTotal;
+        _lastTotal = total;
+        event.commit();
+    }
+
+    /** Value of Board.totalMovesMade() at the previous sample. */
+    private static long _lastTotal;
+
+    /** True iff register() has been called. */
+    private static boolean _registered;
+
+}
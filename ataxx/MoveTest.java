@@ -60,4 +60,66 @@ public class MoveTest {
 
         assertEquals("wrong string for pass", "-", pass().toString());
     }
+
+    @Test
+    public void testIds() {
+        assertSame("bad pass id", pass(), move(PASS_ID));
+        assertEquals("bad pass id", PASS_ID, pass().id());
+        for (int id = 0; id < NUM_MOVES; id += 1) {
+            Move m = move(id);
+            assertNotNull(m);
+            assertEquals("id does not round-trip", id, m.id());
+            assertSame("char lookup disagrees with id", m,
+                       move(m.col0(), m.row0(), m.col1(), m.row1()));
+        }
+        assertNull("move too long", move('a', '1', 'd', '1'));
+        assertNull("move to self", move('c', '3', 'c', '3'));
+    }
+
+    @Test
+    public void testTables() {
+        int sq = Board.index('c', '3');
+        for (int k = 0; k < NUM_NEIGHBORS; k += 1) {
+            Move m = move(EXTEND_IDS[sq * NUM_NEIGHBORS + k]);
+            assertTrue("neighbor not an extend", m.isExtend());
+            assertEquals(NEIGHBORS[sq * NUM_NEIGHBORS + k], m.toIndex());
+            assertEquals(sq, m.fromIndex());
+        }
+        for (int k = 0; k < NUM_JUMPS; k += 1) {
+            Move m = move(JUMP_IDS[sq * NUM_JUMPS + k]);
+            assertTrue("jump target not a jump", m.isJump());
+            assertEquals(JUMP_TARGETS[sq * NUM_JUMPS + k], m.toIndex());
+        }
+        for (int k = 0; k < NUM_TARGETS; k += 1) {
+            Move m = move(FIRST_IDS[sq] + k);
+            assertEquals(TARGETS[sq * NUM_TARGETS + k], m.toIndex());
+        }
+        assertEquals("a1 is not the first square",
+                     Board.index('a', '1'), SQUARES[0]);
+    }
+
+    @Test
+    public void testGeometries() {
+        assertSame(Move.STANDARD, Geometry.of(Board.SIDE));
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side += 1) {
+            Geometry g = Geometry.of(side);
+            assertSame(g, Geometry.of(side));
+            assertEquals(side * side * NUM_TARGETS, g.numMoves());
+            assertEquals(side * side, g.squares().length);
+            for (int id = 0; id < g.numMoves(); id += 1) {
+                Move m = g.move(id);
+                assertEquals(id, m.id());
+                assertSame(g, m.geometry());
+                if (g.onBoard(m.col1(), m.row1())) {
+                    assertSame(m, g.move(m.toString()));
+                }
+                assertEquals(m.toIndex(),
+                             g.index(m.col1(), m.row1()));
+            }
+            assertTrue(g.move(g.passId()).isPass());
+            assertNull("move off the board",
+                       g.move((char) (g.lastCol() + 1), '1', 'a', '1'));
+        }
+    }
 }
@@ -4,11 +4,27 @@
 
 package ataxx;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /** A generic Ataxx Player.
  *  @author P. N. Hilfinger
  */
 abstract class Player {
 
+    /** Runs the work of players that take a long time over a move (as
+     *  by computing it or waiting for another process), so that they do
+     *  not tie up the executor of the game they are in.  Threads are
+     *  added as needed. */
+    static final ExecutorService BACKGROUND =
+        Executors.newCachedThreadPool((r) -> {
+            Thread t = new Thread(r, "player-background");
+            t.setDaemon(true);
+            return t;
+        });
+
     /** A Player that will play MYCOLOR in GAME. */
     Player(Game game, PieceColor myColor) {
         _game = game;
@@ -36,10 +52,34 @@ abstract class Player {
         return _game.getBoard();
     }
 
+    /** Ask me to finish computing my current move as soon as possible,
+     *  playing the best move found so far.  May be called from any
+     *  thread.  Does nothing by default. */
+    void moveNow() {
+    }
+
+    /** Release any resources I hold; I will not be asked for more
+     *  moves.  Does nothing by default. */
+    void close() {
+    }
+
     /** Return a legal move or command for my side. Assumes that
      *  board.whoseMove() == myColor() and that the game is not over. */
     abstract String getMove();
 
+    /** Return a future that completes with what getMove() would return,
+     *  under the same assumptions, without blocking the caller.  Any
+     *  work on the game (reporting the move, for example) is done on
+     *  EXECUTOR, the game's.  By default, this runs getMove as a task on
+     *  EXECUTOR, which suits players that answer at once.  Players that
+     *  wait for input or take long to compute override it: Manual waits
+     *  on the game's CommandSource, which need hold no thread (see
+     *  QueuedSource), and AI, MCTS, and ExternalEngine work on threads
+     *  of their own and complete on EXECUTOR. */
+    CompletableFuture<String> requestMove(Executor executor) {
+        return CompletableFuture.supplyAsync(this::getMove, executor);
+    }
+
     /** The game I am playing in. */
     private final Game _game;
     /** The color of my pieces. */
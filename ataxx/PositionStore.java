@@ -0,0 +1,409 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** A persistent cache of search results, kept in a memory-mapped file
+ *  shared by every game and process that opens it, so that a position
+ *  searched once (typically an endgame reached again and again in
+ *  self-play) need not be searched again.
+ *
+ *  A position is keyed by a Zobrist hash of the least of its eight images
+ *  under the symmetries of the square, so the eight positions that differ
+ *  only by rotation and reflection share one entry.  The best move is
+ *  stored in the coordinates of that image and mapped back on probing.
+ *  The key also covers the count of consecutive jumps, which decides
+ *  whether the jump limit is in reach, and the kind of search that found
+ *  the result (for the AI, its tuning), since searches tuned differently
+ *  reach different results at the same depth.
+ *
+ *  The file is a header followed by a fixed number of buckets of SLOTS
+ *  records, which bounds its size.  A position can be in only one bucket.
+ *  A new entry replaces one for the same position searched less deeply, or
+ *  else evicts the least valuable record in its bucket: an empty one, or
+ *  else the shallowest, where records written by earlier runs (each
+ *  opening of the store starts a new generation) count as AGE_PENALTY
+ *  plies shallower.  Proven results outlast all others.
+ *
+ *  Each record is two longs, the data and the key XORed with the data.
+ *  Readers take no locks: a record that a writer in another process has
+ *  half overwritten fails the check and reads as a miss.  Writers lock
+ *  the bucket they write, with a FileLock so that processes exclude one
+ *  another.
+ *  @author Ezra Apple
+ */
+class PositionStore {
+
+    /** Default number of buckets in a new store (4 MiB). */
+    static final int DEFAULT_BUCKETS = 1 << 16;
+    /** Records per bucket. */
+    static final int SLOTS = 4;
+    /** Depth recorded for results that are proven wins or losses, which
+     *  are good at any depth. */
+    static final int EXACT_DEPTH = 255;
+
+    /** A stored result. */
+    static class Entry {
+
+        /** A result for a search to DEPTH plies that found move MOVE with
+         *  score SCORE. */
+        Entry(int depth, int score, Move move) {
+            _depth = depth;
+            _score = score;
+            _move = move;
+        }
+
+        /** Return the depth searched, or EXACT_DEPTH. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Return the score, positive favoring red. */
+        int score() {
+            return _score;
+        }
+
+        /** Return the move found. */
+        Move move() {
+            return _move;
+        }
+
+        /** Depth searched. */
+        private final int _depth;
+        /** Score. */
+        private final int _score;
+        /** Move found. */
+        private final Move _move;
+    }
+
+    /** Open the store in FILE, creating it with BUCKETS buckets if it does
+     *  not exist, and start a new generation. */
+    PositionStore(String file, int buckets) {
+        _file = file;
+        try {
+            _channel =
+                FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                                 StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE);
+            synchronized (PositionStore.class) {
+                FileLock lock = _channel.lock(0, HEADER, false);
+                try {
+                    long size = _channel.size();
+                    if (size == 0) {
+                        _data = _channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                             HEADER + (long) buckets * BUCKET);
+                        _data.putLong(0, MAGIC);
+                        _data.putInt(BUCKETS_OFFSET, buckets);
+                    } else {
+                        _data = _channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                             size);
+                        if (size < HEADER || _data.getLong(0) != MAGIC
+                            || size != HEADER + (long) BUCKET
+                               * _data.getInt(BUCKETS_OFFSET)) {
+                            throw error("%s is not a position store", file);
+                        }
+                    }
+                    _buckets = _data.getInt(BUCKETS_OFFSET);
+                    _generation =
+                        (_data.getInt(GENERATION_OFFSET) + 1) & 0xff;
+                    _data.putInt(GENERATION_OFFSET, _generation);
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException excp) {
+            throw error("cannot open position store %s: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the name of my file. */
+    String file() {
+        return _file;
+    }
+
+    /** Return the number of buckets. */
+    int buckets() {
+        return _buckets;
+    }
+
+    /** Return the stored result of a search of kind KIND for the position
+     *  on BOARD, or null if there is none. */
+    Entry probe(Board board, String kind) {
+        long[] key = key(board, kind);
+        int base = bucket(key[0]);
+        for (int i = 0; i < SLOTS; i += 1) {
+            int at = base + i * RECORD;
+            long data = _data.getLong(at + 8);
+            if ((_data.getLong(at) ^ data) != key[0] || data == 0) {
+                continue;
+            }
+            int code = (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+            Move move = toMove(board, code, (int) key[1]);
+            if (move == null || !board.legalMove(move)) {
+                return null;
+            }
+            int depth = (int) (data >>> DEPTH_SHIFT) & 0xff;
+            return new Entry(depth, (int) data, move);
+        }
+        return null;
+    }
+
+    /** Record that a search of kind KIND of the position on BOARD to DEPTH
+     *  plies (or EXACT_DEPTH) found MOVE with score SCORE, unless a deeper
+     *  result for it is already stored. */
+    void store(Board board, String kind, int depth, int score, Move move) {
+        long[] key = key(board, kind);
+        int base = bucket(key[0]);
+        long data = (score & 0xffffffffL)
+            | (long) fromMove(board, move, (int) key[1]) << MOVE_SHIFT
+            | (long) Math.min(depth, EXACT_DEPTH) << DEPTH_SHIFT
+            | (long) _generation << GENERATION_SHIFT;
+        synchronized (PositionStore.class) {
+            try {
+                FileLock lock = _channel.lock(base, BUCKET, false);
+                try {
+                    write(base, key[0], depth, data);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException excp) {
+                throw error("cannot write position store %s: %s", _file,
+                            excp.getMessage());
+            }
+        }
+    }
+
+    /** Write the record of DATA, a result of a search to DEPTH plies of
+     *  the position whose key is KEY, into the bucket at BASE, replacing
+     *  the position's old result or the least valuable record, unless the
+     *  old result is deeper.  The bucket must be locked. */
+    private void write(int base, long key, int depth, long data) {
+        int victim = -1, victimValue = Integer.MAX_VALUE;
+        for (int i = 0; i < SLOTS; i += 1) {
+            int at = base + i * RECORD;
+            long old = _data.getLong(at + 8);
+            int oldDepth = (int) (old >>> DEPTH_SHIFT) & 0xff;
+            int value;
+            if ((_data.getLong(at) ^ old) == key && old != 0) {
+                if (oldDepth > depth) {
+                    return;
+                }
+                victim = i;
+                break;
+            } else if (old == 0) {
+                value = -1;
+            } else {
+                value = oldDepth;
+                int generation = (int) (old >>> GENERATION_SHIFT);
+                if ((generation & 0xff) == _generation) {
+                    value += AGE_PENALTY;
+                }
+            }
+            if (value < victimValue) {
+                victim = i;
+                victimValue = value;
+            }
+        }
+        int at = base + victim * RECORD;
+        _data.putLong(at + 8, data);
+        _data.putLong(at, key ^ data);
+    }
+
+    /** Return the offset of the bucket for KEY. */
+    private int bucket(long key) {
+        return HEADER + (int) Long.remainderUnsigned(key, _buckets) * BUCKET;
+    }
+
+    /** Return the key of the position on BOARD, as searched by a search
+     *  of kind KIND, and the symmetry that takes it to the image from
+     *  which the key is computed. */
+    private static long[] key(Board board, String kind) {
+        int side = board.side();
+        int[] squares = board.geometry().squares();
+        int[][] maps = SYMMETRIES[side];
+        long[] hashes = new long[NUM_SYMMETRIES];
+        for (int k = 0; k < squares.length; k += 1) {
+            PieceColor p = board.get(squares[k]);
+            if (p != EMPTY) {
+                long[] keys = SQUARE_KEYS[p.ordinal()];
+                for (int t = 0; t < NUM_SYMMETRIES; t += 1) {
+                    hashes[t] ^= keys[maps[t][k]];
+                }
+            }
+        }
+        int best = 0;
+        for (int t = 1; t < NUM_SYMMETRIES; t += 1) {
+            if (Long.compareUnsigned(hashes[t], hashes[best]) < 0) {
+                best = t;
+            }
+        }
+        long extra = SIZE_KEYS[side] ^ JUMP_KEYS[board.numJumps()]
+            ^ (board.whoseMove() == BLUE ? BLUE_TO_MOVE : 0);
+        for (int i = 0; i < kind.length(); i += 1) {
+            extra = (extra ^ kind.charAt(i)) * KIND_MULTIPLIER;
+        }
+        return new long[] { hashes[best] ^ extra, best };
+    }
+
+    /** Return the code of MOVE on BOARD, as seen in the image of BOARD
+     *  under symmetry T. */
+    private static int fromMove(Board board, Move move, int t) {
+        if (move.isPass()) {
+            return PASS_CODE;
+        }
+        int[] map = SYMMETRIES[board.side()][t];
+        int side = board.side();
+        int from = (move.col0() - 'a') * side + move.row0() - '1',
+            to = (move.col1() - 'a') * side + move.row1() - '1';
+        return map[from] << SLOT_BITS | map[to];
+    }
+
+    /** Return the move on BOARD whose code in the image of BOARD under
+     *  symmetry T is CODE, or null if there is none. */
+    private static Move toMove(Board board, int code, int t) {
+        if (code == PASS_CODE) {
+            return board.geometry().pass();
+        }
+        int side = board.side();
+        int[] map = SYMMETRIES[side][INVERSES[t]];
+        int from = map[code >>> SLOT_BITS], to = map[code & SLOT_MASK];
+        return board.geometry().move((char) ('a' + from / side),
+                                     (char) ('1' + from % side),
+                                     (char) ('a' + to / side),
+                                     (char) ('1' + to % side));
+    }
+
+    /** Return the column-major slot, on a board SIDE squares on a side, of
+     *  the image of column C, row R (numbered from 0) under symmetry T:
+     *  transposition if bit 2 of T is set, then reflection of the columns
+     *  if bit 0 is set and of the rows if bit 1 is set. */
+    private static int image(int t, int c, int r, int side) {
+        if ((t & 4) != 0) {
+            int tmp = c;
+            c = r;
+            r = tmp;
+        }
+        if ((t & 1) != 0) {
+            c = side - 1 - c;
+        }
+        if ((t & 2) != 0) {
+            r = side - 1 - r;
+        }
+        return c * side + r;
+    }
+
+    /** Marks a position store file. */
+    private static final long MAGIC = 0x4154415858505331L;
+    /** Size of the header, a record, and a bucket, in bytes. */
+    private static final int HEADER = 64, RECORD = 16,
+        BUCKET = SLOTS * RECORD;
+    /** Offsets in the header of the number of buckets and the current
+     *  generation. */
+    private static final int BUCKETS_OFFSET = 8, GENERATION_OFFSET = 12;
+    /** Positions in a record's data of the move, depth and generation (the
+     *  score takes the low 32 bits). */
+    private static final int MOVE_SHIFT = 32, DEPTH_SHIFT = 46,
+        GENERATION_SHIFT = 54;
+    /** Bits in a square's slot number, and the mask for them. */
+    private static final int SLOT_BITS = 7, SLOT_MASK = (1 << SLOT_BITS) - 1;
+    /** Mask for a move's code, and the code of a pass. */
+    private static final int MOVE_MASK = (1 << (2 * SLOT_BITS)) - 1,
+        PASS_CODE = MOVE_MASK;
+    /** Plies by which records from earlier generations count as
+     *  shallower when choosing one to evict. */
+    private static final int AGE_PENALTY = 4;
+    /** Number of symmetries of the square. */
+    private static final int NUM_SYMMETRIES = 8;
+
+    /** SYMMETRIES[SIDE][T][K] is the image under symmetry T of the square
+     *  whose column-major slot is K, on a board SIDE squares on a side. */
+    private static final int[][][] SYMMETRIES =
+        new int[Geometry.MAX_SIDE + 1][NUM_SYMMETRIES][];
+    /** INVERSES[T] is the symmetry that undoes symmetry T. */
+    private static final int[] INVERSES = new int[NUM_SYMMETRIES];
+    /** SQUARE_KEYS[P.ordinal()][K] is the hash of a square whose slot is K
+     *  holding P. */
+    private static final long[][] SQUARE_KEYS =
+        new long[PieceColor.values().length][];
+    /** SIZE_KEYS[SIDE] is the hash of a board SIDE squares on a side. */
+    private static final long[] SIZE_KEYS = new long[Geometry.MAX_SIDE + 1];
+    /** JUMP_KEYS[J] is the hash of J consecutive jumps. */
+    private static final long[] JUMP_KEYS = new long[Board.JUMP_LIMIT + 1];
+    /** Hash of blue being to move. */
+    private static final long BLUE_TO_MOVE;
+    /** Multiplier that mixes each character of a search's kind into a
+     *  key (that of 64-bit FNV-1a). */
+    private static final long KIND_MULTIPLIER = 0x100000001b3L;
+
+    static {
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side += 1) {
+            for (int t = 0; t < NUM_SYMMETRIES; t += 1) {
+                int[] map = SYMMETRIES[side][t] = new int[side * side];
+                for (int c = 0; c < side; c += 1) {
+                    for (int r = 0; r < side; r += 1) {
+                        map[c * side + r] = image(t, c, r, side);
+                    }
+                }
+            }
+        }
+        for (int t = 0; t < NUM_SYMMETRIES; t += 1) {
+            for (int u = 0; u < NUM_SYMMETRIES; u += 1) {
+                if (undoes(u, t)) {
+                    INVERSES[t] = u;
+                }
+            }
+        }
+        Random random = new Random(0x61746178L);
+        for (PieceColor p : PieceColor.values()) {
+            SQUARE_KEYS[p.ordinal()] =
+                random.longs(Geometry.MAX_SIDE * Geometry.MAX_SIDE)
+                .toArray();
+        }
+        for (int side = 0; side <= Geometry.MAX_SIDE; side += 1) {
+            SIZE_KEYS[side] = random.nextLong();
+        }
+        BLUE_TO_MOVE = random.nextLong();
+        for (int j = 0; j <= Board.JUMP_LIMIT; j += 1) {
+            JUMP_KEYS[j] = random.nextLong();
+        }
+    }
+
+    /** Return true iff symmetry U undoes symmetry T. */
+    private static boolean undoes(int u, int t) {
+        int side = Geometry.MIN_SIDE;
+        for (int c = 0; c < side; c += 1) {
+            for (int r = 0; r < side; r += 1) {
+                int k = image(t, c, r, side);
+                if (image(u, k / side, k % side, side) != c * side + r) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Name of my file. */
+    private final String _file;
+    /** Channel to my file, kept open for locking. */
+    private FileChannel _channel;
+    /** The header and buckets. */
+    private MappedByteBuffer _data;
+    /** Number of buckets. */
+    private int _buckets;
+    /** Generation of the records I write. */
+    private int _generation;
+}
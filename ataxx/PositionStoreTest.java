@@ -0,0 +1,71 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test the PositionStore's keys, replacement, and file.
+ *  @author Ezra Apple
+ */
+public class PositionStoreTest {
+
+    @Test
+    public void testPositionStore() throws IOException {
+        File file = File.createTempFile("ataxx", ".store");
+        file.delete();
+        file.deleteOnExit();
+        PositionStore store = new PositionStore(file.getPath(), 2);
+        String kind = AI.DEFAULT_TUNING.toString();
+        Board b = new Board();
+        BoardTest.makeMoves(b, new String[] { "a7-b6", "g7-f7" });
+        store.store(b, kind, 4, 17, Move.move("b6-c5"));
+
+        Board mirror = new Board();
+        BoardTest.makeMoves(mirror, new String[] { "g1-f2", "g7-g6" });
+        PositionStore.Entry e = store.probe(mirror, kind);
+        assertNotNull("mirror image not found", e);
+        assertEquals(4, e.depth());
+        assertEquals(17, e.score());
+        assertEquals(Move.move("f2-e3"), e.move());
+        Board rotated = new Board();
+        BoardTest.makeMoves(rotated, new String[] { "g1-f2", "a1-b1" });
+        assertEquals(Move.move("f2-e3"), store.probe(rotated, kind).move());
+        assertNull("position not stored found",
+                   store.probe(new Board(), kind));
+        Board jumped = new Board();
+        jumped.setPosition(b.position().replaceAll("0$", "1"));
+        assertNull("result found at another jump count",
+                   store.probe(jumped, kind));
+        assertNull("result found for another search",
+                   store.probe(b, AI.FULL_WIDTH.toString()));
+
+        store.store(b, kind, 3, 5, Move.move("b6-b5"));
+        assertEquals("shallower result replaced deeper", 17,
+                     store.probe(b, kind).score());
+        store.store(b, kind, PositionStore.EXACT_DEPTH, 99,
+                    Move.move("b6-b5"));
+        assertEquals(Move.move("b6-b5"), store.probe(b, kind).move());
+
+        PositionStore other = new PositionStore(file.getPath(), 1000);
+        assertEquals(2, other.buckets());
+        assertEquals(99, other.probe(mirror, kind).score());
+        Random rand = new Random(7);
+        int found = 0;
+        for (int i = 0; i < 40; i++) {
+            Board p = BoardTest.randomPlay(new Board(), rand, 6);
+            other.store(p, kind, 1, i, AI.possibleMoves(p).get(0));
+            found += other.probe(p, kind) == null ? 0 : 1;
+        }
+        assertEquals("new entry not found", 40, found);
+        assertEquals("deep entry of earlier run evicted", 99,
+                     other.probe(b, kind).score());
+        assertEquals(64 + 2 * PositionStore.SLOTS * 16, file.length());
+    }
+}
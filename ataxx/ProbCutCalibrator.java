@@ -0,0 +1,231 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Fits the parameters of the AI's ProbCut from pairs of search values.
+ *
+ *  ProbCut predicts the value of a search to DEEP plies from that of a
+ *  search to SHALLOW plies as slope * shallow + offset, with normally
+ *  distributed error of standard deviation sigma.  This tool logs pairs
+ *  of values from searches of sample positions to a file, one pair per
+ *  line as
+ *      DEEP SHALLOW SHALLOW-VALUE DEEP-VALUE
+ *  and fits the parameters to all the pairs in the file for the given
+ *  depths by least squares.  It prints the fit and the corresponding
+ *  --tuning setting.
+ *
+ *  Sample positions are reached from the initial position by a random
+ *  number of random moves.  Positions whose values are wins are skipped,
+ *  since their values say nothing about the fit.  The searches use the
+ *  AI's current tuning (Main.tuning(), changed by --tuning=SPEC) without
+ *  ProbCut.
+ *  Usage: java ataxx.ProbCutCalibrator FILE DEEP SHALLOW
+ *             [POSITIONS [SEED]] [--tuning=SPEC]
+ *  where POSITIONS (default 0) is the number of new positions to sample
+ *  and SEED (default 0) seeds their choice.
+ *  @author Ezra Apple
+ */
+class ProbCutCalibrator {
+
+    /** Most random moves played to reach a sample position. */
+    static final int MAX_PLIES = 60;
+
+    /** Run the calibrator with ARGS as described in the class comment. */
+    public static void main(String[] args) {
+        AI.Tuning tuning = Main.tuning();
+        List<String> operands = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--tuning=")) {
+                tuning = tuning.with(arg.substring("--tuning=".length()));
+            } else {
+                operands.add(arg);
+            }
+        }
+        if (operands.size() < 3 || operands.size() > 5) {
+            System.err.println("Usage: java ataxx.ProbCutCalibrator FILE DEEP"
+                               + " SHALLOW [POSITIONS [SEED]]"
+                               + " [--tuning=SPEC]");
+            System.exit(1);
+        }
+        try {
+            String file = operands.get(0);
+            int deep = Integer.parseInt(operands.get(1)),
+                shallow = Integer.parseInt(operands.get(2));
+            int positions = operands.size() > 3
+                ? Integer.parseInt(operands.get(3)) : 0;
+            long seed = operands.size() > 4
+                ? Long.parseLong(operands.get(4)) : 0;
+            if (shallow < 0 || shallow >= deep) {
+                throw GameException.error("need 0 <= SHALLOW < DEEP");
+            }
+            if (positions > 0) {
+                sample(file, deep, shallow, positions, new Random(seed),
+                       tuning.with("probcut-depth=0"));
+            }
+            Fit fit = fit(read(file, deep, shallow));
+            System.out.println(fit);
+            System.out.printf("--tuning=probcut-depth=%d,probcut-shallow=%d,"
+                              + "probcut-slope=%.3f,probcut-offset=%.3f,"
+                              + "probcut-sigma=%.3f%n", deep, shallow,
+                              fit.slope(), fit.offset(), fit.sigma());
+        } catch (NumberFormatException excp) {
+            System.err.println("bad number: " + excp.getMessage());
+            System.exit(1);
+        } catch (IOException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Append to FILE the values of POSITIONS sample positions, chosen
+     *  using RAND, searched to DEEP and SHALLOW plies by an AI tuned by
+     *  TUNING. */
+    static void sample(String file, int deep, int shallow, int positions,
+                       Random rand, AI.Tuning tuning) throws IOException {
+        AI ai = new AI(null, PieceColor.RED, 0, tuning);
+        try (PrintWriter out =
+             new PrintWriter(new FileWriter(file, true))) {
+            int n = 0;
+            while (n < positions) {
+                Board board = samplePosition(rand);
+                if (board == null) {
+                    continue;
+                }
+                int low = ai.value(board, shallow),
+                    high = ai.value(board, deep);
+                if (Math.abs(low) >= AI.WINNING_VALUE
+                    || Math.abs(high) >= AI.WINNING_VALUE) {
+                    continue;
+                }
+                out.printf("%d %d %d %d%n", deep, shallow, low, high);
+                n += 1;
+            }
+        }
+    }
+
+    /** Return a position reached by a random number of random moves
+     *  chosen using RAND, or null if the game ended. */
+    static Board samplePosition(Random rand) {
+        Board board = new Board();
+        for (int k = rand.nextInt(MAX_PLIES); k > 0; k -= 1) {
+            List<Move> moves = AI.possibleMoves(board);
+            board.makeMove(moves.get(rand.nextInt(moves.size())));
+            if (board.getWinner() != null) {
+                return null;
+            }
+        }
+        return board;
+    }
+
+    /** Return the pairs of shallow and deep values for searches to
+     *  SHALLOW and DEEP plies logged in FILE. */
+    static List<int[]> read(String file, int deep, int shallow)
+        throws IOException {
+        List<int[]> pairs = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length != 4) {
+                    throw GameException.error("bad line in %s: %s", file,
+                                              line);
+                }
+                if (Integer.parseInt(fields[0]) == deep
+                    && Integer.parseInt(fields[1]) == shallow) {
+                    pairs.add(new int[] { Integer.parseInt(fields[2]),
+                                          Integer.parseInt(fields[3]) });
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /** A least-squares fit of deep values to shallow ones. */
+    static class Fit {
+
+        /** A fit to N pairs of deep = SLOPE * shallow + OFFSET, with
+         *  residuals of standard deviation SIGMA and correlation
+         *  CORRELATION between shallow and deep values. */
+        Fit(int n, double slope, double offset, double sigma,
+            double correlation) {
+            _n = n;
+            _slope = slope;
+            _offset = offset;
+            _sigma = sigma;
+            _correlation = correlation;
+        }
+
+        /** Return the slope. */
+        double slope() {
+            return _slope;
+        }
+
+        /** Return the offset. */
+        double offset() {
+            return _offset;
+        }
+
+        /** Return the standard deviation of the residuals. */
+        double sigma() {
+            return _sigma;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d pairs: deep = %.3f * shallow + %.3f,"
+                                 + " sigma %.3f, r %.3f", _n, _slope,
+                                 _offset, _sigma, _correlation);
+        }
+
+        /** Number of pairs fitted. */
+        private final int _n;
+        /** Parameters of the fit. */
+        private final double _slope, _offset, _sigma;
+        /** Correlation of the shallow and deep values. */
+        private final double _correlation;
+    }
+
+    /** Return the least-squares fit of the second elements of PAIRS to
+     *  the first. */
+    static Fit fit(List<int[]> pairs) {
+        int n = pairs.size();
+        if (n < 3) {
+            throw GameException.error("too few pairs to fit (%d)", n);
+        }
+        double sx = 0, sy = 0;
+        for (int[] p : pairs) {
+            sx += p[0];
+            sy += p[1];
+        }
+        double mx = sx / n, my = sy / n;
+        double sxx = 0, sxy = 0, syy = 0;
+        for (int[] p : pairs) {
+            double dx = p[0] - mx, dy = p[1] - my;
+            sxx += dx * dx;
+            sxy += dx * dy;
+            syy += dy * dy;
+        }
+        if (sxx == 0) {
+            throw GameException.error("shallow values do not vary");
+        }
+        double slope = sxy / sxx, offset = my - slope * mx;
+        double residual = Math.max(0, syy - slope * sxy);
+        double correlation = syy == 0 ? 1 : sxy / Math.sqrt(sxx * syy);
+        return new Fit(n, slope, offset, Math.sqrt(residual / (n - 2)),
+                       correlation);
+    }
+}
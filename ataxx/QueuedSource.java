@@ -0,0 +1,88 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/** A source of commands that other threads (a display, or a connection
+ *  to a remote player) offer as they arrive.  A request for a command
+ *  that has not yet arrived returns a future that the next offer
+ *  completes, so that a game waiting on this source holds no thread.
+ *  @author Ezra Apple
+ */
+class QueuedSource implements CommandSource {
+
+    /** Add COMMAND to the commands waiting to be read, or give it to the
+     *  pending request, if any.  May be called from any thread.  Does
+     *  nothing once I am closed. */
+    void offer(String command) {
+        CompletableFuture<String> request;
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            request = _request;
+            _request = null;
+            if (request == null) {
+                _commands.add(command);
+                notifyAll();
+                return;
+            }
+        }
+        request.complete(command);
+    }
+
+    /** Mark the end of my commands: once those already offered have been
+     *  read, requests return null. */
+    void close() {
+        CompletableFuture<String> request;
+        synchronized (this) {
+            _closed = true;
+            request = _commands.isEmpty() ? _request : null;
+            _request = null;
+            notifyAll();
+        }
+        if (request != null) {
+            request.complete(null);
+        }
+    }
+
+    @Override
+    public synchronized String getCommand(String ignored) {
+        while (_commands.isEmpty() && !_closed) {
+            try {
+                wait();
+            } catch (InterruptedException excp) {
+                throw new Error("unexpected interrupt");
+            }
+        }
+        return _commands.poll();
+    }
+
+    /** Returns a future that completes with my next command (null if I am
+     *  closed and have none), without using EXECUTOR: a command not yet
+     *  offered completes the future when it is. */
+    @Override
+    public synchronized CompletableFuture<String> requestCommand(
+        String ignored, Executor executor) {
+        if (!_commands.isEmpty() || _closed) {
+            return CompletableFuture.completedFuture(_commands.poll());
+        }
+        if (_request != null) {
+            throw new IllegalStateException("command already requested");
+        }
+        _request = new CompletableFuture<>();
+        return _request;
+    }
+
+    /** Commands offered and not yet read. */
+    private final ArrayDeque<String> _commands = new ArrayDeque<>();
+    /** The pending request, if any. */
+    private CompletableFuture<String> _request;
+    /** True once closed. */
+    private boolean _closed;
+}
@@ -0,0 +1,329 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** A deliberately simple model of the rules of Ataxx, against which
+ *  BoardFuzzer checks Board.
+ *
+ *  It keeps the squares in a plain two-dimensional array, finds moves,
+ *  captures, counts, and mobility by scanning the whole board every time,
+ *  and undoes moves by keeping a copy of the position before each one.
+ *  It is far too slow for play, and that is the point: there is nothing
+ *  in it (incremental counts, reach tables, snapshots, undo records) that
+ *  Board's speed depends on and that could go wrong the same way in both.
+ *  Moves are written as in Move.toString(): "C0R0-C1R1", or "-" for a
+ *  pass.
+ *  @author Ezra Apple
+ */
+class ReferenceBoard {
+
+    /** A board with SIDE squares on a side, in the initial position. */
+    ReferenceBoard(int side) {
+        _side = side;
+        _squares = new PieceColor[side][side];
+        for (PieceColor[] col : _squares) {
+            Arrays.fill(col, EMPTY);
+        }
+        _squares[0][side - 1] = _squares[side - 1][0] = RED;
+        _squares[0][0] = _squares[side - 1][side - 1] = BLUE;
+        _whoseMove = RED;
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the contents of the square in column C and row R,
+     *  where 'a' <= C and '1' <= R are on the board. */
+    PieceColor get(char c, char r) {
+        return _squares[c - 'a'][r - '1'];
+    }
+
+    /** Return the player to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of jumps since the last extend. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the number of moves (including passes) made. */
+    int numMoves() {
+        return _history.size();
+    }
+
+    /** Return the number of moves in the current line: those made,
+     *  followed by any undone and not since replaced. */
+    int lineLength() {
+        return _line.size();
+    }
+
+    /** Return the moves made, in order. */
+    List<String> allMoves() {
+        return _line.subList(0, numMoves());
+    }
+
+    /** Return the number of COLOR pieces on the board. */
+    int numPieces(PieceColor color) {
+        int n = 0;
+        for (PieceColor[] col : _squares) {
+            for (PieceColor p : col) {
+                if (p == color) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of empty squares within two columns and rows
+     *  of some piece of color WHO. */
+    int mobility(PieceColor who) {
+        int n = 0;
+        for (int c = 0; c < _side; c += 1) {
+            for (int r = 0; r < _side; r += 1) {
+                if (_squares[c][r] == EMPTY && reaches(who, c, r)) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return true iff WHO has a move other than a pass. */
+    boolean canMove(PieceColor who) {
+        for (int c = 0; c < _side; c += 1) {
+            for (int r = 0; r < _side; r += 1) {
+                if (_squares[c][r] == EMPTY && reaches(who, c, r)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return true iff some piece of color WHO is within two columns and
+     *  rows of column C, row R (numbered from 0). */
+    private boolean reaches(PieceColor who, int c, int r) {
+        for (int dc = -2; dc <= 2; dc += 1) {
+            for (int dr = -2; dr <= 2; dr += 1) {
+                if (at(c + dc, r + dr) == who) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return the contents of column C, row R (numbered from 0), or
+     *  BLOCKED if that is off the board. */
+    private PieceColor at(int c, int r) {
+        if (c < 0 || r < 0 || c >= _side || r >= _side) {
+            return BLOCKED;
+        }
+        return _squares[c][r];
+    }
+
+    /** Return the winner (EMPTY for a draw), or null if the game is not
+     *  over. */
+    PieceColor winner() {
+        int red = numPieces(RED), blue = numPieces(BLUE);
+        if (red == 0 || blue == 0 || _numJumps >= Board.JUMP_LIMIT
+            || (!canMove(RED) && !canMove(BLUE))) {
+            return red > blue ? RED : red < blue ? BLUE : EMPTY;
+        }
+        return null;
+    }
+
+    /** Return all legal moves for the player to move: every move of one
+     *  of that player's pieces to an empty square within two columns and
+     *  rows, or just a pass if there are none. */
+    List<String> legalMoves() {
+        List<String> moves = new ArrayList<>();
+        for (int c = 0; c < _side; c += 1) {
+            for (int r = 0; r < _side; r += 1) {
+                if (_squares[c][r] != _whoseMove) {
+                    continue;
+                }
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    for (int dr = -2; dr <= 2; dr += 1) {
+                        if (at(c + dc, r + dr) == EMPTY) {
+                            moves.add(name(c, r) + "-"
+                                      + name(c + dc, r + dr));
+                        }
+                    }
+                }
+            }
+        }
+        if (moves.isEmpty()) {
+            moves.add("-");
+        }
+        return moves;
+    }
+
+    /** Return the name of the square in column C and row R (numbered
+     *  from 0). */
+    private static String name(int c, int r) {
+        return "" + (char) ('a' + c) + (char) ('1' + r);
+    }
+
+    /** Return true iff MOVE is legal: a pass by a player who cannot
+     *  move, or a move of one of the player's pieces to an empty square
+     *  within two columns and rows. */
+    boolean legalMove(String move) {
+        if (move.equals("-")) {
+            return !canMove(_whoseMove);
+        } else if (move.length() != 5 || move.charAt(2) != '-') {
+            return false;
+        }
+        int c0 = move.charAt(0) - 'a', r0 = move.charAt(1) - '1',
+            c1 = move.charAt(3) - 'a', r1 = move.charAt(4) - '1';
+        return at(c0, r0) == _whoseMove && at(c1, r1) == EMPTY
+            && Math.abs(c1 - c0) <= 2 && Math.abs(r1 - r0) <= 2;
+    }
+
+    /** Return true iff a block may be placed at CR: no moves have been
+     *  made, and CR and its reflections are empty squares. */
+    boolean legalBlock(String cr) {
+        int c = cr.charAt(0) - 'a', r = cr.charAt(1) - '1';
+        int c1 = _side - 1 - c, r1 = _side - 1 - r;
+        return numMoves() == 0
+            && at(c, r) == EMPTY && at(c1, r) == EMPTY
+            && at(c, r1) == EMPTY && at(c1, r1) == EMPTY;
+    }
+
+    /** Place blocks at CR and its reflections, assuming legalBlock(CR).
+     *  This forgets the current line. */
+    void setBlock(String cr) {
+        int c = cr.charAt(0) - 'a', r = cr.charAt(1) - '1';
+        int c1 = _side - 1 - c, r1 = _side - 1 - r;
+        _squares[c][r] = _squares[c1][r] = BLOCKED;
+        _squares[c][r1] = _squares[c1][r1] = BLOCKED;
+        _line.clear();
+    }
+
+    /** Make MOVE, assuming it is legal.  Making the next move of the
+     *  current line keeps the line; any other move replaces the rest
+     *  of it. */
+    void makeMove(String move) {
+        int ply = numMoves();
+        _history.add(new Position(this));
+        if (ply == _line.size() || !_line.get(ply).equals(move)) {
+            _line.subList(ply, _line.size()).clear();
+            _line.add(move);
+        }
+        if (!move.equals("-")) {
+            int c0 = move.charAt(0) - 'a', r0 = move.charAt(1) - '1',
+                c1 = move.charAt(3) - 'a', r1 = move.charAt(4) - '1';
+            if (Math.abs(c1 - c0) == 2 || Math.abs(r1 - r0) == 2) {
+                _squares[c0][r0] = EMPTY;
+                _numJumps += 1;
+            } else {
+                _numJumps = 0;
+            }
+            _squares[c1][r1] = _whoseMove;
+            for (int dc = -1; dc <= 1; dc += 1) {
+                for (int dr = -1; dr <= 1; dr += 1) {
+                    if (at(c1 + dc, r1 + dr) == _whoseMove.opposite()) {
+                        _squares[c1 + dc][r1 + dr] = _whoseMove;
+                    }
+                }
+            }
+        }
+        _whoseMove = _whoseMove.opposite();
+    }
+
+    /** Undo the last move, assuming there is one.  It stays in the
+     *  current line. */
+    void undo() {
+        _history.remove(_history.size() - 1).restore(this);
+    }
+
+    /** Go to the position after the first PLY moves of the current line,
+     *  assuming 0 <= PLY <= lineLength(). */
+    void goTo(int ply) {
+        while (numMoves() > ply) {
+            undo();
+        }
+        while (numMoves() < ply) {
+            makeMove(_line.get(numMoves()));
+        }
+    }
+
+    /** Return the position in position notation (see Board). */
+    String position() {
+        StringBuilder out = new StringBuilder();
+        for (int r = _side - 1; r >= 0; r -= 1) {
+            int empty = 0;
+            for (int c = 0; c < _side; c += 1) {
+                if (_squares[c][r] == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append(empty);
+                    empty = 0;
+                }
+                out.append(_squares[c][r] == RED ? "r"
+                           : _squares[c][r] == BLUE ? "b" : "x");
+            }
+            if (empty > 0) {
+                out.append(empty);
+            }
+            out.append(r > 0 ? "/" : "");
+        }
+        return out + (_whoseMove == RED ? " r " : " b ") + _numJumps;
+    }
+
+    /** A copy of the squares, side to move, and jump count. */
+    private static class Position {
+
+        /** A copy of the position of BOARD. */
+        Position(ReferenceBoard board) {
+            _squares = new PieceColor[board._side][];
+            for (int c = 0; c < board._side; c += 1) {
+                _squares[c] = board._squares[c].clone();
+            }
+            _whoseMove = board._whoseMove;
+            _numJumps = board._numJumps;
+        }
+
+        /** Set BOARD's position to mine. */
+        void restore(ReferenceBoard board) {
+            board._squares = _squares;
+            board._whoseMove = _whoseMove;
+            board._numJumps = _numJumps;
+        }
+
+        /** The saved state. */
+        private final PieceColor[][] _squares;
+        /** The saved side to move. */
+        private final PieceColor _whoseMove;
+        /** The saved jump count. */
+        private final int _numJumps;
+    }
+
+    /** Number of squares on a side. */
+    private final int _side;
+    /** The squares, indexed by column and row, each from 0. */
+    private PieceColor[][] _squares;
+    /** The player to move. */
+    private PieceColor _whoseMove;
+    /** Jumps since the last extend. */
+    private int _numJumps;
+    /** The position before each move made. */
+    private final List<Position> _history = new ArrayList<>();
+    /** The current line. */
+    private final List<String> _line = new ArrayList<>();
+}
@@ -0,0 +1,375 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** The bulk replay of command scripts run by java ataxx.Main --replay,
+ *  which checks every move of every game in the scripts against the
+ *  rules, as quickly as the scripts can be read.
+ *
+ *  The scripts are read as one session, as they would be by a Game whose
+ *  players are both manual, but with no game, players, or display: moves
+ *  go straight to a Board.  Each line is scanned by hand from a buffer of
+ *  bytes, and a line that is just a move (c0r0-c1r1, in either case, or
+ *  - for a pass) is made without building a String.  Any other line is
+ *  parsed as a Command, and new, block, setup, size, undo, goto, forward,
+ *  back, and quit act as they would in a Game.  As there are no automatic
+ *  players, auto is an error.  The remaining commands do not affect the
+ *  board and are ignored.  Errors are reported with the script and line,
+ *  and replay goes on with the next line, or stops if --strict.  At the
+ *  end, the number of games (stretches of play ended by new, setup, or
+ *  the end of the session) and their results, the moves made, the
+ *  errors, and the speed are printed.
+ *  @author Ezra Apple
+ */
+class Replay {
+
+    /** Bytes read at a time. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Name of the standard input in messages. */
+    static final String STDIN = "-";
+
+    /** Replay the scripts named by NAMES (the standard input if there are
+     *  none, or for "-"), as described in the class comment, and print a
+     *  summary.  Return 0 if there were no errors, and otherwise 1. */
+    static int run(List<String> names) {
+        Replay replay = new Replay(BUFFER_SIZE);
+        long start = System.nanoTime();
+        try {
+            for (String name : names.isEmpty() ? List.of(STDIN) : names) {
+                if (replay.quit()) {
+                    break;
+                } else if (name.equals(STDIN)) {
+                    replay.replay(name, System.in);
+                } else {
+                    try (InputStream in = new FileInputStream(name)) {
+                        replay.replay(name, in);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            System.err.printf("Could not read %s%n", excp.getMessage());
+            return 1;
+        }
+        replay.finish();
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("Games           : %d (red %d, blue %d, drawn %d,"
+                          + " unfinished %d)%n", replay.games(),
+                          replay.wins(RED), replay.wins(BLUE),
+                          replay.wins(EMPTY), replay.unfinished());
+        System.out.printf("Moves           : %d%n", replay.moves());
+        System.out.printf("Lines           : %d%n", replay.lines());
+        System.out.printf("Errors          : %d%n", replay.errors());
+        System.out.printf("Total time (ms) : %d%n", nanos / 1000000);
+        System.out.printf("Moves/second    : %d%n",
+                          replay.moves() * 1000000000L / nanos);
+        System.out.printf("MB/second       : %.1f%n",
+                          replay.bytes() * 1e3 / nanos);
+        return replay.errors() == 0 ? 0 : 1;
+    }
+
+    /** A replay that reads BUFFERSIZE bytes at a time, starting with an
+     *  empty standard board, and reports errors on the standard error. */
+    Replay(int bufferSize) {
+        this(bufferSize, System.err);
+    }
+
+    /** A replay as for Replay(BUFFERSIZE) that reports errors on ERR. */
+    Replay(int bufferSize, PrintStream err) {
+        _buffer = new byte[bufferSize];
+        _board = new Board();
+        _err = err;
+    }
+
+    /** Replay the script read from IN, named NAME in messages, continuing
+     *  the session from the previous script, if any.  Returns when IN is
+     *  exhausted or a quit command is read. */
+    void replay(String name, InputStream in) throws IOException {
+        _name = name;
+        _line = 0;
+        byte[] buf = _buffer;
+        int start, scan, end;
+        start = scan = end = 0;
+        boolean eof = false;
+        while (!_quit) {
+            while (scan < end && buf[scan] != '\n') {
+                scan += 1;
+            }
+            if (scan < end) {
+                line(buf, start, scan);
+                scan += 1;
+                start = scan;
+            } else if (eof) {
+                if (start < end) {
+                    line(buf, start, end);
+                }
+                break;
+            } else {
+                if (start > 0) {
+                    System.arraycopy(buf, start, buf, 0, end - start);
+                    scan -= start;
+                    end -= start;
+                    start = 0;
+                } else if (end == buf.length) {
+                    buf = _buffer = Arrays.copyOf(buf, 2 * buf.length);
+                }
+                int n = in.read(buf, end, buf.length - end);
+                if (n == -1) {
+                    eof = true;
+                } else {
+                    end += n;
+                    _bytes += n;
+                }
+            }
+        }
+    }
+
+    /** End the session, counting the game in progress, if any. */
+    void finish() {
+        endGame();
+    }
+
+    /** Return my board. */
+    Board board() {
+        return _board;
+    }
+
+    /** Return true iff a quit command has been read. */
+    boolean quit() {
+        return _quit;
+    }
+
+    /** Return the number of games replayed so far, not counting the one in
+     *  progress. */
+    int games() {
+        return _games;
+    }
+
+    /** Return the number of games replayed that were won by WINNER, or
+     *  drawn if WINNER is EMPTY. */
+    int wins(PieceColor winner) {
+        return _wins[winner.ordinal()];
+    }
+
+    /** Return the number of games replayed that were cut short. */
+    int unfinished() {
+        return _unfinished;
+    }
+
+    /** Return the number of moves made. */
+    long moves() {
+        return _moves;
+    }
+
+    /** Return the number of lines read. */
+    long lines() {
+        return _lines;
+    }
+
+    /** Return the number of bytes read. */
+    long bytes() {
+        return _bytes;
+    }
+
+    /** Return the number of errors. */
+    int errors() {
+        return _errors;
+    }
+
+    /** Process the line in BUF[FROM .. TO-1]. */
+    private void line(byte[] buf, int from, int to) {
+        _line += 1;
+        _lines += 1;
+        while (from < to && buf[from] <= ' ') {
+            from += 1;
+        }
+        while (to > from && buf[to - 1] <= ' ') {
+            to -= 1;
+        }
+        if (to - from == MOVE_LENGTH && isMove(buf, from)) {
+            move(_board.geometry().move((char) (buf[from] | LOWER),
+                                        (char) buf[from + 1],
+                                        (char) (buf[from + 3] | LOWER),
+                                        (char) buf[from + 4]));
+        } else if (to - from == 1 && buf[from] == '-') {
+            move(_board.geometry().pass());
+        } else {
+            command(new String(buf, from, to - from,
+                               StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /** Return true iff BUF[K .. K+MOVE_LENGTH-1] is a move c0r0-c1r1, as
+     *  the PIECEMOVE command (ignoring case) would accept. */
+    private static boolean isMove(byte[] buf, int k) {
+        return isCol(buf[k]) && isRow(buf[k + 1]) && buf[k + 2] == '-'
+            && isCol(buf[k + 3]) && isRow(buf[k + 4]);
+    }
+
+    /** Return true iff C is a column letter of either case. */
+    private static boolean isCol(byte c) {
+        return c >= 'A' && (c | LOWER) >= 'a' && (c | LOWER) <= 'i';
+    }
+
+    /** Return true iff C is a row digit. */
+    private static boolean isRow(byte c) {
+        return c >= '1' && c <= '9';
+    }
+
+    /** Make MOVE (null if there is no such move) if it is legal, and
+     *  otherwise report an error. */
+    private void move(Move move) {
+        if (!_board.legalMove(move)) {
+            report("illegal move");
+            return;
+        }
+        _board.makeMove(move);
+        _moves += 1;
+    }
+
+    /** Execute the command CMNDSTR, reporting any error. */
+    private void command(String cmndStr) {
+        Command cmnd;
+        try {
+            cmnd = Command.parseCommand(cmndStr);
+        } catch (GameException excp) {
+            report(excp.getMessage());
+            return;
+        }
+        String[] parts = cmnd.operands();
+        try {
+            switch (cmnd.commandType()) {
+            case PIECEMOVE:
+                move(_board.geometry().move(parts[0]));
+                break;
+            case NEW:
+                endGame();
+                _board.clear();
+                break;
+            case BLOCK:
+                if (_board.numMoves() > 0) {
+                    throw error("block-setting must precede first move.");
+                }
+                _board.setBlock(parts[0]);
+                break;
+            case SETUP:
+                checkSize(Board.positionSide(parts[0]));
+                endGame();
+                _board.setPosition(parts[0]);
+                break;
+            case SIZE:
+                if (_board.numMoves() > 0) {
+                    throw error("size-setting must precede first move.");
+                }
+                checkSize(Integer.parseInt(parts[0]));
+                _board.setSize(Integer.parseInt(parts[0]));
+                break;
+            case UNDO:
+                if (_board.numMoves() > 0) {
+                    _board.undo();
+                }
+                break;
+            case GOTO:
+                _board.goTo(Integer.parseInt(parts[0]));
+                break;
+            case FORWARD:
+                _board.goTo(Math.min(_board.numMoves() + count(parts),
+                                     _board.lineLength()));
+                break;
+            case BACK:
+                _board.goTo(Math.max(_board.numMoves() - count(parts), 0));
+                break;
+            case QUIT:
+                _quit = true;
+                break;
+            case AUTO:
+                throw error("automatic players cannot be replayed");
+            case ERROR:
+                throw error("Unknown command.");
+            default:
+                break;
+            }
+        } catch (NumberFormatException excp) {
+            report("Bad number in: " + cmndStr);
+        } catch (GameException excp) {
+            report(excp.getMessage());
+        }
+    }
+
+    /** Return the count given by PARTS, the operands of forward or back:
+     *  the first, or 1 if there is none. */
+    private static int count(String[] parts) {
+        return parts.length > 0 ? Integer.parseInt(parts[0]) : 1;
+    }
+
+    /** Check that a board SIDE squares on a side is supported. */
+    private static void checkSize(int side) {
+        if (side < Geometry.MIN_SIDE || side > Geometry.MAX_SIDE) {
+            throw error("board size must be from %d to %d",
+                        Geometry.MIN_SIDE, Geometry.MAX_SIDE);
+        }
+    }
+
+    /** Count the game in progress, if any moves have been made in it. */
+    private void endGame() {
+        if (_board.numMoves() == 0) {
+            return;
+        }
+        _games += 1;
+        PieceColor winner = _board.getWinner();
+        if (winner == null) {
+            _unfinished += 1;
+        } else {
+            _wins[winner.ordinal()] += 1;
+        }
+    }
+
+    /** Report the error MSG at the current line on my error stream, and
+     *  stop replaying if Main.isStrict(). */
+    private void report(String msg) {
+        _errors += 1;
+        _err.printf("%s:%d: %s%n", _name, _line, msg);
+        if (Main.isStrict()) {
+            _quit = true;
+        }
+    }
+
+    /** Length of a move other than a pass. */
+    private static final int MOVE_LENGTH = 5;
+    /** Bit that makes an upper-case letter lower case. */
+    private static final int LOWER = 0x20;
+
+    /** The board the moves are made on. */
+    private final Board _board;
+    /** Where errors are reported. */
+    private final PrintStream _err;
+    /** Buffer of bytes read, holding at least one line. */
+    private byte[] _buffer;
+    /** Name of the script being read. */
+    private String _name;
+    /** Number of the current line in the script. */
+    private int _line;
+    /** True once a quit command has been read. */
+    private boolean _quit;
+    /** Games counted, and those of them unfinished. */
+    private int _games, _unfinished;
+    /** Finished games, by winner (EMPTY for draws). */
+    private final int[] _wins = new int[PieceColor.values().length];
+    /** Moves made, lines read, and bytes read. */
+    private long _moves, _lines, _bytes;
+    /** Errors reported. */
+    private int _errors;
+}
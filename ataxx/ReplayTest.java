@@ -0,0 +1,88 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test the bulk replay of command scripts.
+ *  @author Ezra Apple
+ */
+public class ReplayTest {
+
+    /** Return the result of replaying the scripts SCRIPTS as one session,
+     *  reading 4 bytes at a time and reporting errors on ERRORS. */
+    private static Replay replay(ByteArrayOutputStream errors,
+                                 String... scripts) throws IOException {
+        Replay replay = new Replay(4, new PrintStream(errors, true));
+        for (String script : scripts) {
+            replay.replay("test", new ByteArrayInputStream(
+                script.getBytes()));
+        }
+        replay.finish();
+        return replay;
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Replay replay = replay(errors,
+                               "# a game\r\nsize 7\r\nblock c3\r\n"
+                               + "  a7-b6  \r\nG7-F6\na7-a5\nh1-h2\n"
+                               + "g1-g3\nundo\nauto red\nfoo\n",
+                               "a1-b2\n\nnew\na7-b7");
+        assertEquals(5, replay.errors());
+        assertEquals(List.of("test:7: illegal move", "test:8: illegal move",
+                             "test:10: automatic players cannot be replayed",
+                             "test:11: Unknown command.",
+                             "test:1: illegal move"),
+                     List.of(errors.toString().split("\\R")));
+        assertEquals(4, replay.moves());
+        assertEquals(15, replay.lines());
+        assertEquals(2, replay.games());
+        assertEquals(2, replay.unfinished());
+        Board b = new Board();
+        b.makeMove(Move.move("a7-b7"));
+        assertEquals(b.position(), replay.board().position());
+
+        errors.reset();
+        replay = replay(errors, "setup rb5/7/7/7/7/7/7 r 0\na7-a6\nnew\n"
+                        + "a7-b7\nquit\ng7-f7\n", "g7-f6\n");
+        assertTrue(replay.quit());
+        assertEquals(0, replay.errors());
+        assertEquals("", errors.toString());
+        assertEquals(2, replay.moves());
+        assertEquals(2, replay.games());
+        assertEquals(1, replay.wins(PieceColor.RED));
+        assertEquals(1, replay.unfinished());
+    }
+
+    @Test
+    public void testReplayMatchesBoard() throws IOException {
+        Board b = new Board();
+        StringBuilder script = new StringBuilder("block b2\n");
+        b.setBlock("b2");
+        Random random = new Random(5);
+        while (b.getWinner() == null) {
+            Move move = BoardTest.randomMove(b, random);
+            b.makeMove(move);
+            script.append(move).append('\n');
+        }
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Replay replay = replay(errors, script.toString());
+        assertEquals(0, replay.errors());
+        assertEquals("", errors.toString());
+        assertEquals(b.numMoves(), replay.moves());
+        assertEquals(b.position(), replay.board().position());
+        assertEquals(1, replay.wins(b.getWinner()));
+    }
+}
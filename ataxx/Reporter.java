@@ -23,5 +23,13 @@ interface Reporter {
      *  the same meaning as in String.format. */
     void err(String format, Object... args);
 
+    /** Report that the search for PLAYER's move has reached depth DEPTH
+     *  after visiting NODES positions, with BEST (possibly null) the best
+     *  move found so far.  May be called from a thread other than the
+     *  game's.  Does nothing by default. */
+    default void searchProgress(PieceColor player, int depth, long nodes,
+                                Move best) {
+    }
+
 }
 
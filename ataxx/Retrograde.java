@@ -0,0 +1,271 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import static ataxx.Tablebase.*;
+
+/** Solves every position on a small board by retrograde analysis,
+ *  filling in a Tablebase.
+ *
+ *  Layers are solved from the full board down, since the successors of a
+ *  position with k pieces have k pieces (jumps and passes) or k + 1
+ *  (extends).  Within a layer, every position is valued from the values of
+ *  its successors, repeatedly, until a sweep changes nothing: a position is
+ *  won if some move leads to a lost position (in one more ply than the
+ *  quickest such loss), and lost if every move leads to a won one (in one
+ *  more ply than the slowest).  Values only get better informed from one
+ *  sweep to the next, so this settles on the exact values, and whatever is
+ *  still unknown then is a draw by endless play.  Each sweep is divided
+ *  among several threads by sets of occupied squares.
+ *
+ *  After each layer, the values are written out and the header records
+ *  the layer as solved, so an interrupted run resumes with the next layer
+ *  down.
+ *  Usage: java ataxx.Retrograde FILE POSITION [THREADS]
+ *  where POSITION, in position notation, gives the size of the board and
+ *  the blocks.
+ *  @author Ezra Apple
+ */
+class Retrograde {
+
+    /** A solver that fills in TABLEBASE using THREADS threads. */
+    Retrograde(Tablebase tablebase, int threads) {
+        _tablebase = tablebase;
+        _threads = threads;
+    }
+
+    /** Solve the database given by ARGS, as described in the class
+     *  comment. */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java ataxx.Retrograde FILE POSITION"
+                               + " [THREADS]");
+            System.exit(1);
+        }
+        try {
+            Board layout = new Board();
+            layout.setPosition(args[1]);
+            int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+            Tablebase tablebase = new Tablebase(args[0], layout);
+            new Retrograde(tablebase, threads).solve(true);
+            System.out.printf("%s: %s%n", layout.position(),
+                              Tablebase.toString(tablebase.value(layout)));
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Solve all layers not yet solved, printing progress iff VERBOSE. */
+    void solve(boolean verbose) {
+        int n = _tablebase.numOpen();
+        for (int k = _tablebase.solvedLayer() - 1; k >= 0; k -= 1) {
+            long start = System.currentTimeMillis();
+            int sweeps = 0;
+            boolean changed;
+            do {
+                changed = sweep(k, false);
+                sweeps += 1;
+            } while (changed);
+            sweep(k, true);
+            _tablebase.setSolvedLayer(k);
+            if (verbose) {
+                System.out.printf("layer %d/%d: %d positions, %d sweeps,"
+                                  + " %.1f s%n", k, n,
+                                  _tablebase.layerSize(k), sweeps,
+                                  (System.currentTimeMillis() - start)
+                                  / 1000.0);
+            }
+        }
+    }
+
+    /** Make one pass over the positions with K pieces, on all threads.
+     *  If FINISH, mark those still unknown as drawn; otherwise value them
+     *  from their successors.  Return true iff any value changed. */
+    private boolean sweep(int k, boolean finish) {
+        Worker[] workers = new Worker[_threads];
+        Thread[] threads = new Thread[_threads];
+        for (int t = 0; t < _threads; t += 1) {
+            workers[t] = new Worker(k, t, finish);
+            threads[t] = new Thread(workers[t], "retrograde-" + t);
+            threads[t].start();
+        }
+        boolean changed = false;
+        for (int t = 0; t < _threads; t += 1) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException excp) {
+                throw new Error("unexpected interrupt");
+            }
+            changed |= workers[t]._changed;
+        }
+        return changed;
+    }
+
+    /** One thread's share of a sweep over a layer. */
+    private class Worker implements Runnable {
+
+        /** A share of the sweep of layer K (see sweep, which describes
+         *  FINISH): every THREADS-th set of occupied squares, starting
+         *  with number T. */
+        Worker(int k, int t, boolean finish) {
+            _k = k;
+            _t = t;
+            _finish = finish;
+        }
+
+        @Override
+        public void run() {
+            int n = _tablebase.numOpen();
+            int all = (1 << n) - 1;
+            int count = 0;
+            for (int occupied = (1 << _k) - 1; occupied <= all;
+                 occupied = nextSubset(occupied)) {
+                if (count % _threads == _t) {
+                    sweep(occupied);
+                }
+                count += 1;
+                if (occupied == 0) {
+                    break;
+                }
+            }
+        }
+
+        /** Sweep the positions whose occupied squares are OCCUPIED. */
+        private void sweep(int occupied) {
+            for (int blue = occupied; ; blue = (blue - 1) & occupied) {
+                int red = occupied & ~blue;
+                for (int side = 0; side < 2; side += 1) {
+                    int index = _tablebase.index(red, blue, side);
+                    int old = _tablebase.get(index);
+                    int value;
+                    if (_finish) {
+                        value = old == UNKNOWN ? DRAW : old;
+                    } else if (side == 0) {
+                        value = solve(red, blue, side, occupied);
+                    } else {
+                        value = solve(blue, red, side, occupied);
+                    }
+                    if (value != old) {
+                        _tablebase.put(index, value);
+                        _changed = true;
+                    }
+                }
+                if (blue == 0) {
+                    break;
+                }
+            }
+        }
+
+        /** Return the value, from the successors' current values, of the
+         *  position where the side to move (SIDE) has pieces MINE and the
+         *  other side has THEIRS, and OCCUPIED is MINE | THEIRS. */
+        private int solve(int mine, int theirs, int side, int occupied) {
+            int empty = ~occupied & ((1 << _tablebase.numOpen()) - 1);
+            int myReach = 0, theirReach = 0;
+            for (int e = empty; e != 0; e &= e - 1) {
+                int sq = Integer.numberOfTrailingZeros(e);
+                int near = _tablebase.adjacent(sq) | _tablebase.jumps(sq);
+                if ((near & mine) != 0) {
+                    myReach |= 1 << sq;
+                }
+                if ((near & theirs) != 0) {
+                    theirReach |= 1 << sq;
+                }
+            }
+            if (mine == 0 || theirs == 0
+                || (myReach == 0 && theirReach == 0)) {
+                int diff = Integer.bitCount(mine) - Integer.bitCount(theirs);
+                return diff > 0 ? win(0) : diff < 0 ? loss(0) : DRAW;
+            }
+            _bestWin = _slowestLoss = -1;
+            _allWon = true;
+            if (myReach == 0) {
+                consider(mine, theirs, side);
+            }
+            for (int e = myReach; e != 0; e &= e - 1) {
+                int sq = Integer.numberOfTrailingZeros(e);
+                int to = 1 << sq, adjacent = _tablebase.adjacent(sq);
+                int captured = theirs & adjacent;
+                if ((mine & adjacent) != 0) {
+                    consider(mine | to | captured, theirs & ~captured, side);
+                }
+                for (int f = mine & _tablebase.jumps(sq); f != 0;
+                     f &= f - 1) {
+                    int from = f & -f;
+                    consider((mine & ~from) | to | captured,
+                             theirs & ~captured, side);
+                }
+            }
+            if (_bestWin >= 0) {
+                return win(_bestWin);
+            } else if (_allWon) {
+                return loss(_slowestLoss);
+            }
+            return UNKNOWN;
+        }
+
+        /** Account for the move by SIDE that leaves it with pieces MINE
+         *  and the other side with THEIRS. */
+        private void consider(int mine, int theirs, int side) {
+            int index = side == 0 ? _tablebase.index(mine, theirs, 1)
+                : _tablebase.index(theirs, mine, 0);
+            int value = _tablebase.get(index);
+            if (isLoss(value)) {
+                int d = checkDistance(distance(value) + 1);
+                if (_bestWin < 0 || d < _bestWin) {
+                    _bestWin = d;
+                }
+            } else if (isWin(value)) {
+                _slowestLoss = Math.max(_slowestLoss,
+                                        checkDistance(distance(value) + 1));
+            } else {
+                _allWon = false;
+            }
+        }
+
+        /** Layer swept. */
+        private final int _k;
+        /** Number of this thread's first share. */
+        private final int _t;
+        /** True iff marking draws. */
+        private final boolean _finish;
+        /** True iff any value changed. */
+        private boolean _changed;
+        /** Distance of the quickest win found for the position being
+         *  valued, or -1. */
+        private int _bestWin;
+        /** Distance of the slowest loss found. */
+        private int _slowestLoss;
+        /** True iff all moves so far lose. */
+        private boolean _allWon;
+    }
+
+    /** Return the next larger integer with the same number of 1 bits as
+     *  SUBSET, or 0 if SUBSET is 0. */
+    static int nextSubset(int subset) {
+        if (subset == 0) {
+            return 0;
+        }
+        int low = subset & -subset;
+        int ripple = subset + low;
+        return ripple | (((subset ^ ripple) >>> 2) / low);
+    }
+
+    /** Return D, checking that it can be recorded. */
+    private static int checkDistance(int d) {
+        if (d > MAX_DISTANCE) {
+            throw GameException.error("game longer than %d plies",
+                                      MAX_DISTANCE);
+        }
+        return d;
+    }
+
+    /** The database being solved. */
+    private final Tablebase _tablebase;
+    /** Number of threads. */
+    private final int _threads;
+}
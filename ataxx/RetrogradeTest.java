@@ -0,0 +1,114 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Test the retrograde solver and the Tablebase it fills.
+ *  @author Ezra Apple
+ */
+public class RetrogradeTest {
+
+    /** Return the value of B for the side to move according to the
+     *  values in TB of its successors, as Retrograde defines it. */
+    private static int retrogradeValue(Tablebase tb, Board b) {
+        PieceColor winner = b.getWinner();
+        if (winner != null) {
+            return winner == EMPTY ? Tablebase.DRAW
+                : winner == b.whoseMove() ? Tablebase.win(0)
+                : Tablebase.loss(0);
+        }
+        int bestWin = -1, slowestLoss = -1;
+        boolean allWon = true;
+        for (Move m : AI.possibleMoves(b)) {
+            Board child = new Board(b);
+            child.makeMove(m);
+            int v = tb.value(child);
+            if (Tablebase.isLoss(v)) {
+                int d = Tablebase.distance(v) + 1;
+                bestWin = bestWin < 0 ? d : Math.min(bestWin, d);
+            } else if (Tablebase.isWin(v)) {
+                slowestLoss = Math.max(slowestLoss,
+                                       Tablebase.distance(v) + 1);
+            } else {
+                allWon = false;
+            }
+        }
+        return bestWin >= 0 ? Tablebase.win(bestWin)
+            : allWon ? Tablebase.loss(slowestLoss) : Tablebase.DRAW;
+    }
+
+    @Test
+    public void testRetrograde() throws IOException {
+        File file = File.createTempFile("ataxx", ".tb");
+        file.deleteOnExit();
+        Board layout = new Board();
+        layout.setPosition("r2b/xxx1/1xxx/b2r r 0");
+        Tablebase tb = new Tablebase(file.getPath(), layout);
+        assertEquals(10, tb.numOpen());
+        assertEquals(2 * 59049, tb.numPositions());
+        assertEquals(Tablebase.UNKNOWN, tb.value(layout));
+        new Retrograde(tb, 3).solve(false);
+        assertEquals(0, tb.solvedLayer());
+        assertFalse("covers another layout", tb.covers(new Board(4)));
+
+        Tablebase probe = new Tablebase(file.getPath());
+        Random rand = new Random(42);
+        for (int game = 0; game < 50; game++) {
+            Board b = new Board(layout);
+            while (b.getWinner() == null
+                   && b.numJumps() < Board.JUMP_LIMIT - 2) {
+                int v = probe.value(b);
+                assertEquals("inconsistent value of " + b.position(),
+                             retrogradeValue(probe, b), v);
+                Move best = probe.bestMove(b);
+                assertTrue(b.legalMove(best));
+                Board child = new Board(b);
+                child.makeMove(best);
+                int after = probe.value(child);
+                assertTrue("best move does not keep the value",
+                           Tablebase.isWin(v) ? Tablebase.isLoss(after)
+                           && Tablebase.distance(after)
+                              == Tablebase.distance(v) - 1
+                           : v == Tablebase.DRAW ? after == Tablebase.DRAW
+                           : Tablebase.isWin(after));
+                checkPlayable(probe, b, v);
+                b.makeMove(BoardTest.randomMove(b, rand));
+            }
+        }
+        new Retrograde(new Tablebase(file.getPath(), layout), 1)
+            .solve(false);
+        assertEquals(probe.value(layout), tb.value(layout));
+    }
+
+    /** Check that TB.playableMove(B), where B's value is V, is a best
+     *  move just when V is a win or loss reached before the jump limit,
+     *  and that it is null if the limit is no further off. */
+    private static void checkPlayable(Tablebase tb, Board b, int v) {
+        boolean decided = Tablebase.isWin(v) || Tablebase.isLoss(v);
+        assertEquals("playable move in " + b.position(),
+                     decided
+                     && b.numJumps() + Tablebase.distance(v)
+                        < Board.JUMP_LIMIT,
+                     tb.playableMove(b) != null);
+        if (decided && Tablebase.distance(v) <= Board.JUMP_LIMIT) {
+            String position = b.position();
+            Board late = new Board();
+            late.setPosition(position.substring(0,
+                                                position.lastIndexOf(' '))
+                             + " " + (Board.JUMP_LIMIT
+                                      - Tablebase.distance(v)));
+            assertNull("playable move despite the jump limit",
+                       tb.playableMove(late));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A flight-recorder event covering one complete move search by an AI.
+ *  Committed once per AI.getMove call, so that a recording taken with
+ *  'jcmd <pid> JFR.start' shows exactly where think time goes.  When no
+ *  recording is active, shouldCommit() is false and the JIT reduces the
+ *  event to nothing.
+ *  @author Ezra Apple
+ */
+@Name("ataxx.Search")
+@Label("Move Search")
+@Category({"Ataxx", "Search"})
+@Description("A complete move search by an AI player.")
+@StackTrace(false)
+class SearchEvent extends Event {
+
+    /** Color of the side searching. */
+    @Label("Side")
+    String side;
+
+    /** Move chosen, in c0r0-c1r1 format. */
+    @Label("Move")
+    String move;
+
+    /** Deepest completed search depth. */
+    @Label("Depth")
+    int depth;
+
+    /** Positions visited. */
+    @Label("Nodes")
+    long nodes;
+
+    /** Score of the chosen move (positive favors red). */
+    @Label("Score")
+    int score;
+
+}
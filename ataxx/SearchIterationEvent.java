@@ -0,0 +1,61 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A flight-recorder event covering one search iteration (one complete
+ *  search of the root to a fixed depth) within a move search.
+ *  @author Ezra Apple
+ */
+@Name("ataxx.SearchIteration")
+@Label("Search Iteration")
+@Category({"Ataxx", "Search"})
+@Description("One fixed-depth iteration of a move search.")
+@StackTrace(false)
+class SearchIterationEvent extends Event {
+
+    /** Depth searched by this iteration. */
+    @Label("Depth")
+    int depth;
+
+    /** Positions visited during this iteration. */
+    @Label("Nodes")
+    long nodes;
+
+    /** Best move found so far, in c0r0-c1r1 format. */
+    @Label("Best Move")
+    String bestMove;
+
+    /** Score of the best move (positive favors red). */
+    @Label("Score")
+    int score;
+
+    /** Moves searched to reduced depth. */
+    @Label("Reductions")
+    long reductions;
+
+    /** Reduced moves searched again to full depth. */
+    @Label("Re-searches")
+    long researches;
+
+    /** Moves skipped as futile. */
+    @Label("Futility Prunes")
+    long futilityPrunes;
+
+    /** Nodes at which ProbCut ran its shallow searches. */
+    @Label("ProbCut Tries")
+    long probCutTries;
+
+    /** Nodes pruned by ProbCut. */
+    @Label("ProbCuts")
+    long probCuts;
+
+}
@@ -0,0 +1,347 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static ataxx.GameException.error;
+
+/** Records the trees explored by the AI's searches in a compact binary
+ *  file, for SearchReport to analyze afterwards.  Recording is off unless
+ *  Main is given --record=FILE.
+ *
+ *  The file starts with MAGIC and VERSION (ints).  Each search the AI
+ *  makes (each iteration of its deepening) is then a search record
+ *  followed by one node record for each call of the search routine, in
+ *  the order in which the calls return, so that a node's children come
+ *  before it and the root (at ply 0) comes last.  A search record is
+ *  the byte SEARCH, the depth of the search (a byte), and the root
+ *  position in position notation (as by writeUTF).  A node record is
+ *  the byte NODE followed by
+ *      ply         byte   plies below the root
+ *      depth       byte   plies left to search
+ *      flags       byte   MAXIMIZING, REDUCED, RESEARCH, PROBE, FUTILE,
+ *                         PROBCUT, and STOPPED (see below)
+ *      move        short  id (in the root's Geometry) of the move that
+ *                         led here, or -1 at the root and for ProbCut's
+ *                         shallow searches
+ *      key         long   TranspositionTable's hash of the position
+ *      alpha, beta int    the window on entry
+ *      score       int    the value returned (positive favors red)
+ *      moves       short  moves considered (0 at a leaf)
+ *      cutoff      short  index among them of the move that raised alpha
+ *                         to beta (or lowered beta to alpha), or -1
+ *      nodes       int    positions visited in this subtree, including
+ *                         it and leaves scored in batches (which have no
+ *                         records of their own)
+ *  for NODE_SIZE bytes in all.
+ *
+ *  A recorder follows one search at a time.  Searchers that may run at
+ *  the same time each take a fork of the recorder that opened the file,
+ *  which keeps its own path and buffers each search's records, writing
+ *  them to the file in one piece when the next search begins or on
+ *  flush, so that the records of different searches never interleave.
+ *  @author Ezra Apple
+ */
+class SearchRecorder {
+
+    /** First int of a recording. */
+    static final int MAGIC = 0x41545852;
+    /** Version of the format. */
+    static final int VERSION = 1;
+    /** Tag of a search record. */
+    static final int SEARCH = 'S';
+    /** Tag of a node record. */
+    static final int NODE = 'N';
+    /** Bytes in a node record, including its tag. */
+    static final int NODE_SIZE = 34;
+
+    /** Flag: the node maximizes (red to move). */
+    static final int MAXIMIZING = 1;
+    /** Flag: a late move searched to reduced depth. */
+    static final int REDUCED = 2;
+    /** Flag: a reduced move searched again to full depth. */
+    static final int RESEARCH = 4;
+    /** Flag: one of ProbCut's shallow searches. */
+    static final int PROBE = 8;
+    /** Flag: the rest of the moves were pruned as futile. */
+    static final int FUTILE = 16;
+    /** Flag: pruned by ProbCut. */
+    static final int PROBCUT = 32;
+    /** Flag: abandoned because the search was told to stop. */
+    static final int STOPPED = 64;
+
+    /** Most plies in a search. */
+    static final int MAX_PLY = 128;
+
+    /** A recorder that writes to FILE, replacing its contents. */
+    SearchRecorder(String file) {
+        try {
+            _file = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+            _file.writeInt(MAGIC);
+            _file.writeInt(VERSION);
+        } catch (IOException excp) {
+            throw error("cannot record to %s: %s", file, excp.getMessage());
+        }
+    }
+
+    /** A recorder whose searches are written to FILE, the stream of
+     *  another recorder. */
+    private SearchRecorder(DataOutputStream file) {
+        _file = file;
+    }
+
+    /** Return a new recorder that writes its searches to my file, for a
+     *  searcher that may run at the same time as my own. */
+    SearchRecorder fork() {
+        return new SearchRecorder(_file);
+    }
+
+    /** Begin recording a search to DEPTH plies from BOARD, after writing
+     *  out the previous search, if any. */
+    void search(Board board, int depth) {
+        commit();
+        _ply = -1;
+        _nextMove = -1;
+        _nextFlags = 0;
+        try {
+            _out.writeByte(SEARCH);
+            _out.writeByte(depth);
+            _out.writeUTF(board.position());
+        } catch (IOException excp) {
+            fail(excp);
+        }
+    }
+
+    /** Note that the next node entered is reached by MOVE (null for
+     *  none) and has the flags FLAGS (REDUCED, RESEARCH, or PROBE). */
+    void child(Move move, int flags) {
+        _nextMove = move == null ? -1 : move.id();
+        _nextFlags = flags;
+    }
+
+    /** Enter a node for BOARD, to be searched to DEPTH plies with window
+     *  ALPHA..BETA, maximizing iff MAXIMIZING, when NODES positions have
+     *  been visited, including this one. */
+    void enter(Board board, int depth, int alpha, int beta,
+               boolean maximizing, long nodes) {
+        _ply += 1;
+        int p = Math.min(_ply, MAX_PLY - 1);
+        _keys.setKey(board);
+        _key[p] = _keys.hash();
+        _depth[p] = depth;
+        _alpha[p] = alpha;
+        _beta[p] = beta;
+        _move[p] = _nextMove;
+        _flags[p] = _nextFlags | (maximizing ? MAXIMIZING : 0);
+        _moves[p] = 0;
+        _cutoff[p] = -1;
+        _start[p] = nodes - 1;
+        _nextMove = -1;
+        _nextFlags = 0;
+    }
+
+    /** Note that the current node considers N moves. */
+    void moves(int n) {
+        _moves[Math.min(_ply, MAX_PLY - 1)] = n;
+    }
+
+    /** Note that the move numbered I at the current node caused a
+     *  cutoff. */
+    void cutoff(int i) {
+        _cutoff[Math.min(_ply, MAX_PLY - 1)] = i;
+    }
+
+    /** Add FLAGS (FUTILE, PROBCUT, or STOPPED) to the current node's. */
+    void flag(int flags) {
+        _flags[Math.min(_ply, MAX_PLY - 1)] |= flags;
+    }
+
+    /** Leave the current node, whose value is SCORE, when NODES positions
+     *  have been visited, writing its record. */
+    void exit(int score, long nodes) {
+        int p = Math.min(_ply, MAX_PLY - 1);
+        try {
+            _out.writeByte(NODE);
+            _out.writeByte(_ply);
+            _out.writeByte(_depth[p]);
+            _out.writeByte(_flags[p]);
+            _out.writeShort(_move[p]);
+            _out.writeLong(_key[p]);
+            _out.writeInt(_alpha[p]);
+            _out.writeInt(_beta[p]);
+            _out.writeInt(score);
+            _out.writeShort(_moves[p]);
+            _out.writeShort(_cutoff[p]);
+            _out.writeInt((int) Math.min(Integer.MAX_VALUE,
+                                         nodes - _start[p]));
+        } catch (IOException excp) {
+            fail(excp);
+        }
+        _ply -= 1;
+    }
+
+    /** Write out everything recorded so far. */
+    void flush() {
+        commit();
+        try {
+            synchronized (_file) {
+                _file.flush();
+            }
+        } catch (IOException excp) {
+            fail(excp);
+        }
+    }
+
+    /** Append the records buffered since the last commit to my file, in
+     *  one piece. */
+    private void commit() {
+        try {
+            synchronized (_file) {
+                _buffer.writeTo(_file);
+            }
+        } catch (IOException excp) {
+            fail(excp);
+        }
+        _buffer.reset();
+    }
+
+    /** Report EXCP, a failure to write, as a GameException. */
+    private void fail(IOException excp) {
+        throw error("search recording failed: %s", excp.getMessage());
+    }
+
+    /** A node read back from a recording. */
+    static class Node {
+
+        /** Read the body of a node record (after its tag) from IN. */
+        Node(DataInputStream in) throws IOException {
+            _ply = in.readUnsignedByte();
+            _depth = in.readByte();
+            _flags = in.readUnsignedByte();
+            _move = in.readShort();
+            _key = in.readLong();
+            _alpha = in.readInt();
+            _beta = in.readInt();
+            _score = in.readInt();
+            _moves = in.readShort();
+            _cutoff = in.readShort();
+            _nodes = in.readInt();
+        }
+
+        /** Return my ply. */
+        int ply() {
+            return _ply;
+        }
+
+        /** Return the depth I was searched to. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Return true iff I have all of FLAGS. */
+        boolean is(int flags) {
+            return (_flags & flags) == flags;
+        }
+
+        /** Return the id of the move that led to me, or -1. */
+        int move() {
+            return _move;
+        }
+
+        /** Return the hash of my position. */
+        long key() {
+            return _key;
+        }
+
+        /** Return the bottom of my window. */
+        int alpha() {
+            return _alpha;
+        }
+
+        /** Return the top of my window. */
+        int beta() {
+            return _beta;
+        }
+
+        /** Return my value. */
+        int score() {
+            return _score;
+        }
+
+        /** Return the number of moves considered at me. */
+        int moves() {
+            return _moves;
+        }
+
+        /** Return the index of my cutoff move, or -1. */
+        int cutoff() {
+            return _cutoff;
+        }
+
+        /** Return the number of positions in my subtree. */
+        int nodes() {
+            return _nodes;
+        }
+
+        /** Fields of the record. */
+        private final int _ply, _depth, _flags, _move, _alpha, _beta,
+            _score, _moves, _cutoff, _nodes;
+        /** Hash of the position. */
+        private final long _key;
+    }
+
+    /** Check that IN starts with a recording's header. */
+    static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw error("not a search recording");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw error("recording has version %d, not %d", version,
+                        VERSION);
+        }
+    }
+
+    /** Return the tag of the next record in IN, or -1 at the end. */
+    static int readTag(DataInputStream in) throws IOException {
+        try {
+            return in.readUnsignedByte();
+        } catch (EOFException excp) {
+            return -1;
+        }
+    }
+
+    /** Stream of the file the recording is written to, shared with my
+     *  forks. */
+    private final DataOutputStream _file;
+    /** Records of the current search, not yet written to _file. */
+    private final ByteArrayOutputStream _buffer =
+        new ByteArrayOutputStream();
+    /** Stream writing to _buffer. */
+    private final DataOutputStream _out = new DataOutputStream(_buffer);
+    /** Used only to compute keys. */
+    private final TranspositionTable _keys = new TranspositionTable(0);
+    /** Ply of the current node, or -1 between searches. */
+    private int _ply;
+    /** Move and flags for the next node entered. */
+    private int _nextMove, _nextFlags;
+    /** Fields of the records of the nodes on the current path, by ply. */
+    private final int[] _depth = new int[MAX_PLY], _alpha = new int[MAX_PLY],
+        _beta = new int[MAX_PLY], _move = new int[MAX_PLY],
+        _flags = new int[MAX_PLY], _moves = new int[MAX_PLY],
+        _cutoff = new int[MAX_PLY];
+    /** Hashes of the positions on the current path, by ply. */
+    private final long[] _key = new long[MAX_PLY];
+    /** Nodes visited before each node on the current path, by ply. */
+    private final long[] _start = new long[MAX_PLY];
+}
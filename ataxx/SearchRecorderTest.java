@@ -0,0 +1,146 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test recording searches and reporting on the recordings.
+ *  @author Ezra Apple
+ */
+public class SearchRecorderTest {
+
+    @Test
+    public void testSearchRecorder() throws IOException {
+        File file = File.createTempFile("search", ".rec");
+        file.deleteOnExit();
+        Board b = new Board();
+        b.setPosition(Bench.POSITIONS[3]);
+        AI ai = new AI(null, b.whoseMove(), 0, AI.DEFAULT_TUNING);
+        Move move = ai.search(b, 3);
+        long nodes = ai.nodes();
+        ai.record(new SearchRecorder(file.getPath()));
+        assertEquals(move, ai.search(b, 3));
+        assertEquals("recording changed the search", nodes, ai.nodes());
+
+        DataInputStream in = new DataInputStream(
+            new FileInputStream(file));
+        SearchRecorder.readHeader(in);
+        SearchRecorder.Node node = null;
+        int searches = 0, size = 8;
+        long total = 0;
+        for (int tag = SearchRecorder.readTag(in); tag != -1;
+             tag = SearchRecorder.readTag(in)) {
+            if (tag == SearchRecorder.SEARCH) {
+                searches += 1;
+                assertEquals(searches, in.readUnsignedByte());
+                assertEquals(Bench.POSITIONS[3], in.readUTF());
+                size += 4 + Bench.POSITIONS[3].length();
+                continue;
+            }
+            assertEquals(SearchRecorder.NODE, tag);
+            node = new SearchRecorder.Node(in);
+            size += SearchRecorder.NODE_SIZE;
+            assertTrue(node.ply() <= searches);
+            assertTrue(node.nodes() >= 1);
+            if (node.ply() == 0) {
+                assertEquals(searches, node.depth());
+                assertEquals(-1, node.move());
+                assertTrue(node.is(SearchRecorder.MAXIMIZING));
+                assertTrue(node.moves() > 0);
+                total += node.nodes();
+            }
+        }
+        in.close();
+        assertEquals(3, searches);
+        assertEquals(size, file.length());
+        assertEquals(0, node.ply());
+        assertEquals(ai.lastScore(), node.score());
+        assertEquals(nodes, total);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SearchReport report = new SearchReport(2, 10,
+                                               new PrintStream(output, true));
+        report.read(file.getPath());
+        assertEquals(3, report.searches());
+        assertEquals(nodes, report.nodes());
+        String[] lines = output.toString().split("\\R");
+        assertEquals(3, lines.length);
+        for (int k = 1; k <= 3; k += 1) {
+            assertTrue(lines[k - 1], lines[k - 1].startsWith(
+                           "search " + k + ": " + Bench.POSITIONS[3]
+                           + ", depth " + k + ": "));
+        }
+        assertTrue(lines[2], lines[2].contains(node.nodes() + " nodes"));
+        output.reset();
+        report.print();
+        assertTrue(output.toString().contains(nodes + " nodes in 3 searches"));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        File file = File.createTempFile("search", ".rec");
+        file.deleteOnExit();
+        SearchRecorder recorder = new SearchRecorder(file.getPath());
+        Thread[] searchers = new Thread[4];
+        long[] nodes = new long[searchers.length];
+        for (int k = 0; k < searchers.length; k += 1) {
+            Board b = new Board();
+            b.setPosition(Bench.POSITIONS[k]);
+            AI ai = new AI(null, b.whoseMove(), 0, AI.DEFAULT_TUNING);
+            ai.record(recorder.fork());
+            int i = k;
+            searchers[k] = new Thread(() -> {
+                ai.search(b, 3);
+                nodes[i] = ai.nodes();
+            });
+            searchers[k].start();
+        }
+        long total = 0;
+        for (int k = 0; k < searchers.length; k += 1) {
+            searchers[k].join();
+            total += nodes[k];
+        }
+
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        SearchRecorder.readHeader(in);
+        boolean open = false;
+        int searches = 0;
+        for (int tag = SearchRecorder.readTag(in); tag != -1;
+             tag = SearchRecorder.readTag(in)) {
+            if (tag == SearchRecorder.SEARCH) {
+                assertFalse("searches interleaved", open);
+                in.readUnsignedByte();
+                in.readUTF();
+                searches += 1;
+                open = true;
+            } else {
+                assertTrue("node outside a search", open);
+                open = new SearchRecorder.Node(in).ply() != 0;
+            }
+        }
+        in.close();
+        assertFalse("search left unfinished", open);
+        assertEquals(3 * searchers.length, searches);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SearchReport report = new SearchReport(2, 10,
+                                               new PrintStream(output, true));
+        report.read(file.getPath());
+        assertEquals(total, report.nodes());
+        String[] lines = output.toString().split("\\R");
+        assertEquals(searches, lines.length);
+        for (int k = 1; k <= searches; k += 1) {
+            assertTrue(lines[k - 1],
+                       lines[k - 1].startsWith("search " + k + ": "));
+        }
+    }
+}
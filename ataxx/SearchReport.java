@@ -0,0 +1,480 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ataxx.SearchRecorder.*;
+
+/** Reports on a recording of the AI's searches made by SearchRecorder
+ *  (java ataxx.Main --record=FILE).
+ *
+ *  For each search (each iteration of the AI's deepening) it prints the
+ *  root position, depth, and nodes visited, with the growth over the
+ *  previous iteration from the same position.  For the deepest search
+ *  from each position it also breaks the nodes down by ply and by root
+ *  move.  Then, over the whole recording, it reports
+ *    - how often LMR, futility pruning, and ProbCut acted;
+ *    - move ordering: at how many cutoffs the first move was the one that
+ *      cut, how far down the list the others were, and the TOP
+ *      hotspots: the nodes at which the most positions were searched
+ *      under moves tried before the one that cut, with the line leading
+ *      to each;
+ *    - transpositions: nodes whose position had already been searched at
+ *      least as deeply in the same search, and the positions below them,
+ *      which is at most what a transposition table would save; and
+ *    - collisions in a transposition table of 2**BITS slots filled with
+ *      every node: how many of the distinct positions of each search
+ *      share a slot with another, and how many stores would replace a
+ *      different position.
+ *  Usage: java ataxx.SearchReport FILE [TOP [BITS]]
+ *  where TOP defaults to 5 and BITS to Analyzer.TABLE_BITS.
+ *  @author Ezra Apple
+ */
+class SearchReport {
+
+    /** Default number of hotspots reported. */
+    static final int DEFAULT_TOP = 5;
+
+    /** Upper ends of the ranges of cutoff indices counted together. */
+    static final int[] CUTOFF_RANGES = { 0, 1, 2, 5, Integer.MAX_VALUE };
+
+    /** Report on the recording named by ARGS, as described in the class
+     *  comment. */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: java ataxx.SearchReport FILE"
+                               + " [TOP [BITS]]");
+            System.exit(1);
+        }
+        try {
+            int top = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_TOP;
+            int bits = args.length > 2 ? Integer.parseInt(args[2])
+                : Analyzer.TABLE_BITS;
+            SearchReport report = new SearchReport(top, bits);
+            report.read(args[0]);
+            report.print();
+        } catch (NumberFormatException excp) {
+            System.err.println("bad number: " + excp.getMessage());
+            System.exit(1);
+        } catch (IOException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A report keeping the TOP worst hotspots and simulating a table of
+     *  2**BITS slots, printed on the standard output. */
+    SearchReport(int top, int bits) {
+        this(top, bits, System.out);
+    }
+
+    /** A report as for SearchReport(TOP, BITS), printed on OUT. */
+    SearchReport(int top, int bits, PrintStream out) {
+        _top = top;
+        _bits = bits;
+        _out = out;
+    }
+
+    /** Read the recording in FILE, printing the line for each search. */
+    void read(String file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(file)))) {
+            readHeader(in);
+            for (int tag = readTag(in); tag != -1; tag = readTag(in)) {
+                if (tag == SEARCH) {
+                    endSearch();
+                    int depth = in.readUnsignedByte();
+                    startSearch(in.readUTF(), depth);
+                } else if (tag == NODE && _position != null) {
+                    add(new Node(in));
+                } else {
+                    throw GameException.error("bad record in %s", file);
+                }
+            }
+            endSearch();
+        }
+    }
+
+    /** Begin a search to DEPTH plies from POSITION. */
+    private void startSearch(String position, int depth) {
+        _searches += 1;
+        _position = position;
+        _depth = depth;
+        _geometry = Geometry.of(Board.positionSide(position));
+        _pending.clear();
+        _seen.clear();
+        _slots.clear();
+        _byPly.clear();
+        _root = null;
+    }
+
+    /** Add NODE, the next in the current search. */
+    private void add(Node node) {
+        int ply = node.ply();
+        while (_pending.size() <= ply + 1) {
+            _pending.add(new ArrayList<>());
+        }
+        List<Visit> children = _pending.get(ply + 1);
+        Visit visit = new Visit(node, children);
+        _pending.set(ply + 1, new ArrayList<>());
+        _pending.get(ply).add(visit);
+        _records += 1;
+        while (_byPly.size() <= ply) {
+            _byPly.add(0L);
+        }
+        _byPly.set(ply, _byPly.get(ply) + node.nodes()
+                    - childNodes(children, false));
+        countFlags(node);
+        if (node.cutoff() >= 0) {
+            ordering(visit, children);
+        }
+        if (!node.is(PROBE)) {
+            transposition(visit);
+        }
+        if (ply == 0) {
+            _root = visit;
+        }
+    }
+
+    /** Return the number of positions under CHILDREN, counting ProbCut's
+     *  searches iff PROBES. */
+    private static long childNodes(List<Visit> children, boolean probes) {
+        long n = 0;
+        for (Visit child : children) {
+            if (probes || !child._node.is(PROBE)) {
+                n += child._node.nodes();
+            }
+        }
+        return n;
+    }
+
+    /** Count the flags of NODE. */
+    private void countFlags(Node node) {
+        _reduced += node.is(REDUCED) ? 1 : 0;
+        _researched += node.is(RESEARCH) ? 1 : 0;
+        _probes += node.is(PROBE) ? 1 : 0;
+        _futile += node.is(FUTILE) ? 1 : 0;
+        _probCuts += node.is(PROBCUT) ? 1 : 0;
+        _stopped += node.is(STOPPED) ? 1 : 0;
+    }
+
+    /** Record the move ordering at VISIT, a node with a cutoff, whose
+     *  children are CHILDREN. */
+    private void ordering(Visit visit, List<Visit> children) {
+        Node node = visit._node;
+        _cutNodes += 1;
+        int k = 0;
+        while (node.cutoff() > CUTOFF_RANGES[k]) {
+            k += 1;
+        }
+        _cutoffs[k] += 1;
+        long wasted = node.cutoff();
+        int last = -1;
+        for (Visit child : children) {
+            if (!child._node.is(PROBE)) {
+                last = child._node.move();
+            }
+        }
+        if (last != -1) {
+            wasted = 0;
+            for (Visit child : children) {
+                if (!child._node.is(PROBE) && child._node.move() != last) {
+                    wasted += child._node.nodes();
+                }
+            }
+        }
+        _wasted += wasted;
+        if (wasted == 0 || _top == 0) {
+            return;
+        }
+        if (_hotspots.size() == _top
+            && wasted <= _hotspots.get(_top - 1)._wasted) {
+            return;
+        }
+        Hotspot hot = new Hotspot(_searches, node, wasted);
+        int i = _hotspots.size();
+        while (i > 0 && _hotspots.get(i - 1)._wasted < wasted) {
+            i -= 1;
+        }
+        _hotspots.add(i, hot);
+        if (_hotspots.size() > _top) {
+            _hotspots.remove(_top);
+        }
+        visit._hot.add(hot);
+    }
+
+    /** Record the position at VISIT in the transposition and collision
+     *  counts. */
+    private void transposition(Visit visit) {
+        Node node = visit._node;
+        Integer depth = _seen.get(node.key());
+        if (depth != null && depth >= node.depth()) {
+            _transpositions += 1;
+            _transposed += node.nodes() - visit._saved;
+            visit._saved = node.nodes();
+        }
+        if (depth == null || depth < node.depth()) {
+            _seen.put(node.key(), node.depth());
+        }
+        int slot = TranspositionTable.slot(node.key(), _bits);
+        Long old = _slots.put(slot, node.key());
+        if (old != null && old != node.key()) {
+            _evictions += 1;
+        }
+        _stores += 1;
+    }
+
+    /** Finish the current search, if any, printing its line. */
+    private void endSearch() {
+        if (_position == null) {
+            return;
+        }
+        Set<Integer> slots = new HashSet<>();
+        for (long key : _seen.keySet()) {
+            slots.add(TranspositionTable.slot(key, _bits));
+        }
+        _distinct += _seen.size();
+        _sharing += _seen.size() - slots.size();
+        long nodes = _root == null ? 0 : _root._node.nodes();
+        _nodes += nodes;
+        Long before = _lastNodes.get(_position);
+        _out.printf("search %d: %s, depth %d: %d nodes", _searches,
+                    _position, _depth, nodes);
+        if (before != null && before > 0 && _depth > 1) {
+            _out.printf(" (x%.1f)", (double) nodes / before);
+        }
+        _out.println(_root == null ? " (incomplete)" : "");
+        _lastNodes.put(_position, nodes);
+        if (_root != null) {
+            _deepest.put(_position, breakdown(nodes));
+        }
+        _position = null;
+    }
+
+    /** Return the breakdown of the current search, of NODES nodes, by
+     *  ply and by root move. */
+    private String breakdown(long nodes) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%s, depth %d:%n  by ply:", _position,
+                                 _depth));
+        for (long n : _byPly) {
+            out.append(' ').append(n);
+        }
+        out.append(String.format("%n  by root move:"));
+        List<Visit> children = _root._children;
+        Map<Integer, Long> byMove = new HashMap<>();
+        List<Integer> order = new ArrayList<>();
+        for (Visit child : children) {
+            int move = child._node.move();
+            if (!byMove.containsKey(move)) {
+                order.add(move);
+                byMove.put(move, 0L);
+            }
+            byMove.put(move, byMove.get(move) + child._node.nodes());
+        }
+        order.sort((a, b) -> Long.compare(byMove.get(b), byMove.get(a)));
+        for (int i = 0; i < order.size() && i < Math.max(_top, 1); i += 1) {
+            int move = order.get(i);
+            out.append(String.format(" %s %.0f%%", moveName(move),
+                                     100.0 * byMove.get(move) / nodes));
+        }
+        if (order.size() > _top) {
+            out.append(String.format(" (%d more)", order.size() - _top));
+        }
+        return out.toString();
+    }
+
+    /** Return the name of the move whose id is ID in the current
+     *  search's Geometry ("probe" for -1). */
+    private String moveName(int id) {
+        return id == -1 ? "probe" : _geometry.move(id).toString();
+    }
+
+    /** Return the number of searches read. */
+    int searches() {
+        return _searches;
+    }
+
+    /** Return the total of the nodes in the searches read. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Print the report on the whole recording. */
+    void print() {
+        for (String breakdown : _deepest.values()) {
+            _out.println(breakdown);
+        }
+        _out.printf("%d nodes in %d searches; %d records%n",
+                    _nodes, _searches, _records);
+        _out.printf("selective search: %d reduced (%d searched"
+                    + " again), %d futility prunes, %d of %d ProbCut"
+                    + " probes cut, %d stopped%n", _reduced,
+                    _researched, _futile, _probCuts, _probes,
+                    _stopped);
+        _out.printf("move ordering: %d cutoffs, %.1f%% by the first"
+                    + " move; by index of the cutting move:",
+                    _cutNodes, percent(_cutoffs[0], _cutNodes));
+        for (int k = 0, low = 0; k < CUTOFF_RANGES.length; k += 1) {
+            int high = CUTOFF_RANGES[k];
+            _out.printf(" %s %.1f%%", high == low ? "" + low
+                        : high == Integer.MAX_VALUE ? low + "+"
+                        : low + "-" + high,
+                        percent(_cutoffs[k], _cutNodes));
+            low = high + 1;
+        }
+        _out.printf("%n  %d positions searched under moves tried"
+                    + " before the cutting move%n", _wasted);
+        for (Hotspot hot : _hotspots) {
+            _out.printf("  search %d, ply %d, depth %d, after %s:"
+                        + " cut by move %d of %d after %d of %d"
+                        + " positions%n", hot._search,
+                        hot._node.ply(), hot._node.depth(),
+                        hot._line.length() == 0 ? "the root"
+                        : hot._line.toString().trim(),
+                        hot._node.cutoff() + 1, hot._node.moves(),
+                        hot._wasted, hot._node.nodes());
+        }
+        _out.printf("transpositions: %d of %d distinct positions"
+                    + " searched again no deeper; a table would"
+                    + " save at most %d nodes (%.1f%%)%n",
+                    _transpositions, _distinct, _transposed,
+                    percent(_transposed, _nodes));
+        _out.printf("table of 2^%d slots: %d positions (%.1f%%) share"
+                    + " a slot; %d of %d stores replace another"
+                    + " position%n", _bits, _sharing,
+                    percent(_sharing, _distinct), _evictions,
+                    _stores);
+    }
+
+    /** Return 100 * PART / WHOLE, or 0 if WHOLE is 0. */
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    /** A node whose parent has not yet been read. */
+    private class Visit {
+
+        /** A visit to NODE, whose children are CHILDREN. */
+        Visit(Node node, List<Visit> children) {
+            _node = node;
+            _children = children;
+            for (Visit child : children) {
+                for (Hotspot hot : child._hot) {
+                    hot._line.insert(0, " " + moveName(child._node.move()));
+                    _hot.add(hot);
+                }
+                child._hot.clear();
+                _saved += child._saved;
+            }
+        }
+
+        /** The node. */
+        private final Node _node;
+        /** Its children, in the order searched. */
+        private final List<Visit> _children;
+        /** Hotspots at or below this node whose lines reach only to
+         *  here. */
+        private final List<Hotspot> _hot = new ArrayList<>();
+        /** Positions at or below this node under transpositions, which a
+         *  transposition table would have saved. */
+        private long _saved;
+    }
+
+    /** A node at which many positions were searched before a cutoff. */
+    private static class Hotspot {
+
+        /** NODE, in search number SEARCH, with WASTED positions searched
+         *  before its cutoff. */
+        Hotspot(int search, Node node, long wasted) {
+            _search = search;
+            _node = node;
+            _wasted = wasted;
+        }
+
+        /** Number of the search. */
+        private final int _search;
+        /** The node. */
+        private final Node _node;
+        /** Positions searched before the cutoff. */
+        private final long _wasted;
+        /** Moves from the root to the node, each preceded by a blank. */
+        private final StringBuilder _line = new StringBuilder();
+    }
+
+    /** Number of hotspots reported. */
+    private final int _top;
+    /** Log2 of the slots in the simulated table. */
+    private final int _bits;
+    /** Where the report is printed. */
+    private final PrintStream _out;
+
+    /** Root position of the current search, or null between
+     *  searches. */
+    private String _position;
+    /** Depth of the current search. */
+    private int _depth;
+    /** Geometry of the current search. */
+    private Geometry _geometry;
+    /** The root of the current search, once read. */
+    private Visit _root;
+    /** Nodes of the current search whose parents have not been read,
+     *  by ply plus 1. */
+    private final List<List<Visit>> _pending = new ArrayList<>();
+    /** Nodes of the current search at each ply, not counting those under
+     *  ProbCut's searches twice. */
+    private final List<Long> _byPly = new ArrayList<>();
+    /** Deepest depth at which each position (by key) has been searched
+     *  in the current search. */
+    private final Map<Long, Integer> _seen = new HashMap<>();
+    /** Key of the last position stored in each slot in the current
+     *  search. */
+    private final Map<Integer, Long> _slots = new HashMap<>();
+    /** Nodes in the last search from each root position. */
+    private final Map<String, Long> _lastNodes = new HashMap<>();
+    /** Breakdown of the last search from each root position, in order of
+     *  first appearance. */
+    private final Map<String, String> _deepest =
+        new java.util.LinkedHashMap<>();
+    /** The worst hotspots, worst first. */
+    private final List<Hotspot> _hotspots = new ArrayList<>();
+
+    /** Number of searches read. */
+    private int _searches;
+    /** Totals: records and nodes. */
+    private long _records, _nodes;
+    /** Counts of flags. */
+    private long _reduced, _researched, _probes, _futile, _probCuts,
+        _stopped;
+    /** Nodes with cutoffs, and their counts by range of cutoff index. */
+    private long _cutNodes;
+    /** Counts of cutoffs by range of index (see CUTOFF_RANGES). */
+    private final long[] _cutoffs = new long[CUTOFF_RANGES.length];
+    /** Positions searched under moves before the cutting ones. */
+    private long _wasted;
+    /** Transposed nodes and the positions under them. */
+    private long _transpositions, _transposed;
+    /** Distinct positions per search, summed, and those sharing a
+     *  slot. */
+    private long _distinct, _sharing;
+    /** Stores to the simulated table and those replacing another
+     *  position. */
+    private long _stores, _evictions;
+}
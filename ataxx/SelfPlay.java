@@ -0,0 +1,335 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import static ataxx.PieceColor.*;
+
+/** Coordinates self-play across worker processes.  The coordinator
+ *  listens on a loopback port, starts worker processes (each running
+ *  Main with --worker=PORT) that connect to it, and hands each connected
+ *  worker one SelfPlayJob at a time, printing each GameRecord that comes
+ *  back on the standard output (or another given stream).  Other workers
+ *  may be started by hand and connect to the same port.
+ *
+ *  A worker that dies or drops its connection in mid-game has its job
+ *  put back at the front of the queue, and a replacement process is
+ *  started, up to a limit.  A worker that takes longer than a time limit
+ *  (by default GAME_TIMEOUT) over a game is presumed hung and killed, and
+ *  so is replaced in the same way.  At the end, a summary of results and
+ *  throughput is printed, on lines beginning with '#'.
+ *  @author Ezra Apple
+ */
+class SelfPlay {
+
+    /** Longest time a worker may take over one game, in milliseconds,
+     *  before it is presumed hung. */
+    static final int GAME_TIMEOUT = 10 * 60 * 1000;
+    /** Interval at which the coordinator checks its workers, in
+     *  milliseconds. */
+    static final long POLL_INTERVAL = 200;
+    /** Number of replacement workers allowed per original worker. */
+    static final int RESPAWNS_PER_WORKER = 2;
+    /** Default adjudication of games, as for SelfPlayJob. */
+    static final String DEFAULT_ADJUDICATION = "2,12";
+
+    /** A coordinator for GAMES games between engines RED and BLUE ("ai",
+     *  "ai-full", "mcts", or "engine"), played on WORKERS worker
+     *  processes, with game seeds and block layouts derived from SEED,
+     *  and adjudicated as given by ADJUDICATION (see SelfPlayJob). */
+    SelfPlay(int games, int workers, String red, String blue, long seed,
+             String adjudication) {
+        this(games, workers, red, blue, seed, adjudication, GAME_TIMEOUT,
+             System.out);
+    }
+
+    /** A coordinator as for SelfPlay(GAMES, WORKERS, RED, BLUE, SEED,
+     *  ADJUDICATION), but that presumes a worker hung after GAMETIMEOUT
+     *  milliseconds over a game and prints records and the summary on
+     *  OUT. */
+    SelfPlay(int games, int workers, String red, String blue, long seed,
+             String adjudication, int gameTimeout, PrintStream out) {
+        _games = games;
+        _workers = workers;
+        _gameTimeout = gameTimeout;
+        _out = out;
+        Random random = new Random(seed);
+        for (int id = 0; id < games; id += 1) {
+            _jobs.add(new SelfPlayJob(id, red, blue,
+                                      random.nextLong() & Long.MAX_VALUE,
+                                      adjudication, randomBlocks(random)));
+        }
+    }
+
+    /** Return a list of zero to two distinct block squares chosen using
+     *  RANDOM, each in the lower-left quarter of the board and not a
+     *  corner, so that no block or reflection lands on a starting piece
+     *  or on another block. */
+    private static String[] randomBlocks(Random random) {
+        String[] blocks = new String[random.nextInt(3)];
+        for (int i = 0; i < blocks.length; i += 1) {
+            String sq;
+            do {
+                sq = "" + (char) ('a' + random.nextInt(4))
+                    + (char) ('1' + random.nextInt(4));
+            } while (sq.equals("a1") || i > 0 && sq.equals(blocks[0]));
+            blocks[i] = sq;
+        }
+        return blocks;
+    }
+
+    /** Play all games, printing their records and a summary.  Returns an
+     *  exit code: 0 if all games were played, 1 otherwise. */
+    int run() {
+        long start = System.currentTimeMillis();
+        try (ServerSocket server =
+             new ServerSocket(0, _workers,
+                              InetAddress.getLoopbackAddress())) {
+            _port = server.getLocalPort();
+            _out.printf("# coordinator on port %d, %d games, %d workers%n",
+                        _port, _games, _workers);
+            Thread acceptor = new Thread(() -> accept(server),
+                                         "selfplay-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            for (int i = 0; i < _workers; i += 1) {
+                spawn();
+            }
+            supervise();
+        } catch (IOException excp) {
+            System.err.printf("self-play: %s%n", excp.getMessage());
+            return 1;
+        } finally {
+            for (Process p : _processes) {
+                p.destroy();
+            }
+        }
+        summarize(System.currentTimeMillis() - start);
+        return results() == _games ? 0 : 1;
+    }
+
+    /** Return the port on which I listen for workers, or 0 if run() has
+     *  not opened it yet. */
+    int port() {
+        return _port;
+    }
+
+    /** Start a worker process connecting to my port. */
+    private void spawn() throws IOException {
+        String java = System.getProperty("java.home") + File.separator
+            + "bin" + File.separator + "java";
+        List<String> command =
+            new ArrayList<>(List.of(java, "-cp",
+                                    System.getProperty("java.class.path"),
+                                    "ataxx.Main", "--worker=" + _port));
+        if (Main.engineCommand() != null) {
+            command.add("--engine=" + Main.engineCommand());
+        }
+        if (Main.store() != null) {
+            command.add("--store=" + Main.store().file());
+        }
+        command.add("--tuning=" + Main.tuning());
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        synchronized (this) {
+            _processes.add(builder.start());
+        }
+    }
+
+    /** Wait until all games are done or no workers are left, replacing
+     *  workers that die while there is work to do. */
+    private void supervise() throws IOException {
+        int respawns = _workers * RESPAWNS_PER_WORKER;
+        while (results() < _games) {
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException excp) {
+                return;
+            }
+            int alive = 0;
+            synchronized (this) {
+                for (Process p : _processes) {
+                    if (p.isAlive()) {
+                        alive += 1;
+                    }
+                }
+            }
+            if (alive < _workers && results() < _games) {
+                if (respawns == 0) {
+                    if (alive == 0 && connections() == 0) {
+                        System.err.println("self-play: all workers failed");
+                        return;
+                    }
+                } else {
+                    respawns -= 1;
+                    spawn();
+                }
+            }
+        }
+    }
+
+    /** Accept connections from workers on SERVER, serving each in its
+     *  own thread. */
+    private void accept(ServerSocket server) {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> serve(socket), "selfplay-serve");
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (IOException excp) {
+            /* Server closed: we are done. */
+        }
+    }
+
+    /** Hand out jobs to the worker connected through SOCKET until all
+     *  games are done or the worker fails, in which case its current
+     *  job goes back on the queue.  A worker that times out is killed,
+     *  so that supervise() replaces it. */
+    private void serve(Socket socket) {
+        SelfPlayJob job = null;
+        long pid = -1;
+        connected(1);
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(),
+                                               true)) {
+            socket.setSoTimeout(_gameTimeout);
+            pid = workerId(in.readLine());
+            while (results() < _games) {
+                job = _jobs.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (job == null) {
+                    continue;
+                }
+                out.println(job);
+                String reply = in.readLine();
+                if (reply == null) {
+                    throw new SocketException("worker closed connection");
+                }
+                GameRecord record = GameRecord.parse(reply);
+                if (record.id() != job.id()) {
+                    throw new SocketException("record for wrong game");
+                }
+                report(record);
+                job = null;
+            }
+            out.println("quit");
+        } catch (IOException | GameException | InterruptedException excp) {
+            if (excp instanceof SocketTimeoutException && pid != -1) {
+                ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+            }
+            if (job != null) {
+                _jobs.addFirst(job);
+                synchronized (this) {
+                    _failures += 1;
+                }
+            }
+        } finally {
+            connected(-1);
+        }
+    }
+
+    /** Return the process id in HELLO, a worker's first line. */
+    private static long workerId(String hello) throws SocketException {
+        if (hello == null || !hello.matches("worker \\d+")) {
+            throw new SocketException("bad greeting from worker");
+        }
+        return Long.parseLong(hello.substring("worker ".length()));
+    }
+
+    /** Record the arrival of RECORD, printing it. */
+    private synchronized void report(GameRecord record) {
+        if (_results.containsKey(record.id())) {
+            return;
+        }
+        _results.put(record.id(), record);
+        _plies += record.numMoves();
+        _out.println(record);
+    }
+
+    /** Return the number of games completed. */
+    private synchronized int results() {
+        return _results.size();
+    }
+
+    /** Add DELTA to the number of connected workers. */
+    private synchronized void connected(int delta) {
+        _connections += delta;
+    }
+
+    /** Return the number of connected workers. */
+    private synchronized int connections() {
+        return _connections;
+    }
+
+    /** Print a summary of the games played in ELAPSED milliseconds. */
+    private synchronized void summarize(long elapsed) {
+        int[] wins = new int[PieceColor.values().length];
+        int filled = 0, resigned = 0;
+        for (GameRecord r : _results.values()) {
+            wins[r.winner().ordinal()] += 1;
+            if (r.ending().equals("fill")) {
+                filled += 1;
+            } else if (r.ending().equals("resign")) {
+                resigned += 1;
+            }
+        }
+        double seconds = Math.max(elapsed, 1) / 1000.0;
+        _out.printf("# %d of %d games: red %d, blue %d, drawn %d%n",
+                    _results.size(), _games, wins[RED.ordinal()],
+                    wins[BLUE.ordinal()], wins[EMPTY.ordinal()]);
+        _out.printf("# adjudicated: %d filled, %d resigned%n", filled,
+                    resigned);
+        _out.printf("# %.1f s, %.2f games/s, %.1f plies/s%n",
+                    seconds, _results.size() / seconds, _plies / seconds);
+        _out.printf("# %d worker processes started, %d games "
+                    + "reassigned after worker failures%n",
+                    _processes.size(), _failures);
+    }
+
+    /** Number of games to play. */
+    private final int _games;
+    /** Number of worker processes to keep running. */
+    private final int _workers;
+    /** Games not yet handed out, or handed back after a failure. */
+    private final LinkedBlockingDeque<SelfPlayJob> _jobs =
+        new LinkedBlockingDeque<>();
+    /** Records received, by game number. */
+    private final HashMap<Integer, GameRecord> _results = new HashMap<>();
+    /** Worker processes started. */
+    private final List<Process> _processes = new ArrayList<>();
+    /** Longest time a worker may take over one game, in milliseconds. */
+    private final int _gameTimeout;
+    /** Where records and the summary are printed. */
+    private final PrintStream _out;
+    /** Port on which I listen, or 0 until I do. */
+    private volatile int _port;
+    /** Number of workers currently connected. */
+    private int _connections;
+    /** Number of jobs reassigned after a worker failed. */
+    private int _failures;
+    /** Total plies in the games received. */
+    private long _plies;
+}
@@ -0,0 +1,91 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import static ataxx.GameException.error;
+
+/** One self-play game to be played by a worker: the engines playing
+ *  each side, the seed for the game's AIs, how the game is adjudicated,
+ *  and the squares at which blocks are placed (each with its
+ *  reflections, as by the block command).  On the wire, a job is one
+ *  line of the form
+ *      job ID RED-ENGINE BLUE-ENGINE SEED ADJUDICATION BLOCKS
+ *  where ADJUDICATION is "off" or N,M, giving the operands of the
+ *  adjudicate command, and BLOCKS is a comma-separated list of squares,
+ *  or "-" for none.
+ *  @author Ezra Apple
+ */
+class SelfPlayJob {
+
+    /** A job numbered ID, with engines RED and BLUE ("ai" or "mcts"),
+     *  AI seed SEED, adjudication ADJUDICATION ("off" or N,M), and blocks
+     *  at BLOCKS. */
+    SelfPlayJob(int id, String red, String blue, long seed,
+                String adjudication, String... blocks) {
+        if (!adjudication.matches("off|\\d+,\\d+")) {
+            throw error("bad adjudication: %s", adjudication);
+        }
+        _id = id;
+        _red = red;
+        _blue = blue;
+        _seed = seed;
+        _adjudication = adjudication;
+        _blocks = blocks;
+    }
+
+    /** Return the job described by LINE, as produced by toString. */
+    static SelfPlayJob parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 7 || !parts[0].equals("job")) {
+            throw error("malformed job: %s", line);
+        }
+        try {
+            return new SelfPlayJob(Integer.parseInt(parts[1]), parts[2],
+                                   parts[3], Long.parseLong(parts[4]),
+                                   parts[5],
+                                   parts[6].equals("-") ? new String[0]
+                                   : parts[6].split(","));
+        } catch (NumberFormatException excp) {
+            throw error("malformed job: %s", line);
+        }
+    }
+
+    /** Return my identifying number. */
+    int id() {
+        return _id;
+    }
+
+    /** Return the commands that set up my game in a fresh Game. */
+    String[] setup() {
+        String[] cmnds = new String[_blocks.length + 4];
+        cmnds[0] = "seed " + _seed;
+        cmnds[1] = "adjudicate " + _adjudication.replace(',', ' ');
+        for (int i = 0; i < _blocks.length; i += 1) {
+            cmnds[i + 2] = "block " + _blocks[i];
+        }
+        cmnds[_blocks.length + 2] = "auto red " + _red;
+        cmnds[_blocks.length + 3] = "auto blue " + _blue;
+        return cmnds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("job %d %s %s %d %s %s", _id, _red, _blue,
+                             _seed, _adjudication,
+                             _blocks.length == 0 ? "-"
+                             : String.join(",", _blocks));
+    }
+
+    /** Identifying number. */
+    private final int _id;
+    /** Engines for red and blue. */
+    private final String _red, _blue;
+    /** Seed for the game's AIs. */
+    private final long _seed;
+    /** Adjudication: "off" or N,M. */
+    private final String _adjudication;
+    /** Squares at which to place blocks. */
+    private final String[] _blocks;
+}
@@ -0,0 +1,120 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Test self-play records and the self-play coordinator.
+ *  @author Ezra Apple
+ */
+public class SelfPlayTest {
+
+    @Test
+    public void testGameRecord() {
+        List<Move> moves = List.of(
+            Move.move("a7-b7"), Move.move("g7-e5"), Move.pass(),
+            Move.move("g1-f2"));
+        GameRecord r = new GameRecord(12, PieceColor.EMPTY, 3, 3, "fill",
+                                      moves);
+        GameRecord r1 = GameRecord.parse(r.toString());
+        assertEquals(r.toString(), r1.toString());
+        assertEquals(12, r1.id());
+        assertEquals(PieceColor.EMPTY, r1.winner());
+        assertEquals(4, r1.numMoves());
+        assertEquals("fill", r1.ending());
+        for (int k = 0; k < moves.size(); k++) {
+            assertEquals(moves.get(k), r1.move(k));
+        }
+        GameRecord empty = new GameRecord(0, PieceColor.RED, 4, 0, "play",
+                                          List.of());
+        assertEquals(empty.toString(),
+                     GameRecord.parse(empty.toString()).toString());
+        SelfPlayJob job = new SelfPlayJob(3, "ai", "mcts", 42, "8,20",
+                                          "c3", "d2");
+        assertEquals(job.toString(),
+                     SelfPlayJob.parse(job.toString()).toString());
+        String[] setup = SelfPlayJob.parse(job.toString()).setup();
+        assertEquals("adjudicate 8 20", setup[1]);
+        assertEquals("block d2", setup[3]);
+    }
+
+    @Test
+    public void testHungWorker() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SelfPlay selfPlay =
+            new SelfPlay(1, 0, "ai", "ai", 5, SelfPlay.DEFAULT_ADJUDICATION,
+                         1000, new PrintStream(output, true));
+        FutureTask<Integer> result = new FutureTask<>(selfPlay::run);
+        Thread coordinator = new Thread(result);
+        coordinator.setDaemon(true);
+        coordinator.start();
+        while (selfPlay.port() == 0) {
+            Thread.sleep(10);
+        }
+        /* A hung worker: a game waiting for commands that never come. */
+        Process hung = new ProcessBuilder(
+            System.getProperty("java.home") + File.separator + "bin"
+            + File.separator + "java",
+            "-cp", System.getProperty("java.class.path"), "ataxx.Main")
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        int id;
+        try (Socket socket = connect(selfPlay);
+             BufferedReader in = reader(socket);
+             PrintWriter out = writer(socket)) {
+            out.println("worker " + hung.pid());
+            id = SelfPlayJob.parse(in.readLine()).id();
+            assertTrue("hung worker not killed",
+                       hung.waitFor(30, TimeUnit.SECONDS));
+        } finally {
+            hung.destroyForcibly();
+        }
+        try (Socket socket = connect(selfPlay);
+             BufferedReader in = reader(socket);
+             PrintWriter out = writer(socket)) {
+            out.println("worker " + hung.pid());
+            SelfPlayJob job = SelfPlayJob.parse(in.readLine());
+            assertEquals("job not requeued", id, job.id());
+            out.println(new GameRecord(job.id(), PieceColor.EMPTY, 2, 2,
+                                       "play", List.of()));
+            assertEquals("quit", in.readLine());
+        }
+        assertEquals(0, (int) result.get(10, TimeUnit.SECONDS));
+        assertTrue("failure not counted", output.toString().contains(
+                       "1 games reassigned after worker failures"));
+    }
+
+    /** Return a connection to the coordinator SELFPLAY, on which reads
+     *  time out after half a minute. */
+    private static Socket connect(SelfPlay selfPlay) throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                   selfPlay.port());
+        socket.setSoTimeout(30000);
+        return socket;
+    }
+
+    /** Return a reader of the lines arriving on SOCKET. */
+    private static BufferedReader reader(Socket socket) throws Exception {
+        return new BufferedReader(
+            new InputStreamReader(socket.getInputStream()));
+    }
+
+    /** Return a writer of lines to SOCKET, flushed at each line. */
+    private static PrintWriter writer(Socket socket) throws Exception {
+        return new PrintWriter(socket.getOutputStream(), true);
+    }
+}
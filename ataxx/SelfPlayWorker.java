@@ -0,0 +1,84 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/** A self-play worker, normally run in its own process by SelfPlay.  It
+ *  connects to a coordinator and introduces itself with the line
+ *  "worker PID", giving its process id, then repeatedly reads a
+ *  SelfPlayJob, plays its game to the end in a fresh Game, and replies
+ *  with the game's GameRecord, until the coordinator sends "quit" or
+ *  closes the connection.
+ *  @author Ezra Apple
+ */
+class SelfPlayWorker {
+
+    /** Serve the coordinator listening on PORT of the loopback
+     *  interface.  Returns an exit code: 0 normally, 1 if the connection
+     *  failed. */
+    static int run(int port) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                        port);
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(),
+                                               true)) {
+            out.println("worker " + ProcessHandle.current().pid());
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("quit")) {
+                out.println(play(SelfPlayJob.parse(line)));
+            }
+            return 0;
+        } catch (IOException excp) {
+            System.err.printf("worker: %s%n", excp.getMessage());
+            return 1;
+        }
+    }
+
+    /** Play the game described by JOB and return its record. */
+    static GameRecord play(SelfPlayJob job) {
+        ArrayDeque<String> script = new ArrayDeque<>(Arrays.asList(
+            job.setup()));
+        Game game = new Game((prompt) -> script.poll(), (b) -> { },
+                             SILENT, false);
+        game.play();
+        Board board = game.getBoard();
+        PieceColor winner = game.winner();
+        if (winner == null) {
+            throw new Error("self-play game ended early");
+        }
+        return new GameRecord(job.id(), winner, board.redPieces(),
+                              board.bluePieces(), game.adjudication(),
+                              board.allMoves());
+    }
+
+    /** Reporter that discards everything but errors. */
+    private static final Reporter SILENT = new Reporter() {
+        @Override
+        public void announceWin(PieceColor side) {
+        }
+
+        @Override
+        public void announceMove(Move move, PieceColor player) {
+        }
+
+        @Override
+        public void msg(String format, Object... args) {
+        }
+
+        @Override
+        public void err(String format, Object... args) {
+            System.err.printf(format + "%n", args);
+        }
+    };
+}
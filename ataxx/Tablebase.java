@@ -0,0 +1,373 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** A database of the perfect-play values of every position on a small
+ *  board with a fixed layout of blocks, as computed by Retrograde and kept
+ *  in a memory-mapped file.
+ *
+ *  The squares that are not blocked (the open squares, at most MAX_OPEN
+ *  of them) are numbered 0 .. n-1 in the order of Geometry.squares(), and
+ *  a position is then a pair of bit masks (red and blue pieces) over the
+ *  open squares plus the side to move.  Positions are grouped into layers
+ *  by their number of pieces, which no move decreases: an extend adds a
+ *  piece and a jump keeps the count.  Within layer k, a position is
+ *  numbered by the rank of its set of occupied squares among the k-element
+ *  subsets (in colexicographic order), then by which of those squares are
+ *  blue, then by the side to move, so the 2 * 3**n positions are numbered
+ *  densely from 0 with no gaps.
+ *
+ *  Each position has a one-byte value from the point of view of the side
+ *  to move: UNKNOWN, DRAW, or a win or loss in some number of plies
+ *  (see win and loss).  The count of consecutive jumps is not part of a
+ *  position, so values are those of play without the jump limit.
+ *  @author Ezra Apple
+ */
+class Tablebase {
+
+    /** Largest number of open squares supported. */
+    static final int MAX_OPEN = 18;
+    /** Value of a position not (yet) solved. */
+    static final int UNKNOWN = 0;
+    /** Value of a drawn position. */
+    static final int DRAW = 1;
+    /** Largest distance to the end of the game that can be recorded. */
+    static final int MAX_DISTANCE = 126;
+    /** Size of the file header in bytes. */
+    static final int HEADER = 64;
+
+    /** Open the existing database in FILE for probing. */
+    Tablebase(String file) {
+        try (FileChannel channel =
+             FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            _data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                channel.size());
+        } catch (IOException excp) {
+            throw error("cannot open tablebase %s: %s", file,
+                        excp.getMessage());
+        }
+        if (_data.capacity() < HEADER || _data.getLong(0) != MAGIC) {
+            throw error("%s is not a tablebase", file);
+        }
+        setLayout(Geometry.of(_data.getInt(SIDE_OFFSET)),
+                  _data.getLong(OPEN_OFFSET), _data.getLong(OPEN_OFFSET + 8));
+        if (_data.capacity() != HEADER + (long) numPositions()) {
+            throw error("tablebase %s is truncated", file);
+        }
+    }
+
+    /** Create the database in FILE for the layout of blocks on LAYOUT, with
+     *  all positions unsolved, or reopen it for writing if it already
+     *  exists with that layout (to resume solving it). */
+    Tablebase(String file, Board layout) {
+        int[] squares = layout.geometry().squares();
+        long[] open = new long[2];
+        for (int k = 0; k < squares.length; k += 1) {
+            if (layout.get(squares[k]) != BLOCKED) {
+                open[k / Long.SIZE] |= 1L << (k % Long.SIZE);
+            }
+        }
+        setLayout(layout.geometry(), open[0], open[1]);
+        Path path = Paths.get(file);
+        try (FileChannel channel =
+             FileChannel.open(path, StandardOpenOption.CREATE,
+                              StandardOpenOption.READ,
+                              StandardOpenOption.WRITE)) {
+            boolean fresh = channel.size() == 0;
+            _data = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                HEADER + (long) numPositions());
+            if (fresh) {
+                _data.putLong(0, MAGIC);
+                _data.putInt(SIDE_OFFSET, _side);
+                _data.putLong(OPEN_OFFSET, open[0]);
+                _data.putLong(OPEN_OFFSET + 8, open[1]);
+                setSolvedLayer(_n + 1);
+            } else if (_data.getLong(0) != MAGIC
+                       || _data.getInt(SIDE_OFFSET) != _side
+                       || _data.getLong(OPEN_OFFSET) != open[0]
+                       || _data.getLong(OPEN_OFFSET + 8) != open[1]) {
+                throw error("%s holds a different tablebase", file);
+            }
+        } catch (IOException excp) {
+            throw error("cannot create tablebase %s: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the value of a win in D plies. */
+    static int win(int d) {
+        return 2 * d + 2;
+    }
+
+    /** Return the value of a loss in D plies. */
+    static int loss(int d) {
+        return 2 * d + 3;
+    }
+
+    /** Return true iff VALUE is a win. */
+    static boolean isWin(int value) {
+        return value >= 2 && value % 2 == 0;
+    }
+
+    /** Return true iff VALUE is a loss. */
+    static boolean isLoss(int value) {
+        return value >= 3 && value % 2 == 1;
+    }
+
+    /** Return the number of plies to the end of the game in a won or
+     *  lost position of value VALUE. */
+    static int distance(int value) {
+        return (value - 2) / 2;
+    }
+
+    /** Return VALUE as text: "W" or "L" and the number of plies to the
+     *  end, "D", or "?" for UNKNOWN. */
+    static String toString(int value) {
+        if (isWin(value)) {
+            return "W" + distance(value);
+        } else if (isLoss(value)) {
+            return "L" + distance(value);
+        } else {
+            return value == DRAW ? "D" : "?";
+        }
+    }
+
+    /** Return the number of open squares. */
+    int numOpen() {
+        return _n;
+    }
+
+    /** Return the number of positions. */
+    int numPositions() {
+        return 2 * _layerStart[_n + 1];
+    }
+
+    /** Return the number of positions in layer K: those with K pieces. */
+    int layerSize(int k) {
+        return 2 * (_layerStart[k + 1] - _layerStart[k]);
+    }
+
+    /** Return the smallest K such that layers K .. numOpen() are all
+     *  solved, or numOpen() + 1 if none are. */
+    int solvedLayer() {
+        return _data.getInt(SOLVED_OFFSET);
+    }
+
+    /** Record that layers K .. numOpen() are all solved, after first
+     *  writing all values to the file. */
+    void setSolvedLayer(int k) {
+        _data.force();
+        _data.putInt(SOLVED_OFFSET, k);
+        _data.force();
+    }
+
+    /** Return true iff BOARD has my size and layout of blocks. */
+    boolean covers(Board board) {
+        if (board.side() != _side) {
+            return false;
+        }
+        int[] squares = board.geometry().squares();
+        for (int k = 0, i = 0; k < squares.length; k += 1) {
+            boolean open = i < _n && _open[i] == squares[k];
+            if (open == (board.get(squares[k]) == BLOCKED)) {
+                return false;
+            }
+            if (open) {
+                i += 1;
+            }
+        }
+        return true;
+    }
+
+    /** Return the value of the position on BOARD for the side to move,
+     *  or UNKNOWN if I do not cover it or have not solved it. */
+    int value(Board board) {
+        if (!covers(board)) {
+            return UNKNOWN;
+        }
+        int red, blue;
+        red = blue = 0;
+        for (int i = 0; i < _n; i += 1) {
+            PieceColor p = board.get(_open[i]);
+            if (p == RED) {
+                red |= 1 << i;
+            } else if (p == BLUE) {
+                blue |= 1 << i;
+            }
+        }
+        if (Integer.bitCount(red | blue) < solvedLayer()) {
+            return UNKNOWN;
+        }
+        return get(index(red, blue, board.whoseMove() == RED ? 0 : 1));
+    }
+
+    /** Return a best move on BOARD, which I cover and have solved: the
+     *  quickest win, else a draw, else the slowest loss.  Returns null if
+     *  the game is over or the position is not solved. */
+    Move bestMove(Board board) {
+        if (board.getWinner() != null || value(board) == UNKNOWN) {
+            return null;
+        }
+        Move best = null;
+        int bestRank = Integer.MIN_VALUE;
+        for (Move move : AI.possibleMoves(board)) {
+            Board child = new Board(board);
+            child.makeMove(move);
+            int v = value(child);
+            int rank = isLoss(v) ? 2 * MAX_DISTANCE - distance(v)
+                : v == DRAW ? 0
+                : isWin(v) ? distance(v) - 2 * MAX_DISTANCE
+                : Integer.MIN_VALUE + 1;
+            if (rank > bestRank) {
+                best = move;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    /** Return bestMove(BOARD) if its value also holds under the jump
+     *  limit, which my values ignore, and otherwise null.  A win or loss
+     *  in d plies holds if BOARD.numJumps() + d < Board.JUMP_LIMIT, since
+     *  the game then ends before the limit can be reached.  A draw may
+     *  not hold: the limit can end a drawn game with one side ahead. */
+    Move playableMove(Board board) {
+        int v = value(board);
+        if (!isWin(v) && !isLoss(v)
+            || board.numJumps() + distance(v) >= Board.JUMP_LIMIT) {
+            return null;
+        }
+        return bestMove(board);
+    }
+
+    /** Return the value of position number INDEX. */
+    int get(int index) {
+        return _data.get(HEADER + index) & 0xff;
+    }
+
+    /** Set the value of position number INDEX to VALUE.  Different threads
+     *  may set different positions at once. */
+    void put(int index, int value) {
+        _data.put(HEADER + index, (byte) value);
+    }
+
+    /** Return the number of the position with red pieces on the open
+     *  squares in RED, blue pieces on those in BLUE, and SIDE (0 for red,
+     *  1 for blue) to move. */
+    int index(int red, int blue, int side) {
+        int occupied = red | blue;
+        int k = Integer.bitCount(occupied);
+        int rank, colors;
+        rank = colors = 0;
+        for (int j = 0; occupied != 0; j += 1) {
+            int p = Integer.numberOfTrailingZeros(occupied);
+            rank += _binomial[p][j + 1];
+            if ((blue & (1 << p)) != 0) {
+                colors |= 1 << j;
+            }
+            occupied &= occupied - 1;
+        }
+        return 2 * (_layerStart[k] + (rank << k) + colors) + side;
+    }
+
+    /** Return the mask of open squares adjacent to open square I. */
+    int adjacent(int i) {
+        return _adjacent[i];
+    }
+
+    /** Return the mask of open squares two rows or columns from open
+     *  square I. */
+    int jumps(int i) {
+        return _jumps[i];
+    }
+
+    /** Set my layout to the open squares of GEOMETRY indicated by the bits
+     *  of OPENLOW (the first 64 squares) and OPENHIGH, and build the
+     *  tables that go with it. */
+    private void setLayout(Geometry geometry, long openLow, long openHigh) {
+        _side = geometry.side();
+        _n = Long.bitCount(openLow) + Long.bitCount(openHigh);
+        if (_n > MAX_OPEN) {
+            throw error("tablebases allow at most %d open squares, not %d",
+                        MAX_OPEN, _n);
+        }
+        int[] squares = geometry.squares();
+        int[] slot = new int[geometry.size()];
+        _open = new int[_n];
+        Arrays.fill(slot, -1);
+        for (int k = 0, i = 0; k < squares.length; k += 1) {
+            long bits = k < Long.SIZE ? openLow : openHigh;
+            if ((bits & (1L << (k % Long.SIZE))) != 0) {
+                _open[i] = squares[k];
+                slot[squares[k]] = i;
+                i += 1;
+            }
+        }
+        _adjacent = new int[_n];
+        _jumps = new int[_n];
+        int[] neighbors = geometry.neighbors(),
+            jumpTargets = geometry.jumpTargets();
+        for (int i = 0; i < _n; i += 1) {
+            for (int k = 0; k < Move.NUM_NEIGHBORS; k += 1) {
+                int s = slot[neighbors[_open[i] * Move.NUM_NEIGHBORS + k]];
+                if (s >= 0) {
+                    _adjacent[i] |= 1 << s;
+                }
+            }
+            for (int k = 0; k < Move.NUM_JUMPS; k += 1) {
+                int s = slot[jumpTargets[_open[i] * Move.NUM_JUMPS + k]];
+                if (s >= 0) {
+                    _jumps[i] |= 1 << s;
+                }
+            }
+        }
+        _binomial = new int[_n + 1][_n + 2];
+        for (int a = 0; a <= _n; a += 1) {
+            _binomial[a][0] = 1;
+            for (int b = 1; b <= a; b += 1) {
+                _binomial[a][b] = _binomial[a - 1][b - 1] + _binomial[a - 1][b];
+            }
+        }
+        _layerStart = new int[_n + 2];
+        for (int k = 0; k <= _n; k += 1) {
+            _layerStart[k + 1] = _layerStart[k] + (_binomial[_n][k] << k);
+        }
+    }
+
+    /** Marks a tablebase file. */
+    private static final long MAGIC = 0x4154415858544231L;
+    /** Offsets in the header of the board size, the mask of open squares
+     *  and the lowest solved layer. */
+    private static final int
+        SIDE_OFFSET = 8, OPEN_OFFSET = 16, SOLVED_OFFSET = 32;
+
+    /** Squares on a side. */
+    private int _side;
+    /** Number of open squares. */
+    private int _n;
+    /** Linearized indices of the open squares. */
+    private int[] _open;
+    /** Masks of the open squares adjacent to and two away from each open
+     *  square. */
+    private int[] _adjacent, _jumps;
+    /** _binomial[A][B] is A choose B. */
+    private int[][] _binomial;
+    /** _layerStart[K] is half the number of the first position with K
+     *  pieces. */
+    private int[] _layerStart;
+    /** The header and values. */
+    private MappedByteBuffer _data;
+}
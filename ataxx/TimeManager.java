@@ -0,0 +1,88 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** Decides how long an automated player may spend on one move under a
+ *  time control.  The remaining time is divided evenly across the moves
+ *  the player can expect still to make (estimated from the number of
+ *  empty squares, since most moves fill one), plus most of the
+ *  increment.  That share is a soft limit: an iterative search should
+ *  not start another iteration once it has used it, though the limit
+ *  grows while the best move keeps changing between iterations.  The
+ *  hard limit bounds the search however unstable it is.  Forced moves,
+ *  which need no time at all, are left to the player.
+ *  @author Ezra Apple
+ */
+class TimeManager {
+
+    /** Least number of moves assumed to remain for the player. */
+    static final int MIN_MOVES_TO_GO = 8;
+    /** Time kept in reserve against overhead, in milliseconds. */
+    static final long SAFETY_MARGIN = 50;
+    /** Ratio of the hard to the (unextended) soft limit. */
+    static final int HARD_FACTOR = 4;
+    /** Percentage by which the soft limit grows each time the best move
+     *  changes between iterations. */
+    static final int INSTABILITY_EXTENSION = 50;
+    /** Largest multiple of the soft limit to which it may grow. */
+    static final int MAX_EXTENSION = 3;
+
+    /** A time manager for WHO's move on BOARD, timed by CLOCK. */
+    TimeManager(Clock clock, Board board, PieceColor who) {
+        _start = System.currentTimeMillis();
+        long left = Math.max(0, clock.remaining(who) - SAFETY_MARGIN);
+        int empty = 0;
+        for (int sq : board.geometry().squares()) {
+            if (board.get(sq) == EMPTY) {
+                empty += 1;
+            }
+        }
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, (empty + 1) / 2);
+        _soft = Math.min(left, left / movesToGo
+                         + clock.increment() * 3 / 4);
+        _hard = Math.max(_soft,
+                         Math.min(left / 2 + clock.increment() / 2,
+                                  _soft * HARD_FACTOR));
+        _extended = _soft;
+    }
+
+    /** Return the time since this manager was created. */
+    long elapsed() {
+        return System.currentTimeMillis() - _start;
+    }
+
+    /** Return the time at which the search must stop. */
+    long hardDeadline() {
+        return _start + _hard;
+    }
+
+    /** Return the time at which a search that cannot judge the stability
+     *  of its choice should stop. */
+    long softDeadline() {
+        return _start + _soft;
+    }
+
+    /** Note that an iteration has just completed, changing the best move
+     *  iff CHANGED, and return true iff there is time for another. */
+    boolean anotherIteration(boolean changed) {
+        if (changed) {
+            _extended = Math.min(_soft * MAX_EXTENSION,
+                                 _extended * (100 + INSTABILITY_EXTENSION)
+                                 / 100);
+        }
+        return elapsed() < Math.min(_extended, _hard);
+    }
+
+    /** Time at which this manager was created. */
+    private final long _start;
+    /** Soft limit on time for this move. */
+    private final long _soft;
+    /** Hard limit on time for this move. */
+    private final long _hard;
+    /** Soft limit as extended for instability. */
+    private long _extended;
+}
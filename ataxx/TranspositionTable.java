@@ -0,0 +1,214 @@
+/* Skeleton code copyright (C) 2008, 2022 Paul N. Hilfinger and the
+ * Regents of the University of California.  Do not distribute this or any
+ * derivative work without permission. */
+
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** A fixed-size table of search results indexed by position, so that a
+ *  search reaching a position it has already searched (by transposed
+ *  moves, from another root move, or in an earlier iteration) can reuse
+ *  the result or at least try the best move found before first.
+ *
+ *  Like LeafBatch, the table is kept in parallel arrays.  A position is
+ *  identified by its red and blue pieces as bit boards (bit K standing for
+ *  the square Geometry.squares()[K]), the side to move, the count of
+ *  consecutive jumps, and the size of the board.  The first 64 squares of
+ *  each color get a long of their own; the rest, up to 17 more on the
+ *  largest board, share a third long with the other fields.  Blocks are
+ *  not part of the key, so a table holds positions of one layout of
+ *  blocks and must be cleared when that changes.
+ *  Each slot holds one position; a new entry replaces the old one unless
+ *  the old one is for the same position and was searched more deeply.
+ *  @author Ezra Apple
+ */
+class TranspositionTable {
+
+    /** Bound type of a score that is exact. */
+    static final int EXACT = 0;
+    /** Bound type of a score that is at least the true value (the search
+     *  failed low). */
+    static final int UPPER = 1;
+    /** Bound type of a score that is at most the true value (the search
+     *  failed high). */
+    static final int LOWER = 2;
+
+    /** Value of move() meaning no move is recorded. */
+    static final int NO_MOVE = -1;
+
+    /** An empty table with 2**BITS slots. */
+    TranspositionTable(int bits) {
+        int size = 1 << bits;
+        _mask = size - 1;
+        _red = new long[size];
+        _blue = new long[size];
+        _rest = new long[size];
+        _score = new int[size];
+        _move = new short[size];
+        _depth = new byte[size];
+        _bound = new byte[size];
+        clear();
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_rest, EMPTY_KEY);
+        _stores = 0;
+    }
+
+    /** Return the number of slots. */
+    int size() {
+        return _red.length;
+    }
+
+    /** Return the number of entries stored since the last clear(),
+     *  including those that replaced others. */
+    long stores() {
+        return _stores;
+    }
+
+    /** Set my key to that of the position on BOARD, for the following
+     *  probe or store. */
+    void setKey(Board board) {
+        int[] squares = board.geometry().squares();
+        long red, blue, rest;
+        red = blue = rest = 0;
+        for (int k = 0; k < squares.length; k += 1) {
+            PieceColor p = board.get(squares[k]);
+            if (p == RED) {
+                if (k < Long.SIZE) {
+                    red |= 1L << k;
+                } else {
+                    rest |= 1L << (k - Long.SIZE);
+                }
+            } else if (p == BLUE) {
+                if (k < Long.SIZE) {
+                    blue |= 1L << k;
+                } else {
+                    rest |= 1L << (k - Long.SIZE + HIGH_BITS);
+                }
+            }
+        }
+        _keyRed = red;
+        _keyBlue = blue;
+        _keyRest = rest
+            | (long) board.numJumps() << JUMPS_SHIFT
+            | (board.whoseMove() == RED ? 0 : 1L << SIDE_SHIFT)
+            | (long) board.side() << SIZE_SHIFT;
+    }
+
+    /** Return the slot holding the entry for the position of the last
+     *  setKey, or -1 if there is none. */
+    int probe() {
+        int slot = slot();
+        if (_red[slot] == _keyRed && _blue[slot] == _keyBlue
+            && _rest[slot] == _keyRest) {
+            return slot;
+        }
+        return -1;
+    }
+
+    /** Record that the position of the last setKey, searched to DEPTH
+     *  plies, has score SCORE, of bound type BOUND (EXACT, UPPER, or
+     *  LOWER), and that MOVE (a Move id, the pass's id, or NO_MOVE) is its
+     *  best move. */
+    void store(int depth, int score, int bound, int move) {
+        int slot = slot();
+        if (_red[slot] == _keyRed && _blue[slot] == _keyBlue
+            && _rest[slot] == _keyRest
+            && _depth[slot] > depth) {
+            return;
+        }
+        _red[slot] = _keyRed;
+        _blue[slot] = _keyBlue;
+        _rest[slot] = _keyRest;
+        _depth[slot] = (byte) depth;
+        _score[slot] = score;
+        _bound[slot] = (byte) bound;
+        _move[slot] = (short) move;
+        _stores += 1;
+    }
+
+    /** Return the depth searched for the entry in SLOT. */
+    int depth(int slot) {
+        return _depth[slot];
+    }
+
+    /** Return the score of the entry in SLOT. */
+    int score(int slot) {
+        return _score[slot];
+    }
+
+    /** Return the bound type of the score in SLOT. */
+    int bound(int slot) {
+        return _bound[slot];
+    }
+
+    /** Return the best move recorded in SLOT: a Move id, the pass's id,
+     *  or NO_MOVE.  Ids are those of the board's Geometry. */
+    int move(int slot) {
+        return _move[slot];
+    }
+
+    /** Return a 64-bit hash of the current key.  The slot for the key
+     *  is given by the high-order bits of the hash (see slot(long, int)),
+     *  so two positions with equal hashes collide in a table of any
+     *  size. */
+    long hash() {
+        return (_keyRed * MIX1) ^ (_keyBlue * MIX2) ^ (_keyRest * MIX3);
+    }
+
+    /** Return the slot for a key whose hash() is HASH in a table of
+     *  2**BITS slots. */
+    static int slot(long hash, int bits) {
+        return (int) (hash >>> 32) & ((1 << bits) - 1);
+    }
+
+    /** Return the slot for the current key. */
+    private int slot() {
+        return (int) (hash() >>> 32) & _mask;
+    }
+
+    /** Number of bits in _rest for the squares of each color beyond the
+     *  first 64. */
+    private static final int HIGH_BITS =
+        Geometry.MAX_SIDE * Geometry.MAX_SIDE - Long.SIZE;
+    /** Position of the jump count in _rest. */
+    private static final int JUMPS_SHIFT = 2 * HIGH_BITS;
+    /** Position of the side to move in _rest. */
+    private static final int SIDE_SHIFT = JUMPS_SHIFT + 7;
+    /** Position of the board size in _rest. */
+    private static final int SIZE_SHIFT = SIDE_SHIFT + 1;
+    /** A _rest value no position has. */
+    private static final long EMPTY_KEY = -1;
+    /** Odd multipliers used to spread keys over the slots. */
+    private static final long
+        MIX1 = 0x9E3779B97F4A7C15L,
+        MIX2 = 0xC2B2AE3D27D4EB4FL,
+        MIX3 = 0x165667B19E3779F9L;
+
+    /** Mask giving a slot number from a hash. */
+    private final int _mask;
+    /** The first 64 squares' red pieces of the position in each slot. */
+    private final long[] _red;
+    /** The first 64 squares' blue pieces of the position in each slot. */
+    private final long[] _blue;
+    /** Remaining pieces, jump count, side to move and board size of the
+     *  position in each slot. */
+    private final long[] _rest;
+    /** Score of each slot. */
+    private final int[] _score;
+    /** Best move of each slot. */
+    private final short[] _move;
+    /** Depth searched for each slot. */
+    private final byte[] _depth;
+    /** Bound type of each slot's score. */
+    private final byte[] _bound;
+    /** Key of the current position. */
+    private long _keyRed, _keyBlue, _keyRest;
+    /** Number of entries stored. */
+    private long _stores;
+}
@@ -15,7 +15,13 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, GameTest.class,
+                          MCTSTest.class, SelfPlayTest.class,
+                          AnalyzerTest.class, RetrogradeTest.class,
+                          PositionStoreTest.class, AITest.class,
+                          BoardFuzzerTest.class, BenchTest.class,
+                          SearchRecorderTest.class, ReplayTest.class,
+                          ExternalEngineTest.class);
     }
 
 }
@@ -11,4 +11,9 @@ interface View {
     /** Update the current view of the game according to BOARD. */
     void update(Board board);
 
+    /** Return true iff I can display boards SIDE squares on a side. */
+    default boolean canShow(int side) {
+        return true;
+    }
+
 }